@@ -1,7 +1,10 @@
 package com.alon.spring.crud.api.configuration;
 
+import com.alon.spring.crud.api.controller.CrudMetricsInterceptor;
+import com.alon.spring.crud.api.controller.QueryCountAdvice;
 import com.alon.spring.crud.core.properties.Properties;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -12,7 +15,9 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import javax.servlet.Filter;
@@ -25,8 +30,39 @@ public class WebConfigurer implements WebMvcConfigurer {
     @Autowired
     public Properties properties;
 
+    @Autowired
+    private QueryCountAdvice queryCountAdvice;
+
+    private ObjectMapper objectMapper;
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2HttpMessageConverter(getObjectMapper()));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new CrudMetricsInterceptor());
+        registry.addInterceptor(queryCountAdvice);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(queryCountAdvice);
+    }
+
+    /**
+     * The ObjectMapper used by the message converter, also used to
+     * serialize the responses stored in the response body cache.
+     */
+    public synchronized ObjectMapper getObjectMapper() {
+        if (objectMapper == null)
+            objectMapper = buildObjectMapper();
+
+        return objectMapper;
+    }
+
+    private ObjectMapper buildObjectMapper() {
 
         Hibernate5Module hibernate5Module = new Hibernate5Module();
 
@@ -45,8 +81,7 @@ public class WebConfigurer implements WebMvcConfigurer {
         if (!properties.serialization.includeNullValues)
             builder.serializationInclusion(Include.NON_NULL);
 
-        converters.add(new MappingJackson2HttpMessageConverter(builder.build()));
-
+        return builder.build();
     }
 
     @Bean
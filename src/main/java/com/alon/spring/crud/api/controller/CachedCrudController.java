@@ -5,6 +5,8 @@ import com.alon.spring.crud.api.controller.cache.ETagPolicy;
 import com.alon.spring.crud.api.controller.input.mapper.InputMapper;
 import com.alon.spring.crud.api.controller.input.Options;
 import com.alon.spring.crud.api.controller.input.SearchInput;
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.metrics.CrudOperation;
 import com.alon.spring.crud.core.properties.Properties;
 import com.alon.spring.crud.core.properties.Properties.CacheControlProperties;
 import com.alon.spring.crud.domain.model.BaseEntity;
@@ -101,8 +103,11 @@ public abstract class CachedCrudController<
 			response = super.search(search, pageable, options, request);
 		} else {
 			String eTag = deepETagResolver.generateCollectionResourceETag(managedEntityClass, search);
+			boolean notModified = request.checkNotModified(eTag);
 
-			if (request.checkNotModified(eTag))
+			CrudInstrumentation.get().recordConditionalRequest(managedEntityClass, CrudOperation.SEARCH, notModified);
+
+			if (notModified)
 				response = buildHttpGETResponseEntity(HttpStatus.NOT_MODIFIED)
 						.header(HttpHeaders.ETAG, eTag)
 						.build();
@@ -125,8 +130,11 @@ public abstract class CachedCrudController<
 			response = super.read(id, options, request);
 		} else {
 			String eTag = deepETagResolver.generateSingleResourceETag(managedEntityClass, id);
+			boolean notModified = request.checkNotModified(eTag);
+
+			CrudInstrumentation.get().recordConditionalRequest(managedEntityClass, CrudOperation.READ, notModified);
 
-			if (request.checkNotModified(eTag))
+			if (notModified)
 				response = buildHttpGETResponseEntity(HttpStatus.NOT_MODIFIED)
 						.header(HttpHeaders.ETAG, eTag)
 						.build();
@@ -1,15 +1,25 @@
 package com.alon.spring.crud.api.controller;
 
+import com.alon.spring.crud.api.configuration.WebConfigurer;
+import com.alon.spring.crud.api.controller.cache.ResponseBodyCache;
+import com.alon.spring.crud.api.controller.export.EntityExporter;
 import com.alon.spring.crud.api.controller.input.Options;
 import com.alon.spring.crud.api.controller.input.OptionsNormalizer;
 import com.alon.spring.crud.api.controller.input.SearchInput;
 import com.alon.spring.crud.api.controller.input.SearchResolver;
 import com.alon.spring.crud.api.controller.input.mapper.InputMapper;
 import com.alon.spring.crud.api.controller.input.mapper.ModelMapperInputMapper;
+import com.alon.spring.crud.api.controller.output.IncludedNormalizer;
 import com.alon.spring.crud.api.controller.output.OutputPage;
 import com.alon.spring.crud.api.projection.ProjectionRepresentation;
 import com.alon.spring.crud.api.projection.ProjectionService;
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.metrics.CrudOperation;
+import com.alon.spring.crud.core.properties.Properties;
 import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.repository.FetchPlan;
+import com.alon.spring.crud.domain.repository.FetchStrategy;
+import com.alon.spring.crud.domain.service.CachedCountPage;
 import com.alon.spring.crud.domain.service.CrudService;
 import com.alon.spring.crud.domain.service.SearchCriteria;
 import com.alon.spring.crud.domain.service.exception.*;
@@ -26,12 +36,19 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
+import java.security.Principal;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
 
 public abstract class CrudController<
         MANAGED_ENTITY_ID_TYPE extends Serializable,
@@ -41,6 +58,9 @@ public abstract class CrudController<
         SEARCH_INPUT_TYPE extends SearchInput,
         SERVICE_TYPE extends CrudService<MANAGED_ENTITY_ID_TYPE, MANAGED_ENTITY_TYPE, ?>
 > {
+
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String TOTAL_COUNT_ESTIMATED_HEADER = "X-Total-Count-Estimated";
 	
     protected final SERVICE_TYPE service;
     
@@ -52,6 +72,20 @@ public abstract class CrudController<
 
     @Autowired
     private SearchResolver searchResolver;
+
+    @Autowired
+    protected ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private EntityExporter entityExporter;
+
+    @Autowired
+    private Properties properties;
+
+    @Autowired
+    private WebConfigurer webConfigurer;
+
+    private FetchPlan fetchPlan;
     
     protected InputMapper<CREATE_INPUT_TYPE, MANAGED_ENTITY_TYPE> createInputMapper;
     protected InputMapper<UPDATE_INPUT_TYPE, MANAGED_ENTITY_TYPE> updateInputMapper;
@@ -106,31 +140,95 @@ public abstract class CrudController<
         optionsNormalizer.normalizeOptions(options,
                 this::getCollectionDefaultProjection, this::getCollectionAllowedProjections);
 
+        optionsNormalizer.normalizeFields(options, managedEntityClass,
+                this::getSelectableFields, this::getCollectionAllowedProjections);
+
+        optionsNormalizer.normalizeCursor(options, pageable);
+
+        optionsNormalizer.normalizeCount(options, request.getHeader(PREFER_HEADER), isCountEnabled());
+
+        String cacheKey = null;
+
+        if (isResponseCacheEnabled()) {
+            cacheKey = responseBodyCache.buildKey(managedEntityClass, request.getRequest(),
+                    getCacheKeyScope(request.getRequest()), options.getProjection(), options.getExpand());
+
+            if (writeCachedResponse(cacheKey, request))
+                return null;
+        }
+
         Specification specification = searchResolver.resolve(search);
 
-        SearchCriteria criteria = SearchCriteria.of()
-                .filter(specification)
-                .pageable(pageable)
-                .expand(options.getExpand())
-                .build();
+        SearchCriteria criteria = buildSearchCriteria(specification, pageable, options, search.fingerprint(),
+                getSelect(options));
 
         Page<MANAGED_ENTITY_TYPE> page = service.search(criteria);
 
         OutputPage response;
 
         try {
-            response = projectionService.project(options.getProjection(), page);
+            response = isStreamingProjection(options)
+                    ? projectionService.stream(options.getProjection(), page)
+                    : projectionService.project(options.getProjection(), options.getFields(), page);
         } catch (ProjectionException e) {
-            if (optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getCollectionDefaultProjection))
-                response = projectionService.project(getCollectionDefaultProjection(), page);
-            else
+            if (!optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getCollectionDefaultProjection))
                 throw e;
+
+            CrudInstrumentation.get().recordProjectionFallback(managedEntityClass, options.getProjection());
+
+            // The selected entities have only the attributes of the failed projection
+            if (criteria.getSelect() != null)
+                page = service.search(buildSearchCriteria(specification, pageable, options, search.fingerprint(), null));
+
+            response = projectionService.project(getCollectionDefaultProjection(), page);
         }
 
+        if (options.isNormalize())
+            response = IncludedNormalizer.normalize(response, page.getContent(), options.getExpand(),
+                    webConfigurer.getObjectMapper());
+
+        if (page instanceof CachedCountPage && ((CachedCountPage) page).isEstimated())
+            return buildHttpGETResponseEntity(HttpStatus.OK)
+                    .header(TOTAL_COUNT_ESTIMATED_HEADER, "true")
+                    .body(response);
+
+        if (cacheKey != null)
+            return cacheAndWriteResponse(cacheKey, response, request);
+
         return buildHttpGETResponseEntity(HttpStatus.OK)
                 .body(response);
     }
 
+    @ApiOperation(value = "Export resources", produces = "application/x-ndjson, text/csv")
+    @GetMapping(value = "/export", params = "format")
+    public ResponseEntity<StreamingResponseBody> export(
+            SEARCH_INPUT_TYPE search,
+            Pageable pageable,
+            @Valid Options options,
+            @RequestParam String format,
+            ServletWebRequest request
+    ) {
+        if (!isExportEnabled())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+
+        ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+
+        optionsNormalizer.normalizeOptions(options,
+                this::getCollectionDefaultProjection, this::getCollectionAllowedProjections);
+
+        Specification specification = searchResolver.resolve(search);
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .filter(specification)
+                .pageable(pageable)
+                .expand(options.getExpand())
+                .build();
+
+        return entityExporter.<MANAGED_ENTITY_TYPE>export(format, options.getProjection(), getExportMaxRows(),
+                (fetchSize, clearInterval, maxRows, consumer) ->
+                        service.export(criteria, fetchSize, clearInterval, maxRows, consumer));
+    }
+
     @ApiOperation(value = "Read a resource", produces = MediaType.APPLICATION_JSON_VALUE)
     @GetMapping("/{id}")
     public ResponseEntity read(
@@ -144,6 +242,19 @@ public abstract class CrudController<
         optionsNormalizer.normalizeOptions(options,
                 this::getSingleDefaultProjection, this::getSingleAllowedProjections);
 
+        optionsNormalizer.normalizeFields(options, managedEntityClass,
+                this::getSelectableFields, this::getSingleAllowedProjections);
+
+        String cacheKey = null;
+
+        if (isResponseCacheEnabled()) {
+            cacheKey = responseBodyCache.buildKey(managedEntityClass, request.getRequest(),
+                    getCacheKeyScope(request.getRequest()), options.getProjection(), options.getExpand());
+
+            if (writeCachedResponse(cacheKey, request))
+                return null;
+        }
+
         MANAGED_ENTITY_TYPE entity;
 
         try {
@@ -155,14 +266,20 @@ public abstract class CrudController<
         Object response;
 
         try {
-            response = projectionService.project(options.getProjection(), entity);
+            response = isStreamingProjection(options)
+                    ? projectionService.stream(options.getProjection(), entity)
+                    : projectionService.project(options.getProjection(), options.getFields(), entity);
         } catch (ProjectionException e) {
-            if (optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getSingleDefaultProjection))
-                response = projectionService.project(getSingleDefaultProjection(), entity);
-            else
+            if (!optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getSingleDefaultProjection))
                 throw e;
+
+            CrudInstrumentation.get().recordProjectionFallback(managedEntityClass, options.getProjection());
+            response = projectionService.project(getSingleDefaultProjection(), entity);
         }
 
+        if (cacheKey != null)
+            return cacheAndWriteResponse(cacheKey, response, request);
+
         return buildHttpGETResponseEntity(HttpStatus.OK)
                 .body(response);
     }
@@ -193,7 +310,7 @@ public abstract class CrudController<
         MANAGED_ENTITY_TYPE entity;
 
         try {
-            entity = service.read(id);
+            entity = service.read(id, null, false);
         } catch (NotFoundException ex) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
         }
@@ -233,6 +350,69 @@ public abstract class CrudController<
         return ResponseEntity.status(status);
     }
 
+    /*
+     * The cached body is written directly to the servlet response, so the handler returns
+     * null and Spring considers the request handled.
+     */
+    private boolean writeCachedResponse(String cacheKey, ServletWebRequest request) {
+        return responseBodyCache.writeIfPresent(cacheKey, request.getRequest(), request.getResponse(),
+                buildHttpGETResponseEntity(HttpStatus.OK).build().getHeaders());
+    }
+
+    private ResponseEntity cacheAndWriteResponse(String cacheKey, Object response, ServletWebRequest request) {
+        responseBodyCache.putAndWrite(cacheKey, response, request.getRequest(), request.getResponse(),
+                buildHttpGETResponseEntity(HttpStatus.OK).build().getHeaders());
+
+        return null;
+    }
+
+    /**
+     * Override to return false to search without the count query by default. The requests
+     * can still choose with the count parameter or the "Prefer: count=none" header.
+     */
+    protected boolean isCountEnabled() {
+        return true;
+    }
+
+    /**
+     * Override to return true to enable the export endpoint, which is enabled for every
+     * controller by the com.alon.export.enabled property. The endpoint requires the format
+     * parameter, so it doesn't take the reads of an "export" id, which don't have it.
+     */
+    protected boolean isExportEnabled() {
+        return properties.export.enabled;
+    }
+
+    /**
+     * @return The maximum of rows of an export, by default the com.alon.export.max-rows property.
+     * 0 is no maximum.
+     */
+    protected int getExportMaxRows() {
+        return properties.export.maxRows;
+    }
+
+    /**
+     * The cache hits don't execute the read and search hooks, where the applications usually
+     * check the access to the entities. Therefore, by default the responses are not cached when
+     * the service has these hooks. Override to cache them anyway, with a {@link #getCacheKeyScope}
+     * that separates the responses each user can see.
+     */
+    protected boolean isResponseCacheEnabled() {
+        return responseBodyCache.isEnabled()
+                && !service.hasHooks(BEFORE_SEARCH, AFTER_SEARCH, BEFORE_READ, AFTER_READ);
+    }
+
+    /**
+     * @return The part of the response cache key that separates the responses of different users.
+     * By default, the name of the authenticated principal. Override when the responses depend on
+     * other request data, like the roles or the tenant.
+     */
+    protected String getCacheKeyScope(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+
+        return principal == null ? null : principal.getName();
+    }
+
     protected String getSingleDefaultProjection() {
         return ProjectionService.NOP_PROJECTION;
     }
@@ -249,6 +429,79 @@ public abstract class CrudController<
         return Collections.emptyList();
     }
 
+    /**
+     * @return The fields that the requests can select with the fields option, which is disabled
+     * when there are none. The paths through associations are valid only when expanded. The
+     * fields are not allowed when the controller restricts the projections.
+     */
+    protected Set<String> getSelectableFields() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return The fetch strategies of the expandable properties. The properties not declared
+     * here use the strategy of the com.alon.search.fetch-strategy property.
+     */
+    protected Map<String, FetchStrategy> getFetchStrategies() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return The maximum of SQL statements of the requests of the operation, checked when the
+     * com.alon.query-count.enabled property is true. 0 is no maximum. The operation is null for
+     * the other endpoints of the controller.
+     */
+    protected int getQueryBudget(CrudOperation operation) {
+        return properties.queryCount.budget;
+    }
+
+    /**
+     * The streaming projectors write the response directly, so there is no output object
+     * to build. The fields, when requested, are written by the fields projection instead.
+     */
+    private boolean isStreamingProjection(Options options) {
+        return options.getFields() == null && projectionService.isStreaming(options.getProjection());
+    }
+
+    /**
+     * The AFTER_SEARCH hooks can read any attribute, so the whole entities are loaded when
+     * the service has them.
+     */
+    private Set<String> getSelect(Options options) {
+        if (service.hasHooks(AFTER_SEARCH))
+            return null;
+
+        return options.getFields() != null
+                ? options.getFields()
+                : projectionService.getSourceAttributes(options.getProjection(), managedEntityClass);
+    }
+
+    private SearchCriteria buildSearchCriteria(Specification specification, Pageable pageable, Options options,
+            String filterFingerprint, Set<String> select) {
+
+        return SearchCriteria.of()
+                .filter(specification)
+                .pageable(pageable)
+                .expand(options.getExpand())
+                .fetchPlan(getFetchPlan())
+                .select(select)
+                .cursor(options.getCursor())
+                .count(options.getCount())
+                .filterFingerprint(filterFingerprint)
+                .build();
+    }
+
+    private FetchPlan getFetchPlan() {
+        if (fetchPlan == null)
+            fetchPlan = FetchPlan.of()
+                    .defaultStrategy(properties.search.fetchStrategy)
+                    .batchSize(properties.search.fetchBatchSize)
+                    .strategies(getFetchStrategies())
+                    .build();
+
+        return fetchPlan;
+    }
+
     private final <T extends BaseEntity<MANAGED_ENTITY_ID_TYPE>> Class<T> extractManagedEntityType() {
         ParameterizedType classType = (ParameterizedType) getClass().getGenericSuperclass();
         return (Class<T>) classType.getActualTypeArguments()[1];
@@ -0,0 +1,74 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.metrics.CrudMetrics;
+import com.alon.spring.crud.core.metrics.CrudOperation;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times the requests of the search, read, create, update and delete endpoints of the CRUD
+ * controllers, including the subclasses of {@link CachedCrudController}, for the
+ * {@link CrudMetrics} beans. The other endpoints and controllers are not timed.
+ */
+public class CrudMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = CrudMetricsInterceptor.class.getName() + ".start";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && CrudInstrumentation.get() != CrudMetrics.NONE)
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+
+        Object start = request.getAttribute(START_ATTRIBUTE);
+
+        if (start == null)
+            return;
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Class<?> entityType = getEntityType(handlerMethod.getBean());
+        CrudOperation operation = getOperation(handlerMethod.getMethod().getName());
+
+        if (entityType != null && operation != null)
+            CrudInstrumentation.get().recordRequest(entityType, operation, response.getStatus(),
+                    System.nanoTime() - (long) start);
+    }
+
+    static Class<?> getEntityType(Object controller) {
+        if (controller instanceof CrudController)
+            return ((CrudController) controller).managedEntityClass;
+
+        if (controller instanceof NestedCrudController)
+            return ((NestedCrudController) controller).nestedEntityClass;
+
+        return null;
+    }
+
+    static CrudOperation getOperation(String methodName) {
+        switch (methodName) {
+            case "search":
+                return CrudOperation.SEARCH;
+            case "read":
+                return CrudOperation.READ;
+            case "create":
+                return CrudOperation.CREATE;
+            case "update":
+                return CrudOperation.UPDATE;
+            case "delete":
+                return CrudOperation.DELETE;
+            default:
+                return null;
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.alon.spring.crud.api.controller;
 
+import com.alon.spring.crud.api.controller.export.EntityExporter;
 import com.alon.spring.crud.api.controller.input.Options;
 import com.alon.spring.crud.api.controller.input.OptionsNormalizer;
 import com.alon.spring.crud.api.controller.input.SearchInput;
@@ -8,7 +9,12 @@ import com.alon.spring.crud.api.controller.input.mapper.InputMapper;
 import com.alon.spring.crud.api.controller.input.mapper.ModelMapperInputMapper;
 import com.alon.spring.crud.api.projection.ProjectionRepresentation;
 import com.alon.spring.crud.api.projection.ProjectionService;
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.metrics.CrudOperation;
+import com.alon.spring.crud.core.properties.Properties;
 import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.repository.FetchPlan;
+import com.alon.spring.crud.domain.repository.FetchStrategy;
 import com.alon.spring.crud.domain.service.CrudService;
 import com.alon.spring.crud.domain.service.NestedCrudService;
 import com.alon.spring.crud.domain.service.SearchCriteria;
@@ -25,6 +31,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.io.Serializable;
@@ -32,6 +39,8 @@ import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class NestedCrudController<
         MASTER_ENTITY_ID_TYPE extends Serializable,
@@ -56,6 +65,14 @@ public abstract class NestedCrudController<
     @Autowired
     private SearchResolver searchResolver;
 
+    @Autowired
+    private EntityExporter entityExporter;
+
+    @Autowired
+    private Properties properties;
+
+    private FetchPlan fetchPlan;
+
     protected InputMapper<CREATE_INPUT_TYPE, NESTED_ENTITY_TYPE> createInputMapper;
     protected InputMapper<UPDATE_INPUT_TYPE, NESTED_ENTITY_TYPE> updateInputMapper;
 
@@ -117,35 +134,76 @@ public abstract class NestedCrudController<
         optionsNormalizer.normalizeOptions(options,
                 this::getCollectionDefaultProjection, this::getCollectionAllowedProjections);
 
+        optionsNormalizer.normalizeFields(options, nestedEntityClass,
+                this::getSelectableFields, this::getCollectionAllowedProjections);
+
         Specification specification = searchResolver.resolve(search);
 
-        SearchCriteria criteria = SearchCriteria.of()
-                .filter(specification)
-                .pageable(pageable)
-                .expand(options.getExpand())
-                .build();
+        SearchCriteria criteria = buildSearchCriteria(specification, pageable, options,
+                options.getFields() != null
+                        ? options.getFields()
+                        : projectionService.getSourceAttributes(options.getProjection(), nestedEntityClass));
 
-        Collection response;
+        Collection<NESTED_ENTITY_TYPE> entities = searchNested(masterId, criteria);
 
-        try {
-            response = nestedService.search(masterId, criteria);
-        } catch (NotFoundException ex) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
-        }
+        Collection response;
 
         try {
-            response = projectionService.project(options.getProjection(), response);
+            response = isStreamingProjection(options)
+                    ? projectionService.stream(options.getProjection(), entities)
+                    : projectionService.project(options.getProjection(), options.getFields(), entities);
         } catch (ProjectionException e) {
-            if (optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getCollectionDefaultProjection))
-                response = projectionService.project(getCollectionDefaultProjection(), response);
-            else
+            if (!optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getCollectionDefaultProjection))
                 throw e;
+
+            CrudInstrumentation.get().recordProjectionFallback(nestedEntityClass, options.getProjection());
+
+            // The selected entities have only the attributes of the failed projection
+            if (criteria.getSelect() != null)
+                entities = searchNested(masterId, buildSearchCriteria(specification, pageable, options, null));
+
+            response = projectionService.project(getCollectionDefaultProjection(), entities);
         }
 
         return buildHttpGETResponseEntity(HttpStatus.OK)
                 .body(response);
     }
 
+    @ApiOperation(value = "Export nested resources", produces = "application/x-ndjson, text/csv")
+    @GetMapping(value = "/export", params = "format")
+    public ResponseEntity<StreamingResponseBody> export(
+            SEARCH_INPUT_TYPE search,
+            @PathVariable MASTER_ENTITY_ID_TYPE masterId,
+            Pageable pageable,
+            @Valid Options options,
+            @RequestParam String format,
+            ServletWebRequest request
+    ) {
+        if (!isExportEnabled())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+
+        ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+
+        optionsNormalizer.normalizeOptions(options,
+                this::getCollectionDefaultProjection, this::getCollectionAllowedProjections);
+
+        // The body is written after the response is committed, so the master is checked up front
+        if (!masterService.getRepository().existsById(masterId))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("ID not found -> %s", masterId));
+
+        Specification specification = searchResolver.resolve(search);
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .filter(specification)
+                .pageable(pageable)
+                .expand(options.getExpand())
+                .build();
+
+        return entityExporter.<NESTED_ENTITY_TYPE>export(format, options.getProjection(), getExportMaxRows(),
+                (fetchSize, clearInterval, maxRows, consumer) ->
+                        nestedService.export(masterId, criteria, fetchSize, clearInterval, maxRows, consumer));
+    }
+
     @ApiOperation(value = "Read a nested resource", produces = MediaType.APPLICATION_JSON_VALUE)
     @GetMapping("/{nestedId}")
     public ResponseEntity read(
@@ -160,6 +218,9 @@ public abstract class NestedCrudController<
         optionsNormalizer.normalizeOptions(options,
                 this::getSingleDefaultProjection, this::getSingleAllowedProjections);
 
+        optionsNormalizer.normalizeFields(options, nestedEntityClass,
+                this::getSelectableFields, this::getSingleAllowedProjections);
+
         NESTED_ENTITY_TYPE entity;
 
         try {
@@ -171,12 +232,15 @@ public abstract class NestedCrudController<
         Object response;
 
         try {
-            response = projectionService.project(options.getProjection(), entity);
+            response = isStreamingProjection(options)
+                    ? projectionService.stream(options.getProjection(), entity)
+                    : projectionService.project(options.getProjection(), options.getFields(), entity);
         } catch (ProjectionException e) {
-            if (optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getSingleDefaultProjection))
-                response = projectionService.project(getSingleDefaultProjection(), entity);
-            else
+            if (!optionsNormalizer.projectDefaultOnError(options.getProjection(), this::getSingleDefaultProjection))
                 throw e;
+
+            CrudInstrumentation.get().recordProjectionFallback(nestedEntityClass, options.getProjection());
+            response = projectionService.project(getSingleDefaultProjection(), entity);
         }
 
         return buildHttpGETResponseEntity(HttpStatus.OK)
@@ -270,6 +334,88 @@ public abstract class NestedCrudController<
         return Collections.emptyList();
     }
 
+    /**
+     * Override to return true to enable the export endpoint, which is enabled for every
+     * controller by the com.alon.export.enabled property. The endpoint requires the format
+     * parameter, so it doesn't take the reads of an "export" id, which don't have it.
+     */
+    protected boolean isExportEnabled() {
+        return properties.export.enabled;
+    }
+
+    /**
+     * @return The maximum of rows of an export, by default the com.alon.export.max-rows property.
+     * 0 is no maximum.
+     */
+    protected int getExportMaxRows() {
+        return properties.export.maxRows;
+    }
+
+    /**
+     * @return The fields that the requests can select with the fields option, which is disabled
+     * when there are none. The paths through associations are valid only when expanded. The
+     * fields are not allowed when the controller restricts the projections.
+     */
+    protected Set<String> getSelectableFields() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return The fetch strategies of the expandable properties. The properties not declared
+     * here use the strategy of the com.alon.search.fetch-strategy property.
+     */
+    protected Map<String, FetchStrategy> getFetchStrategies() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return The maximum of SQL statements of the requests of the operation, checked when the
+     * com.alon.query-count.enabled property is true. 0 is no maximum. The operation is null for
+     * the other endpoints of the controller.
+     */
+    protected int getQueryBudget(CrudOperation operation) {
+        return properties.queryCount.budget;
+    }
+
+    /**
+     * The streaming projectors write the response directly, so there is no output object
+     * to build. The fields, when requested, are written by the fields projection instead.
+     */
+    private boolean isStreamingProjection(Options options) {
+        return options.getFields() == null && projectionService.isStreaming(options.getProjection());
+    }
+
+    private Collection<NESTED_ENTITY_TYPE> searchNested(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria criteria) {
+        try {
+            return nestedService.search(masterId, criteria);
+        } catch (NotFoundException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+        }
+    }
+
+    private SearchCriteria buildSearchCriteria(Specification specification, Pageable pageable, Options options,
+            Set<String> select) {
+
+        return SearchCriteria.of()
+                .filter(specification)
+                .pageable(pageable)
+                .expand(options.getExpand())
+                .fetchPlan(getFetchPlan())
+                .select(select)
+                .build();
+    }
+
+    private FetchPlan getFetchPlan() {
+        if (fetchPlan == null)
+            fetchPlan = FetchPlan.of()
+                    .defaultStrategy(properties.search.fetchStrategy)
+                    .batchSize(properties.search.fetchBatchSize)
+                    .strategies(getFetchStrategies())
+                    .build();
+
+        return fetchPlan;
+    }
+
     private final <T extends BaseEntity<NESTED_ENTITY_ID_TYPE>> Class<T> extractNestedEntityType() {
         ParameterizedType classType = (ParameterizedType) getClass().getGenericSuperclass();
         return (Class<T>) classType.getActualTypeArguments()[4];
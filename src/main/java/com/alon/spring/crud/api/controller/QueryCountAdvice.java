@@ -0,0 +1,229 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.core.metrics.CrudOperation;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.core.query.QueryBudgetExceededException;
+import com.alon.spring.crud.core.query.QueryCount;
+import com.alon.spring.crud.core.query.QueryCountAssertions;
+import com.alon.spring.crud.core.query.QueryCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the SQL statements of the requests of the CRUD controllers when the
+ * com.alon.query-count.enabled property is true. The count is returned in the X-Query-Count
+ * header when the com.alon.query-count.header property is true or one of the
+ * com.alon.query-count.header-profiles is active, and checked against the budget of the
+ * controller: exceeding it fails the request when com.alon.query-count.fail-on-budget-exceeded
+ * is true, otherwise it is logged. The statements executed at least
+ * com.alon.query-count.repeated-statement-threshold times are logged as possible N+1 selects.
+ *
+ * The header and the failure only happen for the responses written by a message converter. The
+ * cached responses are only logged. The async responses, like the exports, are only logged too,
+ * when the request completes: the count of the request thread is closed when the async
+ * processing starts, and the statements of the async task, like the ones of the export stream,
+ * are counted in its thread, when the task is a Callable or a StreamingResponseBody.
+ */
+@ControllerAdvice
+public class QueryCountAdvice implements AsyncHandlerInterceptor, CallableProcessingInterceptor,
+        ResponseBodyAdvice<Object> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCountAdvice.class);
+
+    private static final String COUNT_ATTRIBUTE = QueryCountAdvice.class.getName() + ".count";
+    private static final String ASYNC_COUNT_ATTRIBUTE = QueryCountAdvice.class.getName() + ".asyncCount";
+    private static final String BUDGET_ATTRIBUTE = QueryCountAdvice.class.getName() + ".budget";
+    private static final String FAILED_ATTRIBUTE = QueryCountAdvice.class.getName() + ".failed";
+
+    private final Properties properties;
+    private final Environment environment;
+
+    private volatile Boolean headerEnabled;
+
+    public QueryCountAdvice(Properties properties, Environment environment) {
+        this.properties = properties;
+        this.environment = environment;
+    }
+
+    /**
+     * The async dispatch of a request is part of the count started by its first dispatch.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.queryCount.enabled || !(handler instanceof HandlerMethod)
+                || request.getDispatcherType() == DispatcherType.ASYNC)
+            return true;
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Object controller = handlerMethod.getBean();
+
+        if (CrudMetricsInterceptor.getEntityType(controller) == null)
+            return true;
+
+        CrudOperation operation = CrudMetricsInterceptor.getOperation(handlerMethod.getMethod().getName());
+
+        request.setAttribute(BUDGET_ATTRIBUTE, getQueryBudget(controller, operation));
+        request.setAttribute(COUNT_ATTRIBUTE, QueryCounter.start());
+
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return properties.queryCount.enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+
+        if (!(request instanceof ServletServerHttpRequest))
+            return body;
+
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        QueryCount count = (QueryCount) servletRequest.getAttribute(COUNT_ATTRIBUTE);
+
+        if (count == null)
+            return body;
+
+        int total = getTotalCount(servletRequest);
+
+        if (isHeaderEnabled())
+            response.getHeaders().set(QueryCountAssertions.HEADER, String.valueOf(total));
+
+        // The error response of the exception passes here again, so the request fails only once
+        if (properties.queryCount.failOnBudgetExceeded && servletRequest.getAttribute(FAILED_ATTRIBUTE) == null) {
+            int budget = (int) servletRequest.getAttribute(BUDGET_ATTRIBUTE);
+
+            if (budget > 0 && total > budget) {
+                servletRequest.setAttribute(FAILED_ATTRIBUTE, true);
+                throw new QueryBudgetExceededException(budgetExceededMessage(servletRequest, total, budget));
+            }
+        }
+
+        return body;
+    }
+
+    /**
+     * Closes the count of the request thread, which is released to the pool. The request is
+     * completed, and logged, by its async dispatch.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+
+        QueryCount count = (QueryCount) request.getAttribute(COUNT_ATTRIBUTE);
+
+        if (count != null)
+            count.close();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+
+        if (servletRequest != null && servletRequest.getAttribute(COUNT_ATTRIBUTE) != null)
+            servletRequest.setAttribute(ASYNC_COUNT_ATTRIBUTE, QueryCounter.start());
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        QueryCount count = servletRequest == null ? null : (QueryCount) servletRequest.getAttribute(ASYNC_COUNT_ATTRIBUTE);
+
+        if (count != null)
+            count.close();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+
+        QueryCount count = (QueryCount) request.getAttribute(COUNT_ATTRIBUTE);
+
+        if (count == null || request.isAsyncStarted())
+            return;
+
+        count.close();
+
+        int total = getTotalCount(request);
+        int budget = (int) request.getAttribute(BUDGET_ATTRIBUTE);
+
+        if (budget > 0 && total > budget && request.getAttribute(FAILED_ATTRIBUTE) == null)
+            LOGGER.warn(budgetExceededMessage(request, total, budget));
+
+        getRepeatedStatements(request).forEach((sql, executions) ->
+                LOGGER.warn("Possible N+1 select in {} {}: the statement was executed {} times: {}",
+                        request.getMethod(), request.getRequestURI(), executions, sql));
+    }
+
+    private static int getTotalCount(HttpServletRequest request) {
+        QueryCount count = (QueryCount) request.getAttribute(COUNT_ATTRIBUTE);
+        QueryCount asyncCount = (QueryCount) request.getAttribute(ASYNC_COUNT_ATTRIBUTE);
+
+        return count.getCount() + (asyncCount == null ? 0 : asyncCount.getCount());
+    }
+
+    private Map<String, Integer> getRepeatedStatements(HttpServletRequest request) {
+        QueryCount count = (QueryCount) request.getAttribute(COUNT_ATTRIBUTE);
+        QueryCount asyncCount = (QueryCount) request.getAttribute(ASYNC_COUNT_ATTRIBUTE);
+        int threshold = properties.queryCount.repeatedStatementThreshold;
+
+        if (asyncCount == null)
+            return count.getRepeatedStatements(threshold);
+
+        Map<String, Integer> statements = new HashMap<>(count.getRepeatedStatements(1));
+        asyncCount.getRepeatedStatements(1).forEach((sql, executions) -> statements.merge(sql, executions, Integer::sum));
+        statements.values().removeIf(executions -> executions < threshold);
+
+        return statements;
+    }
+
+    private boolean isHeaderEnabled() {
+        if (headerEnabled == null) {
+            List<String> profiles = properties.queryCount.headerProfiles;
+
+            headerEnabled = properties.queryCount.header
+                    || (profiles != null && !profiles.isEmpty()
+                            && environment.acceptsProfiles(Profiles.of(profiles.toArray(new String[0]))));
+        }
+
+        return headerEnabled;
+    }
+
+    private int getQueryBudget(Object controller, CrudOperation operation) {
+        if (controller instanceof CrudController)
+            return ((CrudController) controller).getQueryBudget(operation);
+
+        return ((NestedCrudController) controller).getQueryBudget(operation);
+    }
+
+    private static String budgetExceededMessage(HttpServletRequest request, int count, int budget) {
+        return String.format("%s %s executed %d SQL statements, more than the budget of %d",
+                request.getMethod(), request.getRequestURI(), count, budget);
+    }
+
+}
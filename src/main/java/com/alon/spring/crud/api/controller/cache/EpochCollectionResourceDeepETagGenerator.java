@@ -0,0 +1,72 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import com.alon.spring.crud.api.controller.input.SearchInput;
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.service.ModificationEpochs;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CollectionResourceDeepETagGenerator that doesn't query the database. The ETag is
+ * built from the modification epoch of the entity type (advanced by the CRUD services
+ * on every create, update and delete) plus a fingerprint of the request, so a
+ * conditional request can be answered with 304 without any SQL.
+ *
+ * Requests with expand use the global epoch, since the expanded associations can be
+ * modified through the services of other entity types.
+ *
+ * The epochs live in memory, so this generator is only accurate when all the writes go
+ * through the CRUD services of this application instance. To use it, declare it
+ * as a @Primary bean of type CollectionResourceDeepETagGenerator.
+ */
+public class EpochCollectionResourceDeepETagGenerator implements CollectionResourceDeepETagGenerator {
+
+    private static final String EXPAND_PARAMETER = "expand";
+
+    private final String instanceToken = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    @Override
+    public String generate(Class<? extends BaseEntity<?>> entityType,
+            EntityManager entityManager, SearchInput search) {
+
+        HttpServletRequest request = getCurrentRequest();
+
+        long epoch;
+
+        if (request != null && request.getParameterMap().containsKey(EXPAND_PARAMETER))
+            epoch = ModificationEpochs.global();
+        else
+            epoch = ModificationEpochs.current(entityType);
+
+        String fingerprint = request != null ? fingerprint(request) : search.fingerprint();
+
+        return String.format("%s-%x-%x", instanceToken, epoch, fingerprint.hashCode());
+    }
+
+    private String fingerprint(HttpServletRequest request) {
+        StringBuilder fingerprint = new StringBuilder(request.getRequestURI());
+
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+
+        parameters.forEach((name, values) -> fingerprint
+                .append('&').append(name)
+                .append('=').append(Arrays.toString(values)));
+
+        return fingerprint.toString();
+    }
+
+    private HttpServletRequest getCurrentRequest() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes)
+            return ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();
+
+        return null;
+    }
+
+}
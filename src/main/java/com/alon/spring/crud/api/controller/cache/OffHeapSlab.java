@@ -0,0 +1,111 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Off-heap tier of the {@link ResponseBodyCache}: a single direct buffer, allocated once, written
+ * as a ring. The bodies are appended at the write position, and the ones overwritten when the
+ * ring comes around are evicted, so the eldest bodies are evicted first.
+ */
+final class OffHeapSlab {
+
+    private final ByteBuffer slab;
+
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    // The slots in the order they were written, the eldest first
+    private final ArrayDeque<Slot> written = new ArrayDeque<>();
+
+    private int position;
+    private long size;
+
+    OffHeapSlab(int capacity) {
+        this.slab = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * @return A copy of the body, since its bytes may be overwritten while the response is written,
+     * or null if the key is not in the slab
+     */
+    synchronized byte[] get(String key) {
+        Slot slot = slots.get(key);
+
+        if (slot == null)
+            return null;
+
+        byte[] bytes = new byte[slot.length];
+        slab.duplicate().position(slot.offset).get(bytes);
+
+        return bytes;
+    }
+
+    synchronized void put(String key, byte[] bytes) {
+        remove(key);
+
+        if (bytes.length > slab.capacity())
+            return;
+
+        if (position + bytes.length > slab.capacity()) {
+            // The bodies between the position and the end are the eldest ones
+            while (!written.isEmpty() && written.peekFirst().offset >= position)
+                evict(written.pollFirst());
+
+            position = 0;
+        }
+
+        while (!written.isEmpty() && written.peekFirst().offset >= position
+                && written.peekFirst().offset < position + bytes.length)
+            evict(written.pollFirst());
+
+        slab.duplicate().position(position).put(bytes);
+
+        Slot slot = new Slot(key, position, bytes.length);
+        slots.put(key, slot);
+        written.addLast(slot);
+
+        position += bytes.length;
+        size += bytes.length;
+    }
+
+    synchronized void remove(String key) {
+        Slot slot = slots.remove(key);
+
+        // Its bytes are reclaimed when the ring comes around
+        if (slot != null)
+            size -= slot.length;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        slots.clear();
+        written.clear();
+        position = 0;
+        size = 0;
+    }
+
+    private void evict(Slot slot) {
+        if (slots.remove(slot.key, slot))
+            size -= slot.length;
+    }
+
+    private static final class Slot {
+
+        private final String key;
+        private final int offset;
+        private final int length;
+
+        private Slot(String key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
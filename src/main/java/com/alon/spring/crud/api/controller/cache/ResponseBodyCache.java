@@ -0,0 +1,352 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import com.alon.spring.crud.api.configuration.WebConfigurer;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.core.properties.Properties.ResponseCacheProperties;
+import com.alon.spring.crud.domain.service.ModificationEpochs;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized GET response bodies. The key includes the modification epoch of the entity
+ * type (or the global epoch when there is expand), so any write through the CRUD services makes
+ * the previous entries unreachable, and they are evicted as the least recently used ones.
+ *
+ * A hit writes the stored bytes straight to the servlet response, without touching the database,
+ * the projectors or Jackson. Therefore, the read and search hooks are not executed on hits, and
+ * the responses that depend on the user must have a scope, like the name of the principal, in
+ * the key. The controllers give it with {@code getCacheKeyScope}.
+ *
+ * The heap tier is split in segments, each one with its own lock and least recently used order,
+ * so concurrent requests rarely wait for each other. Entries evicted from the heap tier are moved
+ * to an optional off-heap tier, a direct buffer allocated once, which keeps large working sets
+ * out of the garbage collected heap.
+ */
+@Component
+public class ResponseBodyCache {
+
+    private static final String PREFER_HEADER = "Prefer";
+
+    private static final int SEGMENTS = 16;
+
+    private final ResponseCacheProperties properties;
+    private final WebConfigurer webConfigurer;
+
+    private final Segment[] heapTier = new Segment[SEGMENTS];
+    private final AtomicLong heapSize = new AtomicLong();
+    private final AtomicInteger evictionHand = new AtomicInteger();
+
+    private volatile OffHeapSlab offHeapTier;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseBodyCache(Properties properties, WebConfigurer webConfigurer) {
+        this.properties = properties.responseCache;
+        this.webConfigurer = webConfigurer;
+
+        for (int i = 0; i < SEGMENTS; i++)
+            heapTier[i] = new Segment();
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled;
+    }
+
+    /**
+     * @param scope Part of the key that separates the responses of different users, or null
+     */
+    public String buildKey(Class<?> entityType, HttpServletRequest request, String scope,
+            String projection, Collection<String> expand) {
+
+        boolean expanded = expand != null && !expand.isEmpty();
+
+        long epoch = expanded ? ModificationEpochs.global() : ModificationEpochs.current(entityType);
+
+        StringBuilder key = new StringBuilder(entityType.getName())
+                .append('|').append(epoch)
+                .append('|').append(scope == null ? "" : scope)
+                .append('|').append(request.getRequestURI());
+
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> key
+                .append('&').append(name)
+                .append('=').append(String.join(",", values)));
+
+        return key.append('|').append(projection)
+                .append('|').append(expanded ? String.join(",", new TreeSet<>(expand)) : "")
+                .append('|').append(request.getHeader(HttpHeaders.ACCEPT))
+                .append('|').append(request.getHeader(PREFER_HEADER))
+                .toString();
+    }
+
+    /**
+     * @return true if the key was found and the response was written
+     */
+    public boolean writeIfPresent(String key, HttpServletRequest request,
+            HttpServletResponse response, HttpHeaders headers) {
+
+        ByteBuffer body = get(key);
+
+        if (body == null) {
+            misses.increment();
+            return false;
+        }
+
+        hits.increment();
+        write(body, request, response, headers);
+
+        return true;
+    }
+
+    public void putAndWrite(String key, Object body, HttpServletRequest request,
+            HttpServletResponse response, HttpHeaders headers) {
+
+        byte[] bytes = serialize(body);
+
+        put(key, bytes);
+        write(ByteBuffer.wrap(bytes), request, response, headers);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getHeapSize() {
+        return heapSize.get();
+    }
+
+    public long getOffHeapSize() {
+        OffHeapSlab slab = offHeapTier;
+        return slab == null ? 0 : slab.size();
+    }
+
+    public void clear() {
+        for (Segment segment : heapTier)
+            heapSize.addAndGet(-segment.clear());
+
+        OffHeapSlab slab = offHeapTier;
+
+        if (slab != null)
+            slab.clear();
+    }
+
+    private ByteBuffer get(String key) {
+        byte[] bytes = segmentOf(key).get(key);
+
+        if (bytes != null)
+            return ByteBuffer.wrap(bytes);
+
+        OffHeapSlab slab = offHeapTier;
+        bytes = slab == null ? null : slab.get(key);
+
+        return bytes != null ? ByteBuffer.wrap(bytes) : null;
+    }
+
+    private void put(String key, byte[] bytes) {
+        if (bytes.length > properties.maximumHeapSize)
+            return;
+
+        Segment segment = segmentOf(key);
+        heapSize.addAndGet(segment.put(key, bytes));
+
+        OffHeapSlab slab = offHeapTier;
+
+        if (slab != null)
+            slab.remove(key);
+
+        evict(segment);
+    }
+
+    /*
+     * Evicts the eldest entries of the segments in turns, starting after the last evicted one, so
+     * the least recently used entries are evicted across all the segments. The segment of the
+     * entry just written is the last one, since the entry is the most recently used. The segments
+     * are locked one at a time, so no lock waits for another.
+     */
+    private void evict(Segment written) {
+        while (heapSize.get() > properties.maximumHeapSize) {
+            Map.Entry<String, byte[]> eldest = null;
+
+            for (int i = 0; i < SEGMENTS && eldest == null; i++) {
+                Segment segment = heapTier[Math.floorMod(evictionHand.getAndIncrement(), SEGMENTS)];
+
+                if (segment != written)
+                    eldest = segment.removeEldest();
+            }
+
+            if (eldest == null)
+                eldest = written.removeEldest();
+
+            if (eldest == null)
+                return;
+
+            heapSize.addAndGet(-eldest.getValue().length);
+            moveToOffHeap(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void moveToOffHeap(String key, byte[] bytes) {
+        if (properties.maximumOffHeapSize <= 0)
+            return;
+
+        getOffHeapTier().put(key, bytes);
+    }
+
+    private OffHeapSlab getOffHeapTier() {
+        OffHeapSlab slab = offHeapTier;
+
+        if (slab == null) {
+            synchronized (this) {
+                slab = offHeapTier;
+
+                if (slab == null)
+                    offHeapTier = slab = new OffHeapSlab((int) Math.min(properties.maximumOffHeapSize, Integer.MAX_VALUE));
+            }
+        }
+
+        return slab;
+    }
+
+    private Segment segmentOf(String key) {
+        int hash = key.hashCode();
+        return heapTier[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            byte[] json = webConfigurer.getObjectMapper().writeValueAsBytes(body);
+
+            if (!properties.gzip)
+                return json;
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(ByteBuffer body, HttpServletRequest request,
+            HttpServletResponse response, HttpHeaders headers) {
+
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try {
+            OutputStream output = response.getOutputStream();
+
+            if (properties.gzip) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+                if (acceptsGzip(request)) {
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                } else {
+                    try (InputStream input = new GZIPInputStream(toInputStream(body))) {
+                        StreamUtils.copy(input, output);
+                    }
+
+                    return;
+                }
+            }
+
+            response.setContentLength(body.remaining());
+
+            if (body.hasArray())
+                output.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            else
+                Channels.newChannel(output).write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private InputStream toInputStream(ByteBuffer body) {
+        if (body.hasArray())
+            return new ByteArrayInputStream(body.array(), body.arrayOffset() + body.position(), body.remaining());
+
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static final class Segment {
+
+        private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized byte[] get(String key) {
+            return entries.get(key);
+        }
+
+        /**
+         * @return The change of the size of the segment
+         */
+        synchronized long put(String key, byte[] bytes) {
+            byte[] previous = entries.put(key, bytes);
+            return previous == null ? bytes.length : bytes.length - previous.length;
+        }
+
+        synchronized Map.Entry<String, byte[]> removeEldest() {
+            Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+
+            if (!iterator.hasNext())
+                return null;
+
+            Map.Entry<String, byte[]> eldest = iterator.next();
+            Map.Entry<String, byte[]> removed = Map.entry(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+
+            return removed;
+        }
+
+        /**
+         * @return The size of the removed entries
+         */
+        synchronized long clear() {
+            long size = entries.values().stream().mapToLong(bytes -> bytes.length).sum();
+            entries.clear();
+            return size;
+        }
+
+    }
+
+}
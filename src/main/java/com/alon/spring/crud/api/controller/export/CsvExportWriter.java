@@ -0,0 +1,89 @@
+package com.alon.spring.crud.api.controller.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV. The columns are the properties of the first row; nested objects
+ * and arrays are written as JSON in a single column.
+ */
+final class CsvExportWriter implements ExportWriter {
+
+    private static final String SINGLE_VALUE_COLUMN = "value";
+
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+
+    private List<String> columns;
+
+    CsvExportWriter(OutputStream output, ObjectMapper objectMapper) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(Object row) throws IOException {
+        JsonNode node = objectMapper.valueToTree(row);
+
+        if (columns == null) {
+            columns = new ArrayList<>();
+
+            if (node.isObject())
+                node.fieldNames().forEachRemaining(columns::add);
+            else
+                columns.add(SINGLE_VALUE_COLUMN);
+
+            writeLine(columns);
+        }
+
+        List<String> cells = new ArrayList<>(columns.size());
+
+        for (String column : columns)
+            cells.add(toCell(node.isObject() ? node.get(column) : node));
+
+        writeLine(cells);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private String toCell(JsonNode value) {
+        if (value == null || value.isNull() || value.isMissingNode())
+            return "";
+
+        if (value.isValueNode())
+            return value.asText();
+
+        return value.toString();
+    }
+
+    private void writeLine(List<String> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0)
+                writer.write(',');
+
+            writer.write(escape(cells.get(i)));
+        }
+
+        writer.write("\r\n");
+    }
+
+    private String escape(String cell) {
+        if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0)
+            return cell;
+
+        return '"' + cell.replace("\"", "\"\"") + '"';
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.alon.spring.crud.api.controller.export;
+
+import com.alon.spring.crud.api.configuration.WebConfigurer;
+import com.alon.spring.crud.api.projection.ProjectionService;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Builds the export responses. The rows are projected and written to the response
+ * as they are read from the database, so the memory doesn't grow with the number
+ * of exported rows.
+ */
+@Component
+public class EntityExporter {
+
+    private final Properties properties;
+    private final WebConfigurer webConfigurer;
+    private final ProjectionService projectionService;
+
+    public EntityExporter(Properties properties, WebConfigurer webConfigurer, ProjectionService projectionService) {
+        this.properties = properties;
+        this.webConfigurer = webConfigurer;
+        this.projectionService = projectionService;
+    }
+
+    /**
+     * @param maxRows The maximum of exported rows, 0 is no maximum
+     */
+    public <T extends BaseEntity> ResponseEntity<StreamingResponseBody> export(
+            String format, String projection, int maxRows, ExportSource<T> source) {
+
+        ExportFormat exportFormat = resolveFormat(format);
+        boolean streaming = projectionService.isStreaming(projection);
+
+        StreamingResponseBody body = output -> {
+            try (ExportWriter writer = exportFormat.createWriter(output, webConfigurer.getObjectMapper())) {
+                source.export(properties.export.fetchSize, properties.export.clearInterval, maxRows, entity -> {
+                    try {
+                        writer.write(streaming
+                                ? projectionService.stream(projection, entity)
+                                : projectionService.project(projection, entity));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .body(body);
+    }
+
+    private ExportFormat resolveFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Export format '%s' not supported", format));
+        }
+    }
+
+    @FunctionalInterface
+    public interface ExportSource<T extends BaseEntity> {
+
+        /**
+         * Passes up to maxRows entities to the consumer, reading them in batches of fetchSize
+         * and clearing the persistence context every clearInterval entities.
+         */
+        void export(int fetchSize, int clearInterval, int maxRows, Consumer<T> consumer);
+
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.alon.spring.crud.api.controller.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public enum ExportFormat {
+
+    NDJSON(MediaType.parseMediaType("application/x-ndjson")) {
+        @Override
+        public ExportWriter createWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+            return new NdjsonExportWriter(output, objectMapper);
+        }
+    },
+
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8")) {
+        @Override
+        public ExportWriter createWriter(OutputStream output, ObjectMapper objectMapper) {
+            return new CsvExportWriter(output, objectMapper);
+        }
+    };
+
+    private final MediaType mediaType;
+
+    ExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public abstract ExportWriter createWriter(OutputStream output, ObjectMapper objectMapper) throws IOException;
+
+}
@@ -0,0 +1,14 @@
+package com.alon.spring.crud.api.controller.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the exported rows one at a time. Closing the writer flushes it, but
+ * doesn't close the underlying output stream.
+ */
+public interface ExportWriter extends Closeable {
+
+    void write(Object row) throws IOException;
+
+}
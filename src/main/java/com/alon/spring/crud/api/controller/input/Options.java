@@ -11,6 +11,29 @@ public class Options {
     @ValidProjection
     private String projection;
 
+    /**
+     * The attributes to return, including paths through to-one associations, like "owner.name".
+     * When present, only these attributes are selected and returned, instead of the projection.
+     */
+    private Set<String> fields;
+
+    /**
+     * Enables keyset pagination. It is empty for the first page and, for the following
+     * ones, the next or previous cursor returned in the last page.
+     */
+    private String cursor;
+
+    /**
+     * When false, the total of elements is not counted and the page only informs if there is a next one
+     */
+    private Boolean count;
+
+    /**
+     * When true, the expanded entities are returned once in the included section of the page,
+     * and the rows reference them by type and id
+     */
+    private boolean normalize;
+
     public Set<String> getExpand() {
         return expand;
     }
@@ -27,4 +50,36 @@ public class Options {
         this.projection = projection;
     }
 
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Boolean getCount() {
+        return count;
+    }
+
+    public void setCount(Boolean count) {
+        this.count = count;
+    }
+
+    public boolean isNormalize() {
+        return normalize;
+    }
+
+    public void setNormalize(boolean normalize) {
+        this.normalize = normalize;
+    }
+
 }
@@ -2,23 +2,41 @@ package com.alon.spring.crud.api.controller.input;
 
 import com.alon.spring.crud.api.projection.ProjectionService;
 import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.model.BaseEntity;
 import com.alon.spring.crud.domain.service.exception.ProjectionException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Component
 public class OptionsNormalizer {
 
+    private static final String PREFER_COUNT_NONE = "count=none";
+
     private Properties properties;
     private ProjectionService projectionService;
+    private EntityManagerFactory entityManagerFactory;
+
+    public OptionsNormalizer(Properties properties, ProjectionService projectionService,
+            EntityManagerFactory entityManagerFactory) {
 
-    public OptionsNormalizer(Properties properties, ProjectionService projectionService) {
         this.properties = properties;
         this.projectionService = projectionService;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
     public boolean projectDefaultOnError(String projection, Supplier<String> defaultProjectionSupplier) {
@@ -33,6 +51,108 @@ public class OptionsNormalizer {
         normalizeExpand(options);
     }
 
+    /**
+     * Resolves if the search must count the total of elements, when the count parameter is not
+     * present. The request can disable the count with the "Prefer: count=none" header.
+     */
+    public void normalizeCount(Options options, String preferHeader, boolean countByDefault) {
+        if (options.getCount() == null)
+            options.setCount(countByDefault && !preferCountNone(preferHeader));
+    }
+
+    /**
+     * The keyset pagination reads the page size of the request, so the cursor is not allowed
+     * in unpaged requests.
+     */
+    public void normalizeCursor(Options options, Pageable pageable) {
+        if (options.getCursor() != null && pageable.isUnpaged())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cursor requires a page size");
+    }
+
+    /**
+     * Removes the blank fields and validates the others. The fields replace the projection, so
+     * they are not allowed when the controller restricts its projections, and each one must be
+     * a selectable field of the controller. The fields must also be attributes of the entity that
+     * can be selected: the paths can go through embeddables and through the to-one associations
+     * of the expand, but not through collections.
+     */
+    public void normalizeFields(Options options, Class<? extends BaseEntity> entityType,
+            Supplier<Set<String>> selectableFieldsSupplier, Supplier<List<String>> allowedProjectionsSupplier) {
+
+        if (options.getFields() == null)
+            return;
+
+        Set<String> fields = options.getFields().stream()
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        if (fields.isEmpty()) {
+            options.setFields(null);
+            return;
+        }
+
+        Set<String> selectableFields = selectableFieldsSupplier.get();
+
+        if (selectableFields.isEmpty() || !allowedProjectionsSupplier.get().isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fields not allowed");
+
+        ManagedType<?> rootType = entityManagerFactory.getMetamodel().managedType(entityType);
+        Set<String> expand = options.getExpand() != null ? options.getExpand() : Set.of();
+
+        fields.stream()
+                .filter(field -> !selectableFields.contains(field) || !isSelectable(rootType, field, expand))
+                .findFirst()
+                .ifPresent(field -> {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            String.format("Invalid field: %s", field));
+                });
+
+        options.setFields(fields);
+    }
+
+    private boolean isSelectable(ManagedType<?> rootType, String field, Set<String> expand) {
+        ManagedType<?> managedType = rootType;
+        String[] properties = field.split("\\.");
+
+        for (int i = 0; i < properties.length; i++) {
+            Attribute<?, ?> attribute;
+
+            try {
+                attribute = managedType.getAttribute(properties[i]);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+
+            if (attribute.isCollection())
+                return false;
+
+            if (i < properties.length - 1) {
+                if (attribute.isAssociation()
+                        && !expand.contains(String.join(".", Arrays.copyOfRange(properties, 0, i + 1))))
+                    return false;
+
+                Type<?> type = ((SingularAttribute<?, ?>) attribute).getType();
+
+                if (!(type instanceof ManagedType))
+                    return false;
+
+                managedType = (ManagedType<?>) type;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean preferCountNone(String preferHeader) {
+        if (preferHeader == null)
+            return false;
+
+        return Arrays.stream(preferHeader.split("[,;]"))
+                .map(String::trim)
+                .anyMatch(PREFER_COUNT_NONE::equalsIgnoreCase);
+    }
+
     private void normalizeProjection(Options options,
             Supplier<String> defaultProjectionSupplier, Supplier<List<String>> allowedProjectionsSupplier) {
 
@@ -46,13 +166,18 @@ public class OptionsNormalizer {
         }
     }
 
+    /**
+     * Adds the required expand of the projection and the associations inferred from its output type.
+     */
     private void normalizeExpand(Options options) {
         if (!options.getProjection().equals(ProjectionService.NOP_PROJECTION)) {
             try {
                 if (options.getExpand() != null)
                     options.getExpand().addAll(projectionService.getRequiredExpand(options.getProjection()));
                 else
-                    options.setExpand(projectionService.getRequiredExpand(options.getProjection()));
+                    options.setExpand(new HashSet<>(projectionService.getRequiredExpand(options.getProjection())));
+
+                options.getExpand().addAll(projectionService.getInferredExpand(options.getProjection()));
             } catch (ProjectionException e) {
                 // NOP
             }
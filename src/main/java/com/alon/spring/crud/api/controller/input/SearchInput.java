@@ -2,6 +2,10 @@ package com.alon.spring.crud.api.controller.input;
 
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
 
 public abstract class SearchInput {
 
@@ -24,5 +28,21 @@ public abstract class SearchInput {
     }
 
     public abstract @Nullable Specification toSpecification();
+
+    /**
+     * Canonical representation of the search, used as cache key. By default, it is built from
+     * the values of all the fields, sorted by name. Override it if the fields values don't
+     * have a meaningful toString.
+     */
+    public String fingerprint() {
+        Map<String, Object> values = new TreeMap<>();
+
+        ReflectionUtils.doWithFields(getClass(), field -> {
+            ReflectionUtils.makeAccessible(field);
+            values.put(field.getDeclaringClass().getSimpleName() + "." + field.getName(), field.get(this));
+        }, ReflectionUtils.COPYABLE_FIELDS);
+
+        return getClass().getName() + values;
+    }
     
 }
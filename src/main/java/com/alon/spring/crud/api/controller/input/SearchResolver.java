@@ -1,7 +1,7 @@
 package com.alon.spring.crud.api.controller.input;
 
 import com.alon.spring.crud.core.properties.Properties;
-import com.alon.spring.specification.ExpressionSpecification;
+import com.alon.spring.crud.domain.service.cache.ExpressionFilterCache;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -14,6 +14,7 @@ public class SearchResolver {
 
     public SearchResolver(Properties properties) {
         this.properties = properties;
+        ExpressionFilterCache.shared().setMaximumSize(properties.search.expressionCacheSize);
     }
 
     public <SEARCH_INPUT_TYPE extends SearchInput> Specification resolve(SEARCH_INPUT_TYPE search) {
@@ -22,7 +23,7 @@ public class SearchResolver {
                 throw new ResponseStatusException(HttpStatus.LOCKED,
                         "The filter by expression feature is not enabled.");
 
-            return ExpressionSpecification.of(search.getFilter());
+            return ExpressionFilterCache.shared().get(search.getFilter());
         }
 
         return search.toSpecification();
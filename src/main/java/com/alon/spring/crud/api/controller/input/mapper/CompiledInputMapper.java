@@ -0,0 +1,384 @@
+package com.alon.spring.crud.api.controller.input.mapper;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Input mapper that copies the properties of the input to the properties of the output with the
+ * same name, or the name given with {@link Builder#map(String, String)}, through accessors
+ * compiled when the mapper is built. There is no reflection when mapping.
+ *
+ * As with the lazy ignore ModelMapper, the uninitialized lazy values of the input are not copied.
+ * A property of the input that is not copied to the output, and is not ignored, fails the build.
+ * The properties whose types are different beans, like an input DTO of an association, are
+ * mapped by a nested compiled mapper, and so are the elements of the collections of different
+ * beans.
+ *
+ * @param <I> Input type
+ * @param <O> Output type
+ */
+public final class CompiledInputMapper<I, O> implements InputMapper<I, O> {
+
+    private static final int MAXIMUM_DEPTH = 5;
+
+    private final Class<O> outputType;
+    private final Supplier<O> outputFactory;
+    private final PropertyCopier[] copiers;
+
+    private CompiledInputMapper(Class<I> inputType, Class<O> outputType,
+            Map<String, String> names, Set<String> ignored, int depth) {
+
+        this.outputType = outputType;
+        this.outputFactory = compileConstructor(outputType);
+        this.copiers = compileCopiers(inputType, outputType, names, ignored, depth);
+    }
+
+    public static <I, O extends BaseEntity<?>> Builder<I, O> of(Class<I> inputType, Class<O> outputType) {
+        return new Builder<>(inputType, outputType);
+    }
+
+    @Override
+    public O map(I input) {
+        if (outputType.isInstance(input))
+            return (O) input;
+
+        O output = outputFactory.get();
+        map(input, output);
+
+        return output;
+    }
+
+    @Override
+    public void map(I input, O output) {
+        for (PropertyCopier copier : copiers)
+            copier.copy(input, output);
+    }
+
+    private static PropertyCopier[] compileCopiers(Class<?> inputType, Class<?> outputType,
+            Map<String, String> names, Set<String> ignored, int depth) {
+
+        List<PropertyCopier> copiers = new ArrayList<>();
+        List<String> unmapped = new ArrayList<>();
+
+        for (PropertyDescriptor inputProperty : BeanUtils.getPropertyDescriptors(inputType)) {
+            String name = inputProperty.getName();
+
+            if (inputProperty.getReadMethod() == null || name.equals("class") || ignored.contains(name))
+                continue;
+
+            PropertyDescriptor outputProperty =
+                    BeanUtils.getPropertyDescriptor(outputType, names.getOrDefault(name, name));
+
+            PropertyCopier copier = outputProperty == null || outputProperty.getWriteMethod() == null
+                    ? null
+                    : compileCopier(inputType, inputProperty, outputType, outputProperty, depth);
+
+            if (copier == null)
+                unmapped.add(name);
+            else
+                copiers.add(copier);
+        }
+
+        if (!unmapped.isEmpty())
+            throw new IllegalArgumentException(String.format(
+                    "The properties %s of %s have no property of the same name and type in %s",
+                    unmapped, inputType.getSimpleName(), outputType.getSimpleName()));
+
+        return copiers.toArray(new PropertyCopier[0]);
+    }
+
+    /**
+     * The types are compared with their generics, so a {@code List<ItemInput>} is not copied to a
+     * {@code List<Item>}: its elements are mapped by a nested compiled mapper.
+     *
+     * @return The copier, or null if the property of the input can't be copied to the output
+     */
+    private static PropertyCopier compileCopier(Class<?> inputType, PropertyDescriptor inputProperty,
+            Class<?> outputType, PropertyDescriptor outputProperty, int depth) {
+
+        ResolvableType inputPropertyType = ResolvableType.forMethodReturnType(inputProperty.getReadMethod(), inputType);
+        ResolvableType outputPropertyType = ResolvableType.forMethodParameter(outputProperty.getWriteMethod(), 0, outputType);
+        Class<?> inputPropertyClass = inputPropertyType.toClass();
+        Class<?> outputPropertyClass = outputPropertyType.toClass();
+
+        Function<Object, Object> getter = compileGetter(inputProperty.getReadMethod());
+        BiConsumer<Object, Object> setter = compileSetter(outputProperty.getWriteMethod());
+
+        if (ClassUtils.isAssignable(outputPropertyClass, inputPropertyClass)
+                && outputPropertyType.isAssignableFrom(inputPropertyType))
+            return new PropertyCopier(getter, setter, outputPropertyClass.isPrimitive());
+
+        if (depth >= MAXIMUM_DEPTH)
+            return null;
+
+        Function<Object, Object> outputGetter = outputProperty.getReadMethod() == null
+                ? null
+                : compileGetter(outputProperty.getReadMethod());
+
+        if (isBean(inputPropertyClass) && isBean(outputPropertyClass)) {
+            CompiledInputMapper nestedMapper = new CompiledInputMapper(inputPropertyClass, outputPropertyClass,
+                    Map.of(), Set.of(), depth + 1);
+
+            return new NestedPropertyCopier(getter, setter, outputGetter, nestedMapper);
+        }
+
+        if (!Collection.class.isAssignableFrom(inputPropertyClass)
+                || !Collection.class.isAssignableFrom(outputPropertyClass))
+            return null;
+
+        Class<?> inputElementClass = inputPropertyType.asCollection().resolveGeneric();
+        Class<?> outputElementClass = outputPropertyType.asCollection().resolveGeneric();
+
+        if (inputElementClass == null || outputElementClass == null
+                || !isBean(inputElementClass) || !isBean(outputElementClass))
+            return null;
+
+        CompiledInputMapper elementMapper = new CompiledInputMapper(inputElementClass, outputElementClass,
+                Map.of(), Set.of(), depth + 1);
+
+        return new CollectionPropertyCopier(getter, setter, outputGetter, outputPropertyClass, elementMapper);
+    }
+
+    private static boolean isBean(Class<?> type) {
+        return !ClassUtils.isPrimitiveOrWrapper(type)
+                && !type.isArray()
+                && !type.isEnum()
+                && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type)
+                && !type.getName().startsWith("java.");
+    }
+
+    private static Function<Object, Object> compileGetter(Method getter) {
+        Class<?> declaringType = getter.getDeclaringClass();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringType, MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(getter);
+
+            return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(getter.getReturnType()), declaringType))
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(String.format("Error compiling the getter %s", getter), e);
+        }
+    }
+
+    private static BiConsumer<Object, Object> compileSetter(Method setter) {
+        Class<?> declaringType = setter.getDeclaringClass();
+        Class<?> parameterType = setter.getParameterTypes()[0];
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringType, MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(setter);
+
+            return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, declaringType, ClassUtils.resolvePrimitiveIfNecessary(parameterType)))
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(String.format("Error compiling the setter %s", setter), e);
+        }
+    }
+
+    /*
+     * The entities may have a protected constructor, so it is called through a private lookup.
+     */
+    private static <O> Supplier<O> compileConstructor(Class<O> type) {
+        MethodHandle constructor;
+
+        try {
+            constructor = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .findConstructor(type, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            // Only the mappings to existing outputs are possible
+            return () -> {
+                throw new IllegalStateException(String.format(
+                        "%s has no constructor without parameters", type.getSimpleName()));
+            };
+        }
+
+        return () -> {
+            try {
+                return (O) constructor.invoke();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static class PropertyCopier {
+
+        protected final Function<Object, Object> getter;
+        protected final BiConsumer<Object, Object> setter;
+        private final boolean primitive;
+
+        private PropertyCopier(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                boolean primitive) {
+
+            this.getter = getter;
+            this.setter = setter;
+            this.primitive = primitive;
+        }
+
+        void copy(Object input, Object output) {
+            Object value = getter.apply(input);
+
+            if (!Hibernate.isInitialized(value) || (value == null && primitive))
+                return;
+
+            setter.accept(output, value);
+        }
+    }
+
+    /**
+     * Maps the value to the current value of the output property, when there is one, or to a new
+     * instance of the output property type.
+     */
+    private static final class NestedPropertyCopier extends PropertyCopier {
+
+        private final Function<Object, Object> outputGetter;
+        private final CompiledInputMapper nestedMapper;
+
+        private NestedPropertyCopier(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                Function<Object, Object> outputGetter, CompiledInputMapper nestedMapper) {
+
+            super(getter, setter, false);
+            this.outputGetter = outputGetter;
+            this.nestedMapper = nestedMapper;
+        }
+
+        @Override
+        void copy(Object input, Object output) {
+            Object value = getter.apply(input);
+
+            if (!Hibernate.isInitialized(value))
+                return;
+
+            if (value == null) {
+                setter.accept(output, null);
+                return;
+            }
+
+            Object current = outputGetter == null ? null : outputGetter.apply(output);
+
+            if (current == null)
+                setter.accept(output, nestedMapper.map(value));
+            else
+                nestedMapper.map(value, current);
+        }
+    }
+
+    /**
+     * Maps the elements of the value to the current collection of the output property, which is
+     * cleared first, when there is one, or to a new collection of the output property type. So
+     * the collections managed by Hibernate, like the ones with orphan removal, are kept.
+     */
+    private static final class CollectionPropertyCopier extends PropertyCopier {
+
+        private final Function<Object, Object> outputGetter;
+        private final Class<?> collectionType;
+        private final CompiledInputMapper elementMapper;
+
+        private CollectionPropertyCopier(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                Function<Object, Object> outputGetter, Class<?> collectionType, CompiledInputMapper elementMapper) {
+
+            super(getter, setter, false);
+            this.outputGetter = outputGetter;
+            this.collectionType = collectionType;
+            this.elementMapper = elementMapper;
+        }
+
+        @Override
+        void copy(Object input, Object output) {
+            Object value = getter.apply(input);
+
+            if (!Hibernate.isInitialized(value))
+                return;
+
+            if (value == null) {
+                setter.accept(output, null);
+                return;
+            }
+
+            Collection<?> elements = (Collection<?>) value;
+            Collection<Object> current = outputGetter == null ? null : (Collection<Object>) outputGetter.apply(output);
+
+            if (current == null) {
+                current = CollectionFactory.createCollection(collectionType, elements.size());
+                setter.accept(output, current);
+            } else {
+                current.clear();
+            }
+
+            for (Object element : elements)
+                current.add(element == null ? null : elementMapper.map(element));
+        }
+    }
+
+    public static final class Builder<I, O> {
+
+        private final Class<I> inputType;
+        private final Class<O> outputType;
+        private final Map<String, String> names = new HashMap<>();
+        private final Set<String> ignored = new HashSet<>();
+
+        private Builder(Class<I> inputType, Class<O> outputType) {
+            this.inputType = inputType;
+            this.outputType = outputType;
+        }
+
+        /**
+         * Copies the input property to the output property with a different name
+         */
+        public Builder<I, O> map(String inputProperty, String outputProperty) {
+            names.put(inputProperty, outputProperty);
+            return this;
+        }
+
+        /**
+         * Doesn't copy the input properties
+         */
+        public Builder<I, O> ignore(String... inputProperties) {
+            ignored.addAll(List.of(inputProperties));
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException If an input property is not ignored and can't be copied to the output
+         */
+        public CompiledInputMapper<I, O> build() {
+            return new CompiledInputMapper<>(inputType, outputType, Map.copyOf(names), Set.copyOf(ignored), 0);
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.alon.spring.crud.api.controller.output;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.proxy.HibernateProxyHelper;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import javax.persistence.Entity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Moves the expanded entities of the rows of a page to its included section, similar to the
+ * compound documents of JSON:API. Each expanded entity is included once, and the rows, and
+ * the other included entities, reference it by type and id.
+ *
+ * The rows are matched with the entities they were projected from by the names of the
+ * expanded properties, so the expanded entities of projections that rename them are not
+ * normalized. The included entities are keyed by their JPA entity name.
+ *
+ * The projected rows can't hold the references in place of their typed properties, so each
+ * row is converted to a JSON tree, and the trees are written by the message converter. This
+ * serializes the rows twice, once to the tree and once from it, so the normalized pages take
+ * more time and memory to write than the embedded ones.
+ */
+public final class IncludedNormalizer {
+
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+
+    private IncludedNormalizer() {}
+
+    /**
+     * @param entities The entities the content of the page was projected from, in the same order
+     * @return A new page with the content and the included entities normalized. The page is not changed.
+     */
+    public static OutputPage normalize(OutputPage<?> page, List<?> entities, Set<String> expand,
+            ObjectMapper objectMapper) {
+
+        Map<String, Map> expandTree = buildTree(expand);
+        Map<String, Map<String, Object>> included = new LinkedHashMap<>();
+        List<Object> content = new ArrayList<>(page.content.size());
+
+        for (int i = 0; i < page.content.size(); i++) {
+            JsonNode row = objectMapper.valueToTree(page.content.get(i));
+
+            if (i < entities.size())
+                normalizeProperties(row, entities.get(i), expandTree, included, objectMapper);
+
+            content.add(row);
+        }
+
+        if (page instanceof OutputSlice)
+            return OutputSlice.ofSlice()
+                    .page(page.page)
+                    .pageSize(page.pageSize)
+                    .hasNext(((OutputSlice<?>) page).hasNext)
+                    .nextCursor(page.nextCursor)
+                    .previousCursor(page.previousCursor)
+                    .content(content)
+                    .included(included)
+                    .build();
+
+        return OutputPage.of()
+                .page(page.page)
+                .pageSize(page.pageSize)
+                .totalPages(page.totalPages)
+                .totalSize(page.totalSize)
+                .content(content)
+                .included(included)
+                .build();
+    }
+
+    private static void normalizeProperties(JsonNode node, Object entity, Map<String, Map> expandTree,
+            Map<String, Map<String, Object>> included, ObjectMapper objectMapper) {
+
+        if (!node.isObject() || entity == null || expandTree.isEmpty())
+            return;
+
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+
+        for (Map.Entry<String, Map> property : expandTree.entrySet()) {
+            JsonNode propertyNode = node.get(property.getKey());
+
+            if (propertyNode == null || !wrapper.isReadableProperty(property.getKey()))
+                continue;
+
+            Object value = wrapper.getPropertyValue(property.getKey());
+
+            if (value instanceof Collection) {
+                if (propertyNode.isArray() && propertyNode.size() == ((Collection<?>) value).size())
+                    includeElements((ArrayNode) propertyNode, (Collection<?>) value, property.getValue(),
+                            included, objectMapper);
+            } else {
+                ((ObjectNode) node).set(property.getKey(),
+                        include(propertyNode, value, property.getValue(), included, objectMapper));
+            }
+        }
+    }
+
+    /*
+     * The collections are serialized in their iteration order, so the elements of the array
+     * are in the order of the elements of the collection.
+     */
+    private static void includeElements(ArrayNode array, Collection<?> values, Map<String, Map> expandTree,
+            Map<String, Map<String, Object>> included, ObjectMapper objectMapper) {
+
+        Iterator<?> iterator = values.iterator();
+
+        for (int i = 0; i < array.size(); i++)
+            array.set(i, include(array.get(i), iterator.next(), expandTree, included, objectMapper));
+    }
+
+    /**
+     * @return The reference to the included entity, or the node if the value is not an entity
+     */
+    private static JsonNode include(JsonNode node, Object value, Map<String, Map> expandTree,
+            Map<String, Map<String, Object>> included, ObjectMapper objectMapper) {
+
+        if (!node.isObject() || !(value instanceof BaseEntity) || ((BaseEntity<?>) value).getId() == null)
+            return node;
+
+        // The nested expanded entities are included first, so the included entity references them
+        normalizeProperties(node, value, expandTree, included, objectMapper);
+
+        Object id = ((BaseEntity<?>) value).getId();
+        String type = getEntityName(HibernateProxyHelper.getClassWithoutInitializingProxy(value));
+
+        included.computeIfAbsent(type, key -> new LinkedHashMap<>())
+                .putIfAbsent(String.valueOf(id), node);
+
+        ObjectNode reference = objectMapper.createObjectNode();
+        reference.put(TYPE, type);
+        reference.set(ID, objectMapper.valueToTree(id));
+
+        return reference;
+    }
+
+    private static String getEntityName(Class<?> type) {
+        Entity entity = type.getAnnotation(Entity.class);
+
+        return entity == null || entity.name().isEmpty() ? type.getSimpleName() : entity.name();
+    }
+
+    private static Map<String, Map> buildTree(Set<String> expand) {
+        Map<String, Map> tree = new TreeMap<>();
+
+        if (expand == null)
+            return tree;
+
+        for (String path : expand) {
+            Map<String, Map> node = tree;
+
+            for (String property : path.split("\\."))
+                node = node.computeIfAbsent(property, key -> new TreeMap<>());
+        }
+
+        return tree;
+    }
+
+}
@@ -1,12 +1,14 @@
 package com.alon.spring.crud.api.controller.output;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
 
 import com.alon.spring.crud.api.projection.Projector;
 import com.alon.spring.crud.domain.model.BaseEntity;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 public class OutputPage<O> {
     
@@ -15,6 +17,9 @@ public class OutputPage<O> {
     protected int pageSize;
     protected int totalPages;
     protected int totalSize;
+    protected String nextCursor;
+    protected String previousCursor;
+    protected Map<String, Map<String, Object>> included;
 
     public List<O> getContent() {
         return content;
@@ -35,6 +40,31 @@ public class OutputPage<O> {
     public int getTotalSize() {
         return totalSize;
     }
+
+    /**
+     * Only in the keyset pages, null when there is no next page
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Only in the keyset pages, null when there is no previous page
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * The expanded entities of a normalized page, by type and id. The rows reference them
+     * by type and id instead of embedding them.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, Map<String, Object>> getIncluded() {
+        return included;
+    }
     
     public static Builder of() {
         return new Builder();
@@ -52,6 +82,11 @@ public class OutputPage<O> {
             this.output.content = content;
             return this;
         }
+
+        public Builder included(Map<String, Map<String, Object>> included) {
+            this.output.included = included;
+            return this;
+        }
         
         public Builder page(int page) {
             this.output.page = page;
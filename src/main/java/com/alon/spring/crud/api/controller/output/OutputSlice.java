@@ -0,0 +1,78 @@
+package com.alon.spring.crud.api.controller.output;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OutputPage of a search executed without the count query. Instead of the
+ * totals, it informs if there is a next page.
+ */
+@JsonIgnoreProperties({ "totalPages", "totalSize" })
+public class OutputSlice<O> extends OutputPage<O> {
+
+    protected boolean hasNext;
+
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public static SliceBuilder ofSlice() {
+        return new SliceBuilder();
+    }
+
+    public static final class SliceBuilder<O> {
+
+        private OutputSlice output;
+
+        private SliceBuilder() {
+            this.output = new OutputSlice();
+            this.output.totalPages = -1;
+            this.output.totalSize = -1;
+        }
+
+        public SliceBuilder content(List<O> content) {
+            this.output.content = content;
+            return this;
+        }
+
+        public SliceBuilder included(Map<String, Map<String, Object>> included) {
+            this.output.included = included;
+            return this;
+        }
+
+        public SliceBuilder page(int page) {
+            this.output.page = page;
+            return this;
+        }
+
+        public SliceBuilder pageSize(int pageSize) {
+            this.output.pageSize = pageSize;
+            return this;
+        }
+
+        public SliceBuilder hasNext(boolean hasNext) {
+            this.output.hasNext = hasNext;
+            return this;
+        }
+
+        public SliceBuilder nextCursor(String nextCursor) {
+            this.output.nextCursor = nextCursor;
+            return this;
+        }
+
+        public SliceBuilder previousCursor(String previousCursor) {
+            this.output.previousCursor = previousCursor;
+            return this;
+        }
+
+        public OutputSlice build() {
+            return this.output;
+        }
+
+    }
+
+}
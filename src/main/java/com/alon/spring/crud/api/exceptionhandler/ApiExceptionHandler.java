@@ -4,6 +4,7 @@ import com.alon.spring.crud.api.exception.BeanValidationException;
 import com.alon.spring.crud.api.exceptionhandler.Problem.Violation;
 import com.alon.spring.crud.domain.service.exception.CrudException;
 import com.alon.spring.crud.domain.service.exception.DataIntegrityException;
+import com.alon.spring.crud.domain.service.exception.InvalidCursorException;
 import com.alon.spring.crud.domain.service.exception.ProjectionException;
 import com.fasterxml.jackson.databind.JsonMappingException.Reference;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
@@ -91,6 +92,16 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 		return handleExceptionInternal(ex, problem, new HttpHeaders(), status, request);
 	}
 
+	@ExceptionHandler(InvalidCursorException.class)
+	public ResponseEntity handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+		
+		HttpStatus status = HttpStatus.BAD_REQUEST;
+		
+		Problem problem = createProblemBuilder(status, ProblemType.INVALID_PARAMETER, ex.getMessage())
+				.build();
+		
+		return handleExceptionInternal(ex, problem, new HttpHeaders(), status, request);
+	}
 	
 	@ExceptionHandler(PropertyReferenceException.class)
 	public ResponseEntity handlePropertyReferenceException(PropertyReferenceException ex, HttpHeaders headers, WebRequest request) {
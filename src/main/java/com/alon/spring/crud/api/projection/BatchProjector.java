@@ -0,0 +1,26 @@
+package com.alon.spring.crud.api.projection;
+
+import java.util.List;
+
+import com.alon.spring.crud.domain.service.exception.ProjectionException;
+
+/**
+ * Projector of all the entities of a page or collection at once, so the data it needs
+ * besides the entities, like related counts, can be loaded with a single query.
+ *
+ * @param <I> Input data to be projected
+ * @param <O> Ouput projection
+ */
+public interface BatchProjector<I, O> extends Projector<I, O> {
+
+    /**
+     * @return The projections, in the order of the inputs
+     */
+    List<O> projectAll(List<I> inputs) throws ProjectionException;
+
+    @Override
+    default O project(I input) throws ProjectionException {
+        return projectAll(List.of(input)).get(0);
+    }
+
+}
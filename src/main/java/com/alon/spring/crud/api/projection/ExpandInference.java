@@ -0,0 +1,114 @@
+package com.alon.spring.crud.api.projection;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.lang.reflect.Field;
+import java.time.temporal.Temporal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+final class ExpandInference {
+
+    private ExpandInference() {}
+
+    /**
+     * Maps the fields of the output type, as modeled by the {@link RepresentationService}, to the
+     * associations of the input type. A field with the name of an association and whose type is a structure,
+     * like a DTO or the associated entity, reads the association, so it must be expanded.
+     *
+     * @return The minimal expand: the paths that are not the start of another inferred path
+     */
+    static Set<String> infer(Metamodel metamodel, RepresentationService representationService,
+            Class<?> inputType, Class<?> outputType) {
+
+        Set<String> expand = new LinkedHashSet<>();
+
+        infer(metamodel.managedType(inputType), representationService, outputType, "", expand, 0);
+
+        return minimize(expand);
+    }
+
+    /**
+     * @return The inferred paths that are not loaded by the declared expand
+     */
+    static Set<String> notCovered(Set<String> inferred, Set<String> declared) {
+        return inferred.stream()
+                .filter(path -> declared.stream()
+                        .noneMatch(declaredPath -> declaredPath.equals(path) || declaredPath.startsWith(path + ".")))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static void infer(ManagedType<?> inputType, RepresentationService representationService,
+            Class<?> outputType, String prefix, Set<String> expand, int depth) {
+
+        // Protects from cyclic DTOs
+        if (depth > 5)
+            return;
+
+        for (Field field : representationService.getFields(outputType)) {
+            Attribute<?, ?> attribute = findAttribute(inputType, field.getName());
+
+            if (attribute == null || !attribute.isAssociation())
+                continue;
+
+            Class<?> fieldType = representationService.getElementType(field);
+
+            if (fieldType == null || isValueType(fieldType))
+                continue;
+
+            String path = prefix + field.getName();
+            expand.add(path);
+
+            ManagedType<?> associatedType = getAssociatedType(attribute);
+
+            // A DTO of the association may read its own associations
+            if (associatedType != null && !fieldType.isAssignableFrom(associatedType.getJavaType()))
+                infer(associatedType, representationService, fieldType, path + ".", expand, depth + 1);
+        }
+    }
+
+    private static Set<String> minimize(Set<String> expand) {
+        Set<String> minimal = expand.stream()
+                .filter(path -> expand.stream().noneMatch(other -> other.startsWith(path + ".")))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return Collections.unmodifiableSet(minimal);
+    }
+
+    private static Attribute<?, ?> findAttribute(ManagedType<?> type, String name) {
+        try {
+            return type.getAttribute(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ManagedType<?> getAssociatedType(Attribute<?, ?> attribute) {
+        Type<?> type = attribute instanceof PluralAttribute
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+                : ((SingularAttribute<?, ?>) attribute).getType();
+
+        return type instanceof ManagedType ? (ManagedType<?>) type : null;
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive()
+                || type.isEnum()
+                || CharSequence.class.isAssignableFrom(type)
+                || Number.class.isAssignableFrom(type)
+                || Boolean.class.equals(type)
+                || Character.class.equals(type)
+                || Temporal.class.isAssignableFrom(type)
+                || Date.class.isAssignableFrom(type)
+                || UUID.class.equals(type);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Projects an entity to a map with only the requested fields. The dotted paths are written
+ * as nested maps: "owner.name" is written as {"owner": {"name": ...}}.
+ */
+final class FieldsProjector implements Projector<BaseEntity, Map<String, Object>> {
+
+    private final Map<String, Object> tree = new LinkedHashMap<>();
+
+    FieldsProjector(Collection<String> fields) {
+        fields.stream()
+                .sorted()
+                .forEach(this::addField);
+    }
+
+    @Override
+    public Map<String, Object> project(BaseEntity input) {
+        return project(input, tree);
+    }
+
+    private Map<String, Object> project(Object input, Map<String, Object> fields) {
+        // Read by the getters, so the lazy associations are initialized
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(input);
+        Map<String, Object> output = new LinkedHashMap<>();
+
+        fields.forEach((name, children) -> {
+            Object value = wrapper.getPropertyValue(name);
+
+            if (children != null && value != null)
+                value = project(value, (Map<String, Object>) children);
+
+            output.put(name, value);
+        });
+
+        return output;
+    }
+
+    private void addField(String field) {
+        Map<String, Object> node = tree;
+        String[] properties = field.split("\\.");
+
+        for (int i = 0; i < properties.length - 1; i++) {
+            Object child = node.get(properties[i]);
+
+            // A field without children was requested whole
+            if (node.containsKey(properties[i]) && child == null)
+                return;
+
+            if (child == null) {
+                child = new LinkedHashMap<String, Object>();
+                node.put(properties[i], child);
+            }
+
+            node = (Map<String, Object>) child;
+        }
+
+        node.put(properties[properties.length - 1], null);
+    }
+
+}
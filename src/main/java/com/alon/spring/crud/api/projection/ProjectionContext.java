@@ -0,0 +1,100 @@
+package com.alon.spring.crud.api.projection;
+
+import org.slf4j.MDC;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The thread bound context of the request that the parallel projections see in the threads of
+ * the projection pool: the request attributes, the locale, the MDC and the security context.
+ * Spring Security is not a dependency, so its context is only propagated when it is present.
+ */
+final class ProjectionContext {
+
+    private static final String SECURITY_CONTEXT_HOLDER = "org.springframework.security.core.context.SecurityContextHolder";
+    private static final String SECURITY_CONTEXT = "org.springframework.security.core.context.SecurityContext";
+
+    private static final Method GET_SECURITY_CONTEXT;
+    private static final Method SET_SECURITY_CONTEXT;
+    private static final Method CLEAR_SECURITY_CONTEXT;
+
+    static {
+        ClassLoader classLoader = ProjectionContext.class.getClassLoader();
+
+        if (ClassUtils.isPresent(SECURITY_CONTEXT_HOLDER, classLoader)) {
+            Class<?> holder = ClassUtils.resolveClassName(SECURITY_CONTEXT_HOLDER, classLoader);
+
+            GET_SECURITY_CONTEXT = ReflectionUtils.findMethod(holder, "getContext");
+            SET_SECURITY_CONTEXT = ReflectionUtils.findMethod(holder, "setContext",
+                    ClassUtils.resolveClassName(SECURITY_CONTEXT, classLoader));
+            CLEAR_SECURITY_CONTEXT = ReflectionUtils.findMethod(holder, "clearContext");
+        } else {
+            GET_SECURITY_CONTEXT = null;
+            SET_SECURITY_CONTEXT = null;
+            CLEAR_SECURITY_CONTEXT = null;
+        }
+    }
+
+    private final RequestAttributes requestAttributes;
+    private final LocaleContext localeContext;
+    private final Map<String, String> mdc;
+    private final Object securityContext;
+
+    private ProjectionContext() {
+        this.requestAttributes = RequestContextHolder.getRequestAttributes();
+        this.localeContext = LocaleContextHolder.getLocaleContext();
+        this.mdc = MDC.getCopyOfContextMap();
+        this.securityContext = GET_SECURITY_CONTEXT == null
+                ? null
+                : ReflectionUtils.invokeMethod(GET_SECURITY_CONTEXT, null);
+    }
+
+    /**
+     * @return The context of the current thread
+     */
+    static ProjectionContext capture() {
+        return new ProjectionContext();
+    }
+
+    /**
+     * Runs the supplier with the context bound to the current thread, restoring the previous
+     * context of the thread afterwards.
+     */
+    <T> T within(Supplier<T> supplier) {
+        ProjectionContext previous = capture();
+        apply();
+
+        try {
+            return supplier.get();
+        } finally {
+            previous.apply();
+        }
+    }
+
+    private void apply() {
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        LocaleContextHolder.setLocaleContext(localeContext);
+
+        if (mdc == null)
+            MDC.clear();
+        else
+            MDC.setContextMap(mdc);
+
+        if (SET_SECURITY_CONTEXT == null)
+            return;
+
+        if (securityContext == null)
+            ReflectionUtils.invokeMethod(CLEAR_SECURITY_CONTEXT, null);
+        else
+            ReflectionUtils.invokeMethod(SET_SECURITY_CONTEXT, null, securityContext);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.hibernate.proxy.HibernateProxyHelper;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Projections of related entities shared by the rows of a page or collection, so each one is
+ * projected once. The scope is a single projection of a page or collection by the
+ * {@link ProjectionService}; outside of it, the projections are not memoized.
+ *
+ * The projectors opt in for their nested types:
+ *
+ * <pre>
+ * output.setCustomer(ProjectionMemo.project("customer", order.getCustomer(), customerProjector::project));
+ * </pre>
+ */
+public final class ProjectionMemo {
+
+    private static final ThreadLocal<ProjectionMemo> CURRENT = new ThreadLocal<>();
+
+    private final Map<Object, Object> projections = new ConcurrentHashMap<>();
+
+    private ProjectionMemo() {}
+
+    static ProjectionMemo create() {
+        return new ProjectionMemo();
+    }
+
+    static ProjectionMemo current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the supplier with the memo as the current one of the thread. The parallel projections
+     * run their chunks within the memo of the projection.
+     */
+    static <T> T within(ProjectionMemo memo, Supplier<T> supplier) {
+        ProjectionMemo previous = CURRENT.get();
+        CURRENT.set(memo);
+
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Projects the input once per page. Entities are identified by their type and id, other
+     * inputs by identity. The name identifies the projection of the input, so the same entity
+     * can have different projections in a page.
+     *
+     * @return The projection of the input, or null if the input is null
+     */
+    public static <I, O> O project(String name, I input, Function<? super I, ? extends O> projector) {
+        if (input == null)
+            return null;
+
+        ProjectionMemo memo = CURRENT.get();
+
+        if (memo == null)
+            return projector.apply(input);
+
+        return memo.memoize(name, input, projector);
+    }
+
+    /*
+     * Not computeIfAbsent, since the projector may memoize the projections of its own nested types.
+     */
+    private <I, O> O memoize(String name, I input, Function<? super I, ? extends O> projector) {
+        Object key = buildKey(name, input);
+        Object projection = projections.get(key);
+
+        if (projection != null)
+            return (O) projection;
+
+        O output = projector.apply(input);
+
+        if (output == null)
+            return null;
+
+        Object previous = projections.putIfAbsent(key, output);
+
+        return previous != null ? (O) previous : output;
+    }
+
+    private Object buildKey(String name, Object input) {
+        if (input instanceof BaseEntity && ((BaseEntity) input).getId() != null)
+            return new EntityKey(name, HibernateProxyHelper.getClassWithoutInitializingProxy(input),
+                    ((BaseEntity) input).getId());
+
+        return new IdentityKey(name, input);
+    }
+
+    int size() {
+        return projections.size();
+    }
+
+    private static final class EntityKey {
+
+        private final String name;
+        private final Class<?> type;
+        private final Object id;
+
+        private EntityKey(String name, Class<?> type, Object id) {
+            this.name = name;
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof EntityKey))
+                return false;
+
+            EntityKey key = (EntityKey) other;
+
+            return Objects.equals(name, key.name) && type.equals(key.type) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, type, id);
+        }
+    }
+
+    private static final class IdentityKey {
+
+        private final String name;
+        private final Object input;
+
+        private IdentityKey(String name, Object input) {
+            this.name = name;
+            this.input = input;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof IdentityKey))
+                return false;
+
+            IdentityKey key = (IdentityKey) other;
+
+            return Objects.equals(name, key.name) && input == key.input;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(name) + System.identityHashCode(input);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.alon.spring.crud.api.projection;
+
+import org.springframework.core.ResolvableType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The projectors by name, with their input and output types, required expand and
+ * representation resolved once, when the registry is built.
+ *
+ * The registry is immutable. The only lazily filled map is the one of projectors by entity
+ * type, a concurrent map that is read without locks once the entity type was looked up.
+ */
+public final class ProjectionRegistry {
+
+    private final Map<String, Entry> entries;
+
+    private final Map<Class<?>, List<Entry>> entriesByEntityType = new ConcurrentHashMap<>();
+
+    private ProjectionRegistry(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static ProjectionRegistry of(Map<String, ? extends Projector> projectors,
+            RepresentationService representationService) {
+
+        Map<String, Entry> entries = projectors.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                        entry -> new Entry(entry.getKey(), entry.getValue(), representationService)));
+
+        return new ProjectionRegistry(entries);
+    }
+
+    /**
+     * @return The entry of the projection or null if it doesn't exist
+     */
+    public Entry get(String projectionName) {
+        return entries.get(projectionName);
+    }
+
+    public boolean contains(String projectionName) {
+        return entries.containsKey(projectionName);
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @return The projections whose input type is assignable from the entity type
+     */
+    public List<Entry> getEntityProjections(Class<?> entityType) {
+        return entriesByEntityType.computeIfAbsent(entityType, this::resolveEntityProjections);
+    }
+
+    private List<Entry> resolveEntityProjections(Class<?> entityType) {
+        return entries.values().stream()
+                .filter(entry -> entry.inputType != null && entry.inputType.isAssignableFrom(entityType))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    public static final class Entry {
+
+        private final String projectionName;
+        private final Projector projector;
+        private final Class<?> inputType;
+        private final Class<?> outputType;
+        private final Set<String> requiredExpand;
+        private final Map<String, Object> representation;
+        private final RuntimeException representationError;
+
+        private Entry(String projectionName, Projector projector, RepresentationService representationService) {
+            this.projectionName = projectionName;
+            this.projector = projector;
+
+            // Resolved through the sub-interfaces too, like BatchProjector and StreamingProjector
+            ResolvableType projectorType = ResolvableType.forClass(projector.getClass()).as(Projector.class);
+
+            // The type arguments are not resolved when the projector declares them as type variables
+            this.inputType = projectorType.getGeneric(0).resolve();
+            this.outputType = projectorType.getGeneric(1).resolve();
+
+            Set<String> requiredExpand = projector.requiredExpand();
+            this.requiredExpand = requiredExpand == null ? Collections.emptySet() : Set.copyOf(requiredExpand);
+
+            Map<String, Object> representation = null;
+            RuntimeException representationError = null;
+
+            // A representation error is only thrown when the representation is requested
+            try {
+                if (outputType != null)
+                    representation = representationService.getRepresentationOf(outputType);
+            } catch (RuntimeException e) {
+                representationError = e;
+            }
+
+            this.representation = representation;
+            this.representationError = representationError;
+        }
+
+        public String getProjectionName() {
+            return projectionName;
+        }
+
+        public Projector getProjector() {
+            return projector;
+        }
+
+        public Class<?> getInputType() {
+            return inputType;
+        }
+
+        public Class<?> getOutputType() {
+            return outputType;
+        }
+
+        public Set<String> getRequiredExpand() {
+            return requiredExpand;
+        }
+
+        public Map<String, Object> getRepresentation() {
+            if (representationError != null)
+                throw representationError;
+
+            return representation;
+        }
+    }
+
+}
@@ -1,17 +1,33 @@
 package com.alon.spring.crud.api.projection;
 
 import com.alon.spring.crud.api.controller.output.OutputPage;
+import com.alon.spring.crud.api.controller.output.OutputSlice;
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.properties.Properties;
 import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.service.KeysetPage;
+import com.alon.spring.crud.domain.service.UncountedPage;
 import com.alon.spring.crud.domain.service.exception.ProjectionException;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Metamodel;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -26,26 +42,49 @@ public class ProjectionService {
     
     private RepresentationService representationService;
     
-    private final Map<String, Projector> projections;
-    
-    private final Map<Class, List<ProjectionRepresentation>> representationsCache = new HashMap<>();
+    private final ProjectionRegistry registry;
+
+    private final Map<String, Set<String>> sourceAttributesCache = new ConcurrentHashMap<>();
+
+    private final Map<String, ProjectionStats> stats = new ConcurrentHashMap<>();
+
+    private final int parallelism;
+
+    private final boolean inferExpand;
+
+    private Map<String, Set<String>> inferredExpand = Collections.emptyMap();
+
+    private ForkJoinPool parallelPool;
     
-    public ProjectionService(ApplicationContext applicationContext, RepresentationService representationService) {
+    public ProjectionService(ApplicationContext applicationContext, RepresentationService representationService,
+            Properties properties) {
         this.applicationContext = applicationContext;
         this.representationService = representationService;
-        this.projections = this.applicationContext.getBeansOfType(Projector.class);
+        this.parallelism = Math.max(1, properties.projection.parallelism);
+        this.inferExpand = properties.projection.inferExpand;
+        this.registry = ProjectionRegistry.of(
+                this.applicationContext.getBeansOfType(Projector.class), representationService);
     }
 
     public <I extends BaseEntity, O> O project(String projectionName, I input) {
         if (projectionName == null || projectionName.equals(NOP_PROJECTION))
             return (O) input;
 
+        long start = System.nanoTime();
+
         try {
             Projector projector = getProjector(projectionName);
-            return (O) projector.project(input);
+            O output = (O) projector.project(input);
+
+            CrudInstrumentation.get().recordProjection(projectionName, 1, System.nanoTime() - start, null);
+
+            return output;
         } catch (ProjectionException e) {
+            CrudInstrumentation.get().recordProjection(projectionName, 1, System.nanoTime() - start, e);
             throw e;
         } catch (Exception e) {
+            CrudInstrumentation.get().recordProjection(projectionName, 1, System.nanoTime() - start, e);
+
             String message = String.format(
                     "Error projecting entity %s with projector '%s'", 
                     input.getClass().getSimpleName(), 
@@ -61,10 +100,9 @@ public class ProjectionService {
             return (Collection<O>) input;
 
         try {
-            Projector<I, O> projector = getProjector(projectionName);
+            List<O> output = projectAll(projectionName, getProjector(projectionName), new ArrayList<>(input));
 
-            return input.stream()
-                    .map(projector::project)
+            return output.stream()
                     .collect(Collectors.toCollection(getCollectionFactory(input.getClass())));
         } catch (ProjectionException e) {
             throw e;
@@ -81,25 +119,10 @@ public class ProjectionService {
 
     public <I extends BaseEntity, O> OutputPage<O> project(String projectionName, Page<I> input) {
         try {
-            List content = input.getContent();
-
-            if (projectionName == null || projectionName.equals(NOP_PROJECTION)) {
-                content = input.getContent();
-            } else {
-                Projector<I, O> projector = getProjector(projectionName);
+            if (projectionName == null || projectionName.equals(NOP_PROJECTION))
+                return projectPage(null, null, input);
 
-                content = input.getContent().stream()
-                        .map(projector::project)
-                        .collect(Collectors.toList());
-            }
-
-            return OutputPage.of()
-                    .page(input.getNumber())
-                    .pageSize(input.getNumberOfElements())
-                    .totalPages(input.getTotalPages())
-                    .totalSize(Long.valueOf(input.getTotalElements()).intValue())
-                    .content(content)
-                    .build();
+            return projectPage(projectionName, getProjector(projectionName), input);
         } catch (ProjectionException e) {
             throw e;
         } catch (Exception e) {
@@ -111,98 +134,446 @@ public class ProjectionService {
             throw new ProjectionException(message, e);
         }
     }
-    
+
+    /**
+     * When the fields are not null, projects the entity to a map with only these fields.
+     * Otherwise, projects it with the projection.
+     */
+    public <I extends BaseEntity, O> O project(String projectionName, Set<String> fields, I input) {
+        if (fields == null)
+            return project(projectionName, input);
+
+        return (O) new FieldsProjector(fields).project(input);
+    }
+
+    /**
+     * When the fields are not null, projects the entities to maps with only these fields.
+     * Otherwise, projects them with the projection.
+     */
+    public <I extends BaseEntity, O> Collection<O> project(String projectionName, Set<String> fields, Collection<I> input) {
+        if (fields == null)
+            return project(projectionName, input);
+
+        FieldsProjector projector = new FieldsProjector(fields);
+
+        return input.stream()
+                .map(projector::project)
+                .map(output -> (O) output)
+                .collect(Collectors.toCollection(getCollectionFactory(input.getClass())));
+    }
+
+    /**
+     * When the fields are not null, projects the entities of the page to maps with only these
+     * fields. Otherwise, projects them with the projection.
+     */
+    public <I extends BaseEntity, O> OutputPage<O> project(String projectionName, Set<String> fields, Page<I> input) {
+        if (fields == null)
+            return project(projectionName, input);
+
+        return projectPage(null, new FieldsProjector(fields), input);
+    }
+
+    /**
+     * @return True if the projection is written directly to the response by a streaming projector
+     */
+    public boolean isStreaming(String projectionName) {
+        if (projectionName == null || projectionName.equals(NOP_PROJECTION))
+            return false;
+
+        ProjectionRegistry.Entry entry = registry.get(projectionName);
+
+        return entry != null && entry.getProjector() instanceof StreamingProjector;
+    }
+
+    /**
+     * Wraps the entity to be written by the streaming projector when the response is serialized.
+     */
+    public <I extends BaseEntity> StreamingProjection stream(String projectionName, I input) {
+        return new StreamingProjection(projectionName, getStreamingProjector(projectionName), input);
+    }
+
+    /**
+     * Wraps the entities to be written by the streaming projector when the response is serialized.
+     */
+    public <I extends BaseEntity> Collection<StreamingProjection> stream(String projectionName, Collection<I> input) {
+        StreamingProjector projector = getStreamingProjector(projectionName);
+
+        return input.stream()
+                .map(entity -> new StreamingProjection(projectionName, projector, entity))
+                .collect(Collectors.toCollection(getCollectionFactory(input.getClass())));
+    }
+
+    /**
+     * Wraps the entities of the page to be written by the streaming projector when the
+     * response is serialized.
+     */
+    public <I extends BaseEntity> OutputPage<StreamingProjection> stream(String projectionName, Page<I> input) {
+        StreamingProjector projector = getStreamingProjector(projectionName);
+
+        return projectPage(null, entity -> new StreamingProjection(projectionName, projector, entity), input);
+    }
+
     public Set<String> getRequiredExpand(String projectionName) {
-        Projector projector = getProjector(projectionName);
-        return projector.requiredExpand();
+        ProjectionRegistry.Entry entry = registry.get(projectionName);
+
+        if (entry == null)
+            throw new ProjectionException(String.format(
+                    "Projection '%s' not found", projectionName));
+
+        return entry.getRequiredExpand();
     }
     
+    /**
+     * @return The associations read by the output type of the projection and not loaded by its
+     * required expand, or an empty set if the inference is disabled
+     */
+    public Set<String> getInferredExpand(String projectionName) {
+        if (!inferExpand)
+            return Collections.emptySet();
+
+        return inferredExpand.getOrDefault(projectionName, Collections.emptySet());
+    }
+
+    /**
+     * @return The attributes read by the projection, or an empty set if the whole entity must be loaded
+     */
+    public Set<String> getSourceAttributes(String projectionName, Class<? extends BaseEntity> entityType) {
+        if (projectionName == null || projectionName.equals(NOP_PROJECTION))
+            return Collections.emptySet();
+
+        ProjectionRegistry.Entry entry = registry.get(projectionName);
+
+        if (entry == null)
+            return Collections.emptySet();
+
+        return sourceAttributesCache.computeIfAbsent(projectionName + ":" + entityType.getName(),
+                key -> resolveSourceAttributes(entry, entityType));
+    }
+
+    /**
+     * @return The stats of the pages and collections projected by the projection, or null if
+     * it didn't project any yet
+     */
+    public ProjectionStats getStats(String projectionName) {
+        return stats.get(projectionName);
+    }
+
     public boolean projectionExists(String projectionName) {
-        return projections.containsKey(projectionName);
+        return registry.contains(projectionName);
     }
     
+    /**
+     * The representations are new instances on each call, since the default projections
+     * depend on the controller.
+     */
     public List<ProjectionRepresentation> getEntityRepresentations(Class<? extends BaseEntity> clazz,
             Supplier<String> singleDefaultProjectionSupplier, Supplier<String> collectionDefaultProjectionSupplier) {
 
-        if (representationsCache.containsKey(clazz))
-            return representationsCache.get(clazz);
-        
-        Map<String, Projector> projections = getEntityProjections(clazz);
+        String singleDefaultProjection = singleDefaultProjectionSupplier.get();
+        String collectionDefaultProjection = collectionDefaultProjectionSupplier.get();
+
+        return registry.getEntityProjections(clazz).stream()
+                .map(entry -> {
+                    ProjectionRepresentation representation =
+                            new ProjectionRepresentation(entry.getProjectionName(), entry.getRepresentation());
 
-        List<ProjectionRepresentation> representations = projections.entrySet().stream()
-                .map(this::getProjectionRepresentation)
-                .peek(representation -> resolveDefaultRepresentation(representation,
-                        singleDefaultProjectionSupplier, collectionDefaultProjectionSupplier))
+                    representation.setSingleDefault(singleDefaultProjection.equals(entry.getProjectionName()));
+                    representation.setCollectionDefault(collectionDefaultProjection.equals(entry.getProjectionName()));
+
+                    return representation;
+                })
                 .collect(Collectors.toList());
+    }
+
+    /**
+     * @param projectionName The name of the projector whose stats are recorded, or null to not record them
+     */
+    private <I extends BaseEntity, O> OutputPage<O> projectPage(String projectionName, Projector projector,
+            Page<I> input) {
+        List content = input.getContent();
+
+        if (projector != null)
+            content = projectAll(projectionName, projector, input.getContent());
+
+        if (input instanceof UncountedPage)
+            return projectUncounted((UncountedPage<I>) input, content);
 
-        representationsCache.put(clazz, representations);
-        
-        return representations;
+        return OutputPage.of()
+                .page(input.getNumber())
+                .pageSize(input.getNumberOfElements())
+                .totalPages(input.getTotalPages())
+                .totalSize(Long.valueOf(input.getTotalElements()).intValue())
+                .content(content)
+                .build();
     }
 
-    private void resolveDefaultRepresentation(ProjectionRepresentation representation,
-            Supplier<String> singleDefaultProjectionSupplier, Supplier<String> collectionDefaultProjectionSupplier) {
+    /**
+     * The batch projectors receive all the inputs at once, the others project them one by one,
+     * in parallel when there are at least as many inputs as the parallel threshold and the
+     * paths expanded for the projection are loaded in all of them. The inputs are projected
+     * within a new memo, shared by all of them.
+     */
+    private List projectAll(String projectionName, Projector projector, List input) {
+        long start = System.nanoTime();
+        int threshold = projector.parallelThreshold();
+        boolean parallel = !(projector instanceof BatchProjector) && threshold > 0 && input.size() >= threshold
+                && isInitialized(input, getProjectionExpand(projectionName));
 
-        String singleDefaultProjection = singleDefaultProjectionSupplier.get();
-        String collectionDefaultProjection = collectionDefaultProjectionSupplier.get();
+        ProjectionMemo memo = ProjectionMemo.create();
 
-        if (singleDefaultProjection.equals(representation.projectionName))
-            representation.setSingleDefault(true);
+        List output;
+
+        try {
+            output = ProjectionMemo.within(memo, () -> {
+                if (projector instanceof BatchProjector)
+                    return projectBatch((BatchProjector) projector, input);
 
-        if (collectionDefaultProjection.equals(representation.projectionName))
-            representation.setCollectionDefault(true);
+                if (parallel)
+                    return projectParallel(projector, input, memo);
+
+                return projectSequential(projector, input);
+            });
+        } catch (RuntimeException e) {
+            if (projectionName != null)
+                CrudInstrumentation.get().recordProjection(projectionName, input.size(), System.nanoTime() - start, e);
+
+            throw e;
+        }
+
+        if (projectionName != null) {
+            long nanos = System.nanoTime() - start;
+
+            stats.computeIfAbsent(projectionName, name -> new ProjectionStats()).record(nanos, parallel);
+            CrudInstrumentation.get().recordProjection(projectionName, input.size(), nanos, null);
+        }
+
+        return output;
     }
 
-    private Projector getProjector(String projectionName) {
-        Projector projector = projections.get(projectionName);
+    private List projectBatch(BatchProjector projector, List input) {
+        List output = projector.projectAll(input);
 
-        if (projector == null)
+        if (output == null || output.size() != input.size())
             throw new ProjectionException(String.format(
-                    "Projection '%s' not found", projectionName));
+                    "Batch projector returned %s projections for %d inputs",
+                    output == null ? "no" : String.valueOf(output.size()), input.size()));
 
-        return projector;
+        return output;
     }
 
-    private Map<String, Projector> getEntityProjections(Class<? extends BaseEntity> entityType) {
-        return projections.keySet().stream()
-                .filter(key -> projectorInputTypeIsTheExpected(key, entityType))
-                .collect(Collectors.toMap(projectionName -> projectionName, projections::get));
+    private List projectSequential(Projector projector, List input) {
+        return (List) input.stream()
+                .map(projector::project)
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * The inputs are split in one chunk per thread of the pool. The chunks are completed with
+     * CompletableFuture, which keeps the exception thrown by the projector, while the fork join
+     * tasks may rethrow a copy of it. The chunks run within the context of the request thread.
+     */
+    private List projectParallel(Projector projector, List input, ProjectionMemo memo) {
+        ForkJoinPool pool = getParallelPool();
+        ProjectionContext context = ProjectionContext.capture();
+        int chunkSize = (input.size() + parallelism - 1) / parallelism;
+
+        List<CompletableFuture<List>> chunks = new ArrayList<>();
+
+        for (int from = 0; from < input.size(); from += chunkSize) {
+            List chunk = input.subList(from, Math.min(from + chunkSize, input.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> context.within(
+                    () -> ProjectionMemo.within(memo, () -> projectSequential(projector, chunk))), pool));
+        }
+
+        List output = new ArrayList(input.size());
+
+        try {
+            for (CompletableFuture<List> chunk : chunks)
+                output.addAll(chunk.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw e;
+        }
+
+        return output;
     }
 
-    private ProjectionRepresentation getProjectionRepresentation(Map.Entry<String, Projector> entry) {
-        Class projectionOutput = getProjectorOutputType(entry.getValue());
-        Map<String, Object> representation = representationService.getRepresentationOf(projectionOutput);
-        return new ProjectionRepresentation(entry.getKey(), representation);
+    private Set<String> getProjectionExpand(String projectionName) {
+        ProjectionRegistry.Entry entry = projectionName == null ? null : registry.get(projectionName);
+
+        if (entry == null)
+            return Collections.emptySet();
+
+        Set<String> expand = new HashSet<>(entry.getRequiredExpand());
+        expand.addAll(getInferredExpand(projectionName));
+
+        return expand;
     }
 
-    private boolean projectorInputTypeIsTheExpected(String projectionName, Class<? extends BaseEntity> expectedInputType) {
-        Projector projector = projections.get(projectionName);
-        Type inputType = getProjectorInputType(projector);
-        
-        if (!(inputType instanceof Class)) // A classe pode usar generics e aqui seria um TypeVariableImpl ao invés de Class
+    /*
+     * The projection threads can't load the lazy proxies and collections, since the
+     * persistence context of the request is not thread safe. So the inputs are projected in
+     * parallel only if they and all the values of the expanded paths were already loaded.
+     */
+    private boolean isInitialized(List input, Set<String> expand) {
+        for (Object entity : input) {
+            if (!Hibernate.isInitialized(entity))
+                return false;
+
+            for (String path : expand) {
+                if (!isInitialized(entity, path.split("\\."), 0))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isInitialized(Object value, String[] path, int index) {
+        if (value == null)
+            return true;
+
+        if (!Hibernate.isInitialized(value))
             return false;
-        
-        return ((Class) inputType).isAssignableFrom(expectedInputType);
+
+        if (value instanceof Collection) {
+            for (Object element : (Collection) value) {
+                if (!isInitialized(element, path, index))
+                    return false;
+            }
+
+            return true;
+        }
+
+        if (index == path.length)
+            return true;
+
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(value);
+
+        if (!wrapper.isReadableProperty(path[index]))
+            return false;
+
+        return isInitialized(wrapper.getPropertyValue(path[index]), path, index + 1);
     }
-    
-    private Type getProjectorInputType(Projector projector) {
-        ParameterizedType projectorType = getProjectorParameterizedType(projector);
-        return projectorType.getActualTypeArguments()[0];
+
+    private synchronized ForkJoinPool getParallelPool() {
+        if (parallelPool == null)
+            parallelPool = new ForkJoinPool(parallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("projection-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+        return parallelPool;
     }
-    
-    private Class getProjectorOutputType(Projector projector) {
-        ParameterizedType projectorType = getProjectorParameterizedType(projector);
-        return (Class) projectorType.getActualTypeArguments()[1];
+
+    @PreDestroy
+    synchronized void shutdownParallelPool() {
+        if (parallelPool != null)
+            parallelPool.shutdown();
     }
-    
-    private ParameterizedType getProjectorParameterizedType(Projector projector) {
-        Optional<Type> projectorTypeOpt = List.of(projector.getClass().getGenericInterfaces())
-                .stream()
-                .filter(type -> type instanceof ParameterizedType)
-                .filter(type -> ((ParameterizedType) type).getRawType().equals(Projector.class))
-                .findFirst();
-        
-        return (ParameterizedType) projectorTypeOpt.get();
+
+    private <I extends BaseEntity> OutputPage projectUncounted(UncountedPage<I> input, List content) {
+        OutputSlice.SliceBuilder builder = OutputSlice.ofSlice()
+                .page(input.getNumber())
+                .pageSize(input.getNumberOfElements())
+                .hasNext(input.hasNext())
+                .content(content);
+
+        if (input instanceof KeysetPage)
+            builder.nextCursor(((KeysetPage) input).getNextCursor())
+                    .previousCursor(((KeysetPage) input).getPreviousCursor());
+
+        return builder.build();
+    }
+
+    /*
+     * Compares the output types of the projections with the metamodel of their input types, so
+     * the associations read by the projections are known before the first request.
+     */
+    @PostConstruct
+    void inferExpand() {
+        EntityManagerFactory entityManagerFactory =
+                applicationContext.getBeanProvider(EntityManagerFactory.class).getIfAvailable();
+
+        if (entityManagerFactory == null)
+            return;
+
+        Metamodel metamodel = entityManagerFactory.getMetamodel();
+        Map<String, Set<String>> inferredExpand = new HashMap<>();
+
+        for (ProjectionRegistry.Entry entry : registry.getEntries()) {
+            if (entry.getInputType() == null || entry.getOutputType() == null
+                    || !isManaged(metamodel, entry.getInputType()))
+                continue;
+
+            // The searches select the source attributes, reading the to-one associations from the
+            // selected tuples, and an expand would load the whole entities instead
+            if (!resolveSourceAttributes(entry, (Class<? extends BaseEntity>) entry.getInputType()).isEmpty())
+                continue;
+
+            Set<String> missing = ExpandInference.notCovered(
+                    ExpandInference.infer(metamodel, representationService, entry.getInputType(), entry.getOutputType()),
+                    entry.getRequiredExpand());
+
+            if (missing.isEmpty())
+                continue;
+
+            inferredExpand.put(entry.getProjectionName(), Set.copyOf(missing));
+
+            if (inferExpand)
+                LOGGER.info("Projection '{}' reads {}, not in its required expand. "
+                        + "They are expanded automatically.", entry.getProjectionName(), missing);
+            else
+                LOGGER.warn("Projection '{}' reads {}, not in its required expand. "
+                        + "They will be loaded one entity at a time (N+1 queries). Add them to its required "
+                        + "expand or enable com.alon.projection.infer-expand.", entry.getProjectionName(), missing);
+        }
+
+        this.inferredExpand = Map.copyOf(inferredExpand);
+    }
+
+    private boolean isManaged(Metamodel metamodel, Class<?> type) {
+        try {
+            metamodel.managedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Set<String> resolveSourceAttributes(ProjectionRegistry.Entry entry, Class<? extends BaseEntity> entityType) {
+        Projector projector = entry.getProjector();
+        Set<String> sourceAttributes = projector.sourceAttributes();
+
+        if (!sourceAttributes.isEmpty() || !projector.inferSourceAttributes() || entry.getOutputType() == null)
+            return sourceAttributes;
+
+        Metamodel metamodel = applicationContext.getBean(EntityManagerFactory.class).getMetamodel();
+
+        return SourceAttributes.infer(metamodel, representationService, entityType, entry.getOutputType());
+    }
+
+    private Projector getProjector(String projectionName) {
+        ProjectionRegistry.Entry entry = registry.get(projectionName);
+
+        if (entry == null)
+            throw new ProjectionException(String.format(
+                    "Projection '%s' not found", projectionName));
+
+        return entry.getProjector();
+    }
+
+    private StreamingProjector getStreamingProjector(String projectionName) {
+        Projector projector = getProjector(projectionName);
+
+        if (!(projector instanceof StreamingProjector))
+            throw new ProjectionException(String.format(
+                    "Projection '%s' is not a streaming projection", projectionName));
+
+        return (StreamingProjector) projector;
     }
 
     private final String extractCollectionElementsType(Collection collection) {
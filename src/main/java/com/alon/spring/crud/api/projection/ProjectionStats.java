@@ -0,0 +1,42 @@
+package com.alon.spring.crud.api.projection;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number and duration of the projections of pages and collections by a projector.
+ */
+public final class ProjectionStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder parallelCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    void record(long nanos, boolean parallel) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+
+        if (parallel)
+            parallelCount.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getParallelCount() {
+        return parallelCount.sum();
+    }
+
+    public Duration getTotalTime() {
+        return Duration.ofNanos(totalNanos.sum());
+    }
+
+    public Duration getMaxTime() {
+        return Duration.ofNanos(maxNanos.get());
+    }
+
+}
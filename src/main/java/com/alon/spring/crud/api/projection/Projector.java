@@ -18,5 +18,38 @@ public interface Projector<I, O> {
     default Set<String> requiredExpand() {
         return Collections.emptySet();
     }
+
+    /**
+     * The attributes of the input read by the projector, including paths through to-one
+     * associations, like "owner.name". When not empty, the searches select only these
+     * attributes and the projector receives a detached entity with only them and the ids set.
+     * The searches with an expand, including the required expand, load the whole entities. The
+     * expand is not inferred for the projections with source attributes, since they read the
+     * to-one associations from the selected attributes.
+     */
+    default Set<String> sourceAttributes() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * When true and no source attributes are declared, they are inferred from the fields of
+     * the output type that have the name of an input attribute. Nothing is inferred if any
+     * output field is not an input attribute or is a collection.
+     */
+    default boolean inferSourceAttributes() {
+        return false;
+    }
+
+    /**
+     * Minimum number of inputs of a page or collection to project them in parallel, on the
+     * projection pool. Zero, the default, never projects in parallel. Opt in only for projectors
+     * that read the initialized state of the inputs and never load a lazy association, since the
+     * persistence context is not thread safe: the inputs are projected sequentially when the
+     * required or inferred expand is not loaded in all of them. The projection threads see the
+     * request attributes, locale, MDC and security context of the request thread.
+     */
+    default int parallelThreshold() {
+        return 0;
+    }
     
 }
@@ -3,6 +3,7 @@ package com.alon.spring.crud.api.projection;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
@@ -29,14 +30,19 @@ public class RepresentationService {
             Boolean.class, boolean.class,
             Byte.class, byte.class);
 
-    private List<RepresentationTypeMapper> typeMappers;
+    private final Map<Class, RepresentationTypeMapper> typeMappers;
 
     public RepresentationService(List<RepresentationTypeMapper> typeMappers) {
-        this.typeMappers = typeMappers;
+        Map<Class, RepresentationTypeMapper> typeMappersByType = new HashMap<>();
+
+        // The first mapper of each type wins, as in the order of the list
+        typeMappers.forEach(mapper -> typeMappersByType.putIfAbsent(mapper.getMappedType(), mapper));
+
+        this.typeMappers = Map.copyOf(typeMappersByType);
     }
 
     public Map<String, Object> getRepresentationOf(Class clazz) {
-        List<Field> fields = List.of(clazz.getDeclaredFields());
+        List<Field> fields = getFields(clazz);
 
         List<Type> parents = new ArrayList<>();
         parents.add(clazz);
@@ -69,9 +75,9 @@ public class RepresentationService {
         List<Field> fields;
 
         if (isArray(field))
-            fields = List.of(field.getType().getComponentType().getDeclaredFields());
+            fields = getFields(field.getType().getComponentType());
         else
-            fields = List.of(field.getType().getDeclaredFields());
+            fields = getFields(field.getType());
 
         return Map.of(getTypeName(field.getType()), mapFields(fields, parents));
 
@@ -88,11 +94,50 @@ public class RepresentationService {
 
         parents.add(collectionItemsType);
 
-        List<Field> fields = List.of(collectionItemsType.getDeclaredFields());
+        List<Field> fields = getFields(collectionItemsType);
 
         return Map.of(getTypeName(collectionItemsType), mapFields(fields, parents));
     }
 
+    /**
+     * The fields of a type in its representation: the instance fields declared by the type and
+     * by its superclasses. A field hidden by a field of a subclass is not represented.
+     */
+    List<Field> getFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || !names.add(field.getName()))
+                    continue;
+
+                fields.add(field);
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * @return The type of the field or of its elements, if it is an array or collection, or null
+     * if the type of the elements is not declared
+     */
+    Class<?> getElementType(Field field) {
+        if (isArray(field))
+            return field.getType().getComponentType();
+
+        if (!isCollection(field))
+            return field.getType();
+
+        if (!(field.getGenericType() instanceof ParameterizedType))
+            return null;
+
+        Type elementType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+
+        return elementType instanceof Class ? (Class<?>) elementType : null;
+    }
+
     private String getFieldName(Field field) {
         if (isArray(field) || isCollection(field))
             return String.format("%s[]", field.getName());
@@ -130,17 +175,11 @@ public class RepresentationService {
     }
 
     private boolean hasMapper(Field field) {
-        return typeMappers.stream()
-                .filter(mapper -> mapper.getMappedType().equals(field.getType()))
-                .findFirst()
-                .isPresent();
+        return typeMappers.containsKey(field.getType());
     }
 
     private RepresentationTypeMapper getMapper(Field field) {
-        return typeMappers.stream()
-                .filter(mapper -> mapper.getMappedType().equals(field.getType()))
-                .findFirst()
-                .get();
+        return typeMappers.get(field.getType());
     }
     
 }
@@ -0,0 +1,87 @@
+package com.alon.spring.crud.api.projection;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+final class SourceAttributes {
+
+    private SourceAttributes() {}
+
+    /**
+     * Maps the fields of the output type, as modeled by the {@link RepresentationService}, to the
+     * attributes of the input type. A field whose type is not the type of the attribute, like a
+     * DTO of an association, is mapped to the attributes of the association.
+     *
+     * @return The inferred attributes, or an empty set if any field can't be mapped
+     */
+    static Set<String> infer(Metamodel metamodel, RepresentationService representationService,
+            Class<?> inputType, Class<?> outputType) {
+
+        Set<String> attributes = new LinkedHashSet<>();
+
+        if (!infer(metamodel.managedType(inputType), representationService, outputType, "", attributes, 0))
+            return Collections.emptySet();
+
+        return Collections.unmodifiableSet(attributes);
+    }
+
+    private static boolean infer(ManagedType<?> inputType, RepresentationService representationService,
+            Class<?> outputType, String prefix, Set<String> attributes, int depth) {
+
+        // Protects from cyclic DTOs
+        if (depth > 5)
+            return false;
+
+        for (Field field : representationService.getFields(outputType)) {
+            Attribute<?, ?> attribute = findAttribute(inputType, field.getName());
+
+            if (attribute == null || attribute.isCollection())
+                return false;
+
+            String path = prefix + field.getName();
+            Class<?> attributeType = attribute.getJavaType();
+
+            if (field.getType().isAssignableFrom(attributeType) || isBoxOf(field.getType(), attributeType)) {
+                attributes.add(path);
+                continue;
+            }
+
+            // The field is a representation of the attribute, mapped from its own attributes
+            if (!(((SingularAttribute<?, ?>) attribute).getType() instanceof ManagedType))
+                return false;
+
+            ManagedType<?> attributeManagedType = (ManagedType<?>) ((SingularAttribute<?, ?>) attribute).getType();
+
+            if (!infer(attributeManagedType, representationService, field.getType(), path + ".", attributes, depth + 1))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static Attribute<?, ?> findAttribute(ManagedType<?> type, String name) {
+        try {
+            return type.getAttribute(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isBoxOf(Class<?> fieldType, Class<?> attributeType) {
+        if (!attributeType.isPrimitive())
+            return false;
+
+        try {
+            return fieldType.getField("TYPE").get(null) == attributeType;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.service.exception.ProjectionException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * An input to be projected by a streaming projector when it is serialized.
+ */
+public final class StreamingProjection implements JsonSerializable {
+
+    private final String projectionName;
+    private final StreamingProjector projector;
+    private final Object input;
+
+    StreamingProjection(String projectionName, StreamingProjector projector, Object input) {
+        this.projectionName = projectionName;
+        this.projector = projector;
+        this.input = input;
+    }
+
+    public Object getInput() {
+        return input;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        try {
+            projector.write(input, generator, serializers);
+        } catch (ProjectionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ProjectionException(String.format(
+                    "Error projecting entity %s with projector '%s'",
+                    input.getClass().getSimpleName(),
+                    projectionName), e);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+            TypeSerializer typeSerializer) throws IOException {
+
+        serialize(generator, serializers);
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.alon.spring.crud.api.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Projector that writes the projection of the input directly to the response, without
+ * building the output object. It is used for the reads and searches without fields;
+ * {@link #project(Object)} is still used for the other responses and must produce the
+ * same representation.
+ *
+ * @param <I> Input data to be projected
+ * @param <O> Ouput projection, used for the representation of the projection
+ */
+public interface StreamingProjector<I, O> extends Projector<I, O> {
+
+    /**
+     * Writes the projection of the input as a single JSON value. The serializers can be used
+     * to write values, like dates, with the configuration of the ObjectMapper.
+     *
+     * The projection is written after the response status is sent, so there is no fallback
+     * to the default projection if it fails.
+     */
+    void write(I input, JsonGenerator generator, SerializerProvider serializers) throws IOException;
+
+}
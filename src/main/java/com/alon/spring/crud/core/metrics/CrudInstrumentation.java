@@ -0,0 +1,119 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.domain.service.SearchType;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Gives the {@link CrudMetrics} beans to the code that is not a bean, like the default methods
+ * of the services. The beans are resolved once for each application context; without them,
+ * {@link CrudMetrics#NONE} is returned.
+ */
+public final class CrudInstrumentation {
+
+    private static volatile ApplicationContext context;
+    private static volatile CrudMetrics metrics = CrudMetrics.NONE;
+
+    private CrudInstrumentation() {}
+
+    public static CrudMetrics get() {
+        ApplicationContext current = ApplicationContextProvider.getApplicationContext();
+
+        if (current != context) {
+            synchronized (CrudInstrumentation.class) {
+                metrics = resolve(current);
+                context = current;
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * @return The length of the longest path, 0 when the expand is null or empty
+     */
+    public static int expandDepth(Collection<String> expand) {
+        if (expand == null)
+            return 0;
+
+        int depth = 0;
+
+        for (String path : expand)
+            depth = Math.max(depth, path.split("\\.").length);
+
+        return depth;
+    }
+
+    private static CrudMetrics resolve(ApplicationContext context) {
+        if (context == null)
+            return CrudMetrics.NONE;
+
+        List<CrudMetrics> beans = context.getBeanProvider(CrudMetrics.class)
+                .orderedStream()
+                .collect(Collectors.toList());
+
+        if (beans.isEmpty())
+            return CrudMetrics.NONE;
+
+        if (beans.size() == 1)
+            return beans.get(0);
+
+        return new CompositeCrudMetrics(beans);
+    }
+
+    private static final class CompositeCrudMetrics implements CrudMetrics {
+
+        private final CrudMetrics[] metrics;
+
+        private CompositeCrudMetrics(List<CrudMetrics> metrics) {
+            this.metrics = metrics.toArray(new CrudMetrics[0]);
+        }
+
+        @Override
+        public void recordRequest(Class<?> entityType, CrudOperation operation, int status, long nanos) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordRequest(entityType, operation, status, nanos);
+        }
+
+        @Override
+        public void recordOperation(Class<?> entityType, CrudOperation operation, long nanos, Throwable error) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordOperation(entityType, operation, nanos, error);
+        }
+
+        @Override
+        public void recordSearch(Class<?> entityType, SearchType searchType, int rows) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordSearch(entityType, searchType, rows);
+        }
+
+        @Override
+        public void recordExpand(Class<?> entityType, CrudOperation operation, int depth) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordExpand(entityType, operation, depth);
+        }
+
+        @Override
+        public void recordProjection(String projection, int inputs, long nanos, Throwable error) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordProjection(projection, inputs, nanos, error);
+        }
+
+        @Override
+        public void recordProjectionFallback(Class<?> entityType, String projection) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordProjectionFallback(entityType, projection);
+        }
+
+        @Override
+        public void recordConditionalRequest(Class<?> entityType, CrudOperation operation, boolean notModified) {
+            for (CrudMetrics crudMetrics : metrics)
+                crudMetrics.recordConditionalRequest(entityType, operation, notModified);
+        }
+    }
+
+}
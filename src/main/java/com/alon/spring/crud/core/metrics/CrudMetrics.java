@@ -0,0 +1,57 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.domain.service.SearchType;
+
+/**
+ * Receives the measures of the CRUD controllers, services and projections. The beans of this
+ * type are called by the threads of the requests, so they must be fast and thread safe. The
+ * methods do nothing by default, so the implementations can record only some of the measures.
+ */
+public interface CrudMetrics {
+
+    CrudMetrics NONE = new CrudMetrics() {};
+
+    /**
+     * A request handled by a CRUD controller, including the projection of the response.
+     *
+     * @param entityType The managed entity of the controller, or the nested entity of the nested controllers
+     * @param status The status of the response
+     */
+    default void recordRequest(Class<?> entityType, CrudOperation operation, int status, long nanos) {}
+
+    /**
+     * An operation of a CRUD service, including its hooks.
+     *
+     * @param error The exception thrown by the service, or null
+     */
+    default void recordOperation(Class<?> entityType, CrudOperation operation, long nanos, Throwable error) {}
+
+    /**
+     * @param rows The number of entities in the returned page
+     */
+    default void recordSearch(Class<?> entityType, SearchType searchType, int rows) {}
+
+    /**
+     * @param depth The length of the longest expanded path, 0 when nothing is expanded
+     */
+    default void recordExpand(Class<?> entityType, CrudOperation operation, int depth) {}
+
+    /**
+     * @param inputs The number of projected entities
+     * @param error The exception thrown by the projector, or null
+     */
+    default void recordProjection(String projection, int inputs, long nanos, Throwable error) {}
+
+    /**
+     * The projection failed and the response was projected with the default projection instead.
+     */
+    default void recordProjectionFallback(Class<?> entityType, String projection) {}
+
+    /**
+     * A request with a deep ETag.
+     *
+     * @param notModified True if the ETag matched and the response was 304 Not Modified
+     */
+    default void recordConditionalRequest(Class<?> entityType, CrudOperation operation, boolean notModified) {}
+
+}
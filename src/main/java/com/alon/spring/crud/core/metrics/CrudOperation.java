@@ -0,0 +1,11 @@
+package com.alon.spring.crud.core.metrics;
+
+public enum CrudOperation {
+
+    SEARCH,
+    READ,
+    CREATE,
+    UPDATE,
+    DELETE
+
+}
@@ -0,0 +1,19 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.domain.service.LifeCycleHook;
+
+/**
+ * Receives the executions of the hooks added to the services. The beans of this type are
+ * called by the thread of the hook after each execution, so they must be fast and thread safe.
+ */
+public interface HookMetrics {
+
+    /**
+     * @param serviceType The class of the service, without proxies
+     * @param hookIndex The position of the hook in the order of registration for the service and life cycle hook
+     * @param nanos The execution time
+     * @param error The exception thrown by the hook, or null
+     */
+    void recordExecution(Class<?> serviceType, LifeCycleHook hookType, int hookIndex, long nanos, Throwable error);
+
+}
@@ -0,0 +1,28 @@
+package com.alon.spring.crud.core.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Micrometer is an optional dependency. Without a MeterRegistry bean, the meters are registered
+ * in the global registry, which has the registries of the actuator by default.
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class MicrometerConfiguration {
+
+    @Bean
+    public MicrometerHookMetrics micrometerHookMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MicrometerHookMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public MicrometerCrudMetrics micrometerCrudMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MicrometerCrudMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+}
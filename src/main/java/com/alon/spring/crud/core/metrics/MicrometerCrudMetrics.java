@@ -0,0 +1,156 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.domain.service.SearchType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records the CRUD measures in these meters:
+ *
+ * <ul>
+ *   <li>{@value #REQUESTS}: timer by entity, operation and status</li>
+ *   <li>{@value #OPERATIONS}: timer by entity, operation, outcome and exception</li>
+ *   <li>{@value #SEARCH_ROWS}: summary of the returned rows by entity and search type</li>
+ *   <li>{@value #EXPAND_DEPTH}: summary of the expand depth by entity and operation</li>
+ *   <li>{@value #PROJECTIONS}: timer by projection and outcome</li>
+ *   <li>{@value #PROJECTION_FALLBACKS}: counter by entity and projection</li>
+ *   <li>{@value #ETAG_REQUESTS}: counter by entity, operation and result, hit or miss, so the hit
+ *   ratio is the hits over all the results</li>
+ * </ul>
+ *
+ * The timers and the summary of rows publish percentile histograms.
+ */
+public class MicrometerCrudMetrics implements CrudMetrics {
+
+    public static final String REQUESTS = "crud.requests";
+    public static final String OPERATIONS = "crud.service.operations";
+    public static final String SEARCH_ROWS = "crud.search.rows";
+    public static final String EXPAND_DEPTH = "crud.expand.depth";
+    public static final String PROJECTIONS = "crud.projections";
+    public static final String PROJECTION_FALLBACKS = "crud.projection.fallbacks";
+    public static final String ETAG_REQUESTS = "crud.etag.requests";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final Map<List<Object>, Meter> meters = new ConcurrentHashMap<>();
+
+    public MicrometerCrudMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordRequest(Class<?> entityType, CrudOperation operation, int status, long nanos) {
+        Timer timer = meter(List.of(REQUESTS, entityType, operation, status), () -> Timer.builder(REQUESTS)
+                .description("Requests handled by the CRUD controllers")
+                .tag("entity", entityType.getSimpleName())
+                .tag("operation", operation.name())
+                .tag("status", String.valueOf(status))
+                .publishPercentileHistogram()
+                .register(registry));
+
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordOperation(Class<?> entityType, CrudOperation operation, long nanos, Throwable error) {
+        String exception = error == null ? NONE : error.getClass().getSimpleName();
+
+        Timer timer = meter(List.of(OPERATIONS, entityType, operation, exception), () -> Timer.builder(OPERATIONS)
+                .description("Operations of the CRUD services")
+                .tag("entity", entityType.getSimpleName())
+                .tag("operation", operation.name())
+                .tag("outcome", error == null ? "success" : "error")
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry));
+
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSearch(Class<?> entityType, SearchType searchType, int rows) {
+        DistributionSummary summary = meter(List.of(SEARCH_ROWS, entityType, searchType),
+                () -> DistributionSummary.builder(SEARCH_ROWS)
+                        .description("Entities returned by the searches")
+                        .baseUnit("rows")
+                        .tag("entity", entityType.getSimpleName())
+                        .tag("searchType", searchType.name())
+                        .publishPercentileHistogram()
+                        .register(registry));
+
+        summary.record(rows);
+    }
+
+    @Override
+    public void recordExpand(Class<?> entityType, CrudOperation operation, int depth) {
+        DistributionSummary summary = meter(List.of(EXPAND_DEPTH, entityType, operation),
+                () -> DistributionSummary.builder(EXPAND_DEPTH)
+                        .description("Length of the longest expanded path")
+                        .tag("entity", entityType.getSimpleName())
+                        .tag("operation", operation.name())
+                        .register(registry));
+
+        summary.record(depth);
+    }
+
+    @Override
+    public void recordProjection(String projection, int inputs, long nanos, Throwable error) {
+        Timer timer = meter(List.of(PROJECTIONS, projection, error == null), () -> Timer.builder(PROJECTIONS)
+                .description("Projections of entities, single or in collections")
+                .tag("projection", projection)
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(registry));
+
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordProjectionFallback(Class<?> entityType, String projection) {
+        Counter counter = meter(List.of(PROJECTION_FALLBACKS, entityType, projection),
+                () -> Counter.builder(PROJECTION_FALLBACKS)
+                        .description("Responses projected with the default projection after an error")
+                        .tag("entity", entityType.getSimpleName())
+                        .tag("projection", projection)
+                        .register(registry));
+
+        counter.increment();
+    }
+
+    @Override
+    public void recordConditionalRequest(Class<?> entityType, CrudOperation operation, boolean notModified) {
+        Counter counter = meter(List.of(ETAG_REQUESTS, entityType, operation, notModified),
+                () -> Counter.builder(ETAG_REQUESTS)
+                        .description("Requests with deep ETags, by match")
+                        .tag("entity", entityType.getSimpleName())
+                        .tag("operation", operation.name())
+                        .tag("result", notModified ? "hit" : "miss")
+                        .register(registry));
+
+        counter.increment();
+    }
+
+    /*
+     * The registry also keeps the meters by name and tags, but building the tags is more
+     * expensive than this lookup.
+     */
+    private <M extends Meter> M meter(List<Object> key, Supplier<M> factory) {
+        Meter meter = meters.get(key);
+
+        if (meter == null)
+            meter = meters.computeIfAbsent(key, k -> factory.get());
+
+        return (M) meter;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.domain.service.LifeCycleHook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the hook executions in the timer {@value #TIMER_NAME}, tagged by service, life cycle
+ * hook, position of the hook, outcome and exception. The count of the timer is the number of
+ * invocations, and the count with the outcome error the number of failures.
+ */
+public class MicrometerHookMetrics implements HookMetrics {
+
+    public static final String TIMER_NAME = "crud.hook.executions";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final Map<List<Object>, Timer> timers = new ConcurrentHashMap<>();
+
+    public MicrometerHookMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordExecution(Class<?> serviceType, LifeCycleHook hookType, int hookIndex, long nanos,
+            Throwable error) {
+
+        String exception = error == null ? NONE : error.getClass().getSimpleName();
+
+        timers.computeIfAbsent(List.of(serviceType, hookType, hookIndex, exception), key -> Timer.builder(TIMER_NAME)
+                .description("Executions of the hooks of the CRUD services")
+                .tag("service", serviceType.getSimpleName())
+                .tag("hook", hookType.name())
+                .tag("index", String.valueOf(hookIndex))
+                .tag("outcome", error == null ? "success" : "error")
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+}
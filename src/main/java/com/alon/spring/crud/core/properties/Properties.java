@@ -1,8 +1,12 @@
 package com.alon.spring.crud.core.properties;
 
+import com.alon.spring.crud.domain.repository.FetchStrategy;
+import com.alon.spring.crud.domain.service.cache.ExpressionFilterCache;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration("crudProperties")
 @ConfigurationProperties(prefix = "com.alon")
 public class Properties {
@@ -11,6 +15,11 @@ public class Properties {
     public SearchProperties search = new SearchProperties();
     public ProjectionProperties projection = new ProjectionProperties();
     public SerializationProperties serialization = new SerializationProperties();
+    public ResponseCacheProperties responseCache = new ResponseCacheProperties();
+    public ExportProperties export = new ExportProperties();
+    public AsyncHookProperties asyncHooks = new AsyncHookProperties();
+    public HookProperties hooks = new HookProperties();
+    public QueryCountProperties queryCount = new QueryCountProperties();
 
     public CacheControlProperties getCacheControl() {
         return cacheControl;
@@ -36,6 +45,46 @@ public class Properties {
         this.projection = projection;
     }
 
+    public ResponseCacheProperties getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCacheProperties responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public ExportProperties getExport() {
+        return export;
+    }
+
+    public void setExport(ExportProperties export) {
+        this.export = export;
+    }
+
+    public AsyncHookProperties getAsyncHooks() {
+        return asyncHooks;
+    }
+
+    public void setAsyncHooks(AsyncHookProperties asyncHooks) {
+        this.asyncHooks = asyncHooks;
+    }
+
+    public HookProperties getHooks() {
+        return hooks;
+    }
+
+    public void setHooks(HookProperties hooks) {
+        this.hooks = hooks;
+    }
+
+    public QueryCountProperties getQueryCount() {
+        return queryCount;
+    }
+
+    public void setQueryCount(QueryCountProperties queryCount) {
+        this.queryCount = queryCount;
+    }
+
     public class CacheControlProperties {
         public long maxAge = 600;
         public boolean cachePrivate;
@@ -114,6 +163,9 @@ public class Properties {
 
     public class SearchProperties {
         public boolean enableExpressionFilter = false;
+        public int expressionCacheSize = ExpressionFilterCache.DEFAULT_MAXIMUM_SIZE;
+        public FetchStrategy fetchStrategy = FetchStrategy.JOIN;
+        public int fetchBatchSize = 100;
 
         public boolean isEnableExpressionFilter() {
             return enableExpressionFilter;
@@ -122,10 +174,36 @@ public class Properties {
         public void setEnableExpressionFilter(boolean enableExpressionFilter) {
             this.enableExpressionFilter = enableExpressionFilter;
         }
+
+        public int getExpressionCacheSize() {
+            return expressionCacheSize;
+        }
+
+        public void setExpressionCacheSize(int expressionCacheSize) {
+            this.expressionCacheSize = expressionCacheSize;
+        }
+
+        public FetchStrategy getFetchStrategy() {
+            return fetchStrategy;
+        }
+
+        public void setFetchStrategy(FetchStrategy fetchStrategy) {
+            this.fetchStrategy = fetchStrategy;
+        }
+
+        public int getFetchBatchSize() {
+            return fetchBatchSize;
+        }
+
+        public void setFetchBatchSize(int fetchBatchSize) {
+            this.fetchBatchSize = fetchBatchSize;
+        }
     }
 
     public class ProjectionProperties {
         public boolean useDefaultIfError = true;
+        public int parallelism = Runtime.getRuntime().availableProcessors();
+        public boolean inferExpand = false;
 
         public boolean isUseDefaultIfError() {
             return useDefaultIfError;
@@ -134,6 +212,22 @@ public class Properties {
         public void setUseDefaultIfError(boolean useDefaultIfError) {
             this.useDefaultIfError = useDefaultIfError;
         }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public boolean isInferExpand() {
+            return inferExpand;
+        }
+
+        public void setInferExpand(boolean inferExpand) {
+            this.inferExpand = inferExpand;
+        }
     }
 
     public class SerializationProperties {
@@ -174,4 +268,235 @@ public class Properties {
             this.includeNullValues = includeNullValues;
         }
     }
+
+    public class ResponseCacheProperties {
+        public boolean enabled = false;
+        public long maximumHeapSize = 32 * 1024 * 1024;
+        public long maximumOffHeapSize = 0;
+        public boolean gzip = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumHeapSize() {
+            return maximumHeapSize;
+        }
+
+        public void setMaximumHeapSize(long maximumHeapSize) {
+            this.maximumHeapSize = maximumHeapSize;
+        }
+
+        public long getMaximumOffHeapSize() {
+            return maximumOffHeapSize;
+        }
+
+        public void setMaximumOffHeapSize(long maximumOffHeapSize) {
+            this.maximumOffHeapSize = maximumOffHeapSize;
+        }
+
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        public void setGzip(boolean gzip) {
+            this.gzip = gzip;
+        }
+    }
+
+    public class ExportProperties {
+        public boolean enabled = false;
+        public int maxRows = 100000;
+        public int fetchSize = 500;
+        public int clearInterval = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getClearInterval() {
+            return clearInterval;
+        }
+
+        public void setClearInterval(int clearInterval) {
+            this.clearInterval = clearInterval;
+        }
+    }
+
+    public class AsyncHookProperties {
+        public String tableName = "crud_hook_outbox";
+        public boolean createTable = true;
+        public int workers = 4;
+        public int queueCapacity = 1000;
+        public int maxAttempts = 10;
+        public long retryDelay = 1000;
+        public long maxRetryDelay = 10 * 60 * 1000;
+        public long pollInterval = 5000;
+        public long processingTimeout = 5 * 60 * 1000;
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public void setTableName(String tableName) {
+            this.tableName = tableName;
+        }
+
+        public boolean isCreateTable() {
+            return createTable;
+        }
+
+        public void setCreateTable(boolean createTable) {
+            this.createTable = createTable;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryDelay() {
+            return retryDelay;
+        }
+
+        public void setRetryDelay(long retryDelay) {
+            this.retryDelay = retryDelay;
+        }
+
+        public long getMaxRetryDelay() {
+            return maxRetryDelay;
+        }
+
+        public void setMaxRetryDelay(long maxRetryDelay) {
+            this.maxRetryDelay = maxRetryDelay;
+        }
+
+        public long getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(long pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public long getProcessingTimeout() {
+            return processingTimeout;
+        }
+
+        public void setProcessingTimeout(long processingTimeout) {
+            this.processingTimeout = processingTimeout;
+        }
+    }
+
+    public class HookProperties {
+        public long slowThreshold = 0;
+
+        public long getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(long slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+    }
+
+    public class QueryCountProperties {
+        public boolean enabled = false;
+        public boolean header = false;
+        public List<String> headerProfiles = List.of("dev");
+        public int budget = 0;
+        public boolean failOnBudgetExceeded = false;
+        public int repeatedStatementThreshold = 5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isHeader() {
+            return header;
+        }
+
+        public void setHeader(boolean header) {
+            this.header = header;
+        }
+
+        public List<String> getHeaderProfiles() {
+            return headerProfiles;
+        }
+
+        public void setHeaderProfiles(List<String> headerProfiles) {
+            this.headerProfiles = headerProfiles;
+        }
+
+        public int getBudget() {
+            return budget;
+        }
+
+        public void setBudget(int budget) {
+            this.budget = budget;
+        }
+
+        public boolean isFailOnBudgetExceeded() {
+            return failOnBudgetExceeded;
+        }
+
+        public void setFailOnBudgetExceeded(boolean failOnBudgetExceeded) {
+            this.failOnBudgetExceeded = failOnBudgetExceeded;
+        }
+
+        public int getRepeatedStatementThreshold() {
+            return repeatedStatementThreshold;
+        }
+
+        public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+            this.repeatedStatementThreshold = repeatedStatementThreshold;
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package com.alon.spring.crud.core.query;
+
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+
+}
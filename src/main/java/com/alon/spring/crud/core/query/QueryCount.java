@@ -0,0 +1,62 @@
+package com.alon.spring.crud.core.query;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The SQL statements executed by the current thread since {@link QueryCounter#start()}. The
+ * counts can be nested: closing a count restores the previous one, which doesn't include the
+ * statements of the nested count.
+ */
+public final class QueryCount implements AutoCloseable {
+
+    private final QueryCount previous;
+    private final Map<String, Integer> statements = new HashMap<>();
+    private int count;
+    private boolean closed;
+
+    QueryCount(QueryCount previous) {
+        this.previous = previous;
+    }
+
+    void record(String sql) {
+        count++;
+        statements.merge(sql, 1, Integer::sum);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * The statements repeated with only different parameters are the usual sign of an N+1
+     * select, like the lazy loading of an association of each entity of a page.
+     *
+     * @return The statements executed at least threshold times, with their counts
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+
+        statements.forEach((sql, executions) -> {
+            if (executions >= threshold)
+                repeated.put(sql, executions);
+        });
+
+        return repeated;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        QueryCounter.restore(this, previous);
+    }
+
+}
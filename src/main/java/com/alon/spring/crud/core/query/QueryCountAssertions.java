@@ -0,0 +1,84 @@
+package com.alon.spring.crud.core.query;
+
+import java.util.Map;
+
+/**
+ * Assertions to lock down the SQL statements of the tests. The statements of code run in the
+ * test thread are counted by {@link #count(Runnable)}; the statements of the requests are read
+ * from the X-Query-Count header, returned when the com.alon.query-count.header property is true.
+ * Both need the com.alon.query-count.enabled property.
+ */
+public final class QueryCountAssertions {
+
+    public static final String HEADER = "X-Query-Count";
+
+    private QueryCountAssertions() {}
+
+    /**
+     * @return The statements executed by the action in the current thread
+     */
+    public static int count(Runnable action) {
+        return run(action).getCount();
+    }
+
+    public static void assertQueryCount(int expected, Runnable action) {
+        assertQueryCount(expected, count(action));
+    }
+
+    public static void assertMaxQueryCount(int max, Runnable action) {
+        assertMaxQueryCount(max, count(action));
+    }
+
+    /**
+     * Fails when the action executes a statement at least threshold times, the usual sign of an N+1 select
+     */
+    public static void assertNoRepeatedStatements(int threshold, Runnable action) {
+        Map<String, Integer> repeated = run(action).getRepeatedStatements(threshold);
+
+        if (!repeated.isEmpty())
+            throw new AssertionError(String.format("Expected no statement executed %d times or more, but were %s",
+                    threshold, repeated));
+    }
+
+    /**
+     * @param headerValue The value of the X-Query-Count header of the response
+     */
+    public static void assertQueryCount(int expected, String headerValue) {
+        assertQueryCount(expected, parseHeader(headerValue));
+    }
+
+    /**
+     * @param headerValue The value of the X-Query-Count header of the response
+     */
+    public static void assertMaxQueryCount(int max, String headerValue) {
+        assertMaxQueryCount(max, parseHeader(headerValue));
+    }
+
+    private static QueryCount run(Runnable action) {
+        if (!QueryCounter.isInstalled())
+            throw new IllegalStateException("The query counter is not installed. Set the com.alon.query-count.enabled property.");
+
+        try (QueryCount queryCount = QueryCounter.start()) {
+            action.run();
+            return queryCount;
+        }
+    }
+
+    private static int parseHeader(String headerValue) {
+        if (headerValue == null)
+            throw new AssertionError(String.format("Expected the %s header, but there was none", HEADER));
+
+        return Integer.parseInt(headerValue);
+    }
+
+    private static void assertQueryCount(int expected, int actual) {
+        if (actual != expected)
+            throw new AssertionError(String.format("Expected %d SQL statements, but were %d", expected, actual));
+    }
+
+    private static void assertMaxQueryCount(int max, int actual) {
+        if (actual > max)
+            throw new AssertionError(String.format("Expected at most %d SQL statements, but were %d", max, actual));
+    }
+
+}
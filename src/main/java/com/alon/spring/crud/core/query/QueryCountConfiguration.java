@@ -0,0 +1,36 @@
+package com.alon.spring.crud.core.query;
+
+import com.alon.spring.crud.core.properties.Properties;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Installs the {@link QueryCounter} in Hibernate when the com.alon.query-count.enabled property
+ * is true. A statement inspector configured by the application is kept, without the counter.
+ */
+@Configuration
+public class QueryCountConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCountConfiguration.class);
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer(Properties properties) {
+        return hibernateProperties -> {
+            if (!properties.queryCount.enabled)
+                return;
+
+            if (hibernateProperties.containsKey(AvailableSettings.STATEMENT_INSPECTOR)) {
+                LOGGER.warn("The SQL statements are not counted because there is another statement inspector: {}",
+                        hibernateProperties.get(AvailableSettings.STATEMENT_INSPECTOR));
+                return;
+            }
+
+            hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+        };
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.alon.spring.crud.core.query;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements that Hibernate prepares in the thread of the current
+ * {@link QueryCount}. The statements are not changed. Installed by
+ * {@link QueryCountConfiguration} when the com.alon.query-count.enabled property is true.
+ *
+ * The statements executed in other threads, like the ones of the parallel projections, and the
+ * statements not executed by Hibernate, like the ones of a JdbcTemplate, are not counted.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private static volatile boolean installed;
+
+    QueryCounter() {
+        installed = true;
+    }
+
+    /**
+     * Starts counting the statements of the current thread, until the count is closed.
+     */
+    public static QueryCount start() {
+        QueryCount count = new QueryCount(CURRENT.get());
+        CURRENT.set(count);
+
+        return count;
+    }
+
+    /**
+     * @return The count of the current thread, or null when there is none
+     */
+    public static QueryCount current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return If the counter is installed in Hibernate. Otherwise, the counts are always 0.
+     */
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    static void restore(QueryCount closed, QueryCount previous) {
+        if (CURRENT.get() != closed)
+            throw new IllegalStateException("The query counts must be closed in the reverse order of their start");
+
+        if (previous == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(previous);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryCount count = CURRENT.get();
+
+        if (count != null)
+            count.record(sql);
+
+        return sql;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fetch strategies of the expanded associations, declared by the first property of the
+ * expand path: "items" and "items.product" are both fetched with the strategy of "items".
+ *
+ * The paths fetched by JOIN are left to the search query. The others are loaded after the
+ * search by secondary queries, one per expanded association of the root entity, so the
+ * search query doesn't join several collections in the same result set.
+ */
+public class FetchPlan {
+
+    private static final String EXPAND_HINT = "javax.persistence.loadgraph";
+
+    private final FetchStrategy defaultStrategy;
+    private final int batchSize;
+    private final Map<String, FetchStrategy> strategies;
+
+    private FetchPlan(FetchStrategy defaultStrategy, int batchSize, Map<String, FetchStrategy> strategies) {
+        this.defaultStrategy = defaultStrategy;
+        this.batchSize = batchSize;
+        this.strategies = strategies;
+    }
+
+    public static Builder of() {
+        return new Builder();
+    }
+
+    public FetchStrategy getStrategy(String path) {
+        return strategies.getOrDefault(firstProperty(path), defaultStrategy);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return The paths fetched by the search query
+     */
+    public Set<String> joinPaths(Collection<String> expand) {
+        return expand.stream()
+                .filter(path -> getStrategy(path) == FetchStrategy.JOIN)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * @return The paths fetched after the search query
+     */
+    public Set<String> secondaryPaths(Collection<String> expand) {
+        return expand.stream()
+                .filter(path -> getStrategy(path) != FetchStrategy.JOIN)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Loads the secondary paths of the entities. The entities must be managed by the entity
+     * manager, so the loaded associations are set on them.
+     */
+    public <T extends BaseEntity<?>> void fetch(EntityManager entityManager, Class<T> entityType,
+            Collection<T> entities, Collection<String> secondaryPaths) {
+
+        if (entities.isEmpty() || secondaryPaths == null || secondaryPaths.isEmpty())
+            return;
+
+        List<Object> ids = entities.stream()
+                .map(BaseEntity::getId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<String, List<String>> pathsByProperty = new LinkedHashMap<>();
+
+        secondaryPaths.forEach(path -> pathsByProperty
+                .computeIfAbsent(firstProperty(path), property -> new ArrayList<>())
+                .add(path));
+
+        pathsByProperty.forEach((property, paths) -> {
+            int chunkSize = getStrategy(property) == FetchStrategy.BATCH ? batchSize : ids.size();
+
+            for (int start = 0; start < ids.size(); start += chunkSize) {
+                List<Object> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+                load(entityManager, entityType, chunk, paths);
+            }
+        });
+    }
+
+    private <T extends BaseEntity<?>> void load(EntityManager entityManager, Class<T> entityType,
+            List<Object> ids, List<String> paths) {
+
+        EntityType<T> metamodel = entityManager.getMetamodel().entity(entityType);
+        String idProperty = metamodel.getId(metamodel.getIdType().getJavaType()).getName();
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = builder.createQuery(entityType);
+        Root<T> from = criteriaQuery.from(entityType);
+        criteriaQuery.select(from)
+                .where(from.get(idProperty).in(ids));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+        typedQuery.setHint(EXPAND_HINT, EntityGraphResolver.resolveExpand(entityManager, entityType, paths));
+
+        // The results are the managed entities, now with the paths loaded
+        typedQuery.getResultList();
+    }
+
+    private static String firstProperty(String path) {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+
+    public static final class Builder {
+
+        private FetchStrategy defaultStrategy = FetchStrategy.JOIN;
+        private int batchSize = 100;
+        private final Map<String, FetchStrategy> strategies = new HashMap<>();
+
+        private Builder() {}
+
+        public Builder defaultStrategy(FetchStrategy defaultStrategy) {
+            if (defaultStrategy == null)
+                throw new IllegalArgumentException("The default strategy must not be null");
+
+            this.defaultStrategy = defaultStrategy;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1)
+                throw new IllegalArgumentException("The batch size must be greater than zero");
+
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param property A property of the root entity
+         */
+        public Builder strategy(String property, FetchStrategy strategy) {
+            this.strategies.put(property, strategy);
+            return this;
+        }
+
+        public Builder strategies(Map<String, FetchStrategy> strategies) {
+            this.strategies.putAll(strategies);
+            return this;
+        }
+
+        public FetchPlan build() {
+            return new FetchPlan(defaultStrategy, batchSize, Map.copyOf(strategies));
+        }
+    }
+
+}
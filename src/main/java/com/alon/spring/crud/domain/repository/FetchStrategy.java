@@ -0,0 +1,23 @@
+package com.alon.spring.crud.domain.repository;
+
+/**
+ * How an expanded association is loaded.
+ */
+public enum FetchStrategy {
+
+    /**
+     * Joined in the search query. Expanding several collections this way multiplies the rows.
+     */
+    JOIN,
+
+    /**
+     * Loaded after the search, by a secondary query for each batch of entities.
+     */
+    BATCH,
+
+    /**
+     * Loaded after the search, by a single secondary query for all the entities.
+     */
+    SUBSELECT
+
+}
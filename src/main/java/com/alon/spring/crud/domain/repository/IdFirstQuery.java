@@ -0,0 +1,219 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.domain.Sort.unsorted;
+
+/**
+ * Paginated queries that expand to-many associations. Fetching a collection with a paginated
+ * query makes Hibernate read every matching row and paginate in memory (HHH000104), so the
+ * page is read in two queries: the first one selects only the ids of the page, with the filter
+ * and the sort, and the second one loads the entities of these ids with the expand.
+ */
+public final class IdFirstQuery {
+
+    private static final String EXPAND_HINT = "javax.persistence.loadgraph";
+
+    private IdFirstQuery() {}
+
+    /**
+     * @return True if any of the expanded paths goes through a collection
+     */
+    public static boolean expandsCollection(EntityManager entityManager,
+            Class<? extends BaseEntity> entityType, Collection<String> expand) {
+
+        if (expand == null)
+            return false;
+
+        ManagedType<?> rootType = entityManager.getMetamodel().managedType(entityType);
+
+        return expand.stream().anyMatch(path -> expandsCollection(rootType, path));
+    }
+
+    /**
+     * @return The entities of the page, in the order of the sort
+     */
+    public static <T extends BaseEntity<?>> List<T> find(EntityManager entityManager, Class<T> entityType,
+            Specification<T> filter, Pageable pageable, List<String> expand) {
+
+        EntityType<T> metamodel = entityManager.getMetamodel().entity(entityType);
+        String idProperty = metamodel.getId(metamodel.getIdType().getJavaType()).getName();
+
+        List<Object> ids = findIds(entityManager, entityType, idProperty, filter, pageable);
+
+        return findByIds(entityManager, entityType, idProperty, ids, expand);
+    }
+
+    /**
+     * @return The expanded paths that go through a collection
+     */
+    public static List<String> collectionPaths(EntityManager entityManager,
+            Class<? extends BaseEntity> entityType, Collection<String> expand) {
+
+        if (expand == null)
+            return List.of();
+
+        ManagedType<?> rootType = entityManager.getMetamodel().managedType(entityType);
+
+        return expand.stream()
+                .filter(path -> expandsCollection(rootType, path))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the entities of a page again by their ids, with the expand. For the paginated queries
+     * that need more than the ids, like the keyset ones, which read the page without the expand
+     * and then its entities with it. Inside a persistence context, the entities are the same
+     * instances of the page.
+     *
+     * @return The entities with the expand, in the order of the page
+     */
+    public static <T extends BaseEntity<?>> List<T> loadExpand(EntityManager entityManager, Class<T> entityType,
+            List<T> page, List<String> expand) {
+
+        EntityType<T> metamodel = entityManager.getMetamodel().entity(entityType);
+        String idProperty = metamodel.getId(metamodel.getIdType().getJavaType()).getName();
+
+        List<Object> ids = page.stream()
+                .map(BaseEntity::getId)
+                .collect(Collectors.toList());
+
+        return findByIds(entityManager, entityType, idProperty, ids, expand);
+    }
+
+    private static <T extends BaseEntity<?>> List<T> findByIds(EntityManager entityManager, Class<T> entityType,
+            String idProperty, List<Object> ids, List<String> expand) {
+
+        if (ids.isEmpty())
+            return new ArrayList<>();
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = builder.createQuery(entityType);
+        Root<T> from = criteriaQuery.from(entityType);
+        criteriaQuery.select(from)
+                .where(from.get(idProperty).in(ids));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        if (expand != null && !expand.isEmpty())
+            typedQuery.setHint(EXPAND_HINT, EntityGraphResolver.resolveExpand(entityManager, entityType, expand));
+
+        // The fetched collections may repeat the root rows, the map also removes the duplicates
+        Map<Object, T> entitiesById = new HashMap<>();
+
+        for (T entity : typedQuery.getResultList())
+            entitiesById.put(entity.getId(), entity);
+
+        List<T> entities = new ArrayList<>(ids.size());
+
+        for (Object id : ids) {
+            T entity = entitiesById.get(id);
+
+            if (entity != null)
+                entities.add(entity);
+        }
+
+        return entities;
+    }
+
+    /*
+     * The sort expressions are selected along with the id, so the query is still valid
+     * when the filter makes it distinct.
+     */
+    private static <T> List<Object> findIds(EntityManager entityManager, Class<T> entityType, String idProperty,
+            Specification<T> filter, Pageable pageable) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = builder.createTupleQuery();
+        Root<T> from = criteriaQuery.from(entityType);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(from.get(idProperty));
+
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(from, criteriaQuery, builder);
+
+            if (predicate != null)
+                criteriaQuery.where(predicate);
+        }
+
+        Sort sort = pageable.getSortOr(unsorted());
+
+        if (sort.isSorted()) {
+            List<Order> orders = QueryUtils.toOrders(sort, from, builder);
+            orders.forEach(order -> selections.add(order.getExpression()));
+            criteriaQuery.orderBy(orders);
+        }
+
+        criteriaQuery.multiselect(selections);
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        List<Object> ids = new ArrayList<>();
+
+        for (Tuple tuple : typedQuery.getResultList())
+            ids.add(tuple.get(0));
+
+        return ids;
+    }
+
+    private static boolean expandsCollection(ManagedType<?> rootType, String path) {
+        ManagedType<?> managedType = rootType;
+
+        for (String property : path.split("\\.")) {
+            if (managedType == null)
+                return false;
+
+            Attribute<?, ?> attribute;
+
+            try {
+                attribute = managedType.getAttribute(property);
+            } catch (IllegalArgumentException e) {
+                // Invalid paths are reported by the query
+                return false;
+            }
+
+            if (attribute.isCollection())
+                return true;
+
+            Type<?> type = attribute instanceof SingularAttribute
+                    ? ((SingularAttribute<?, ?>) attribute).getType()
+                    : null;
+
+            managedType = type instanceof ManagedType ? (ManagedType<?>) type : null;
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.service.Keyset;
+import com.alon.spring.crud.domain.service.exception.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset (seek) pagination queries. Instead of skipping OFFSET rows, the page is fetched with
+ * a predicate that starts right after the keyset row, so the cost of a page doesn't depend on
+ * its position. The sort always ends with the id, which makes the order total.
+ *
+ * The sort properties must not be null, since null values can't be compared.
+ */
+public final class KeysetQuery {
+
+    private static final String EXPAND_HINT = "javax.persistence.loadgraph";
+
+    private KeysetQuery() {}
+
+    /**
+     * @return The sort plus the id property as the last key, if it is not already there
+     */
+    public static Sort resolveSort(EntityManager entityManager, Class<?> entityType, Sort sort) {
+        EntityType<?> metamodel = entityManager.getMetamodel().entity(entityType);
+        String idProperty = metamodel.getId(metamodel.getIdType().getJavaType()).getName();
+
+        Sort resolved = sort == null ? Sort.unsorted() : sort;
+
+        if (resolved.getOrderFor(idProperty) == null)
+            resolved = resolved.and(Sort.by(idProperty));
+
+        return resolved;
+    }
+
+    /**
+     * @param sort The sort returned by {@link #resolveSort(EntityManager, Class, Sort)}
+     * @param keyset The row to start after, or null for the first page
+     * @return Up to limit rows. When the keyset is backward, the rows are in the reverse sort order
+     */
+    public static <T extends BaseEntity<?>> List<T> find(EntityManager entityManager, Class<T> entityType,
+            Specification<T> filter, Sort sort, Keyset keyset, int limit, List<String> expand) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = builder.createQuery(entityType);
+        Root<T> from = criteriaQuery.from(entityType);
+        criteriaQuery.select(from);
+
+        Sort querySort = keyset != null && keyset.isBackward() ? reverse(sort) : sort;
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(from, criteriaQuery, builder);
+
+            if (predicate != null)
+                predicates.add(predicate);
+        }
+
+        if (keyset != null)
+            predicates.add(seekPredicate(builder, from, querySort, keyset));
+
+        criteriaQuery.where(predicates.toArray(new Predicate[0]));
+        criteriaQuery.orderBy(QueryUtils.toOrders(querySort, from, builder));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+        typedQuery.setMaxResults(limit);
+
+        if (expand != null && !expand.isEmpty())
+            typedQuery.setHint(EXPAND_HINT, EntityGraphResolver.resolveExpand(entityManager, entityType, expand));
+
+        return typedQuery.getResultList();
+    }
+
+    /*
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... using < for the descending keys.
+     */
+    private static Predicate seekPredicate(CriteriaBuilder builder, Root<?> from, Sort sort, Keyset keyset) {
+        List<String> properties = sort.stream()
+                .map(Order::getProperty)
+                .collect(Collectors.toList());
+
+        if (!properties.equals(keyset.getProperties()))
+            throw new InvalidCursorException("The cursor was created with a different sort");
+
+        List<Order> orders = sort.toList();
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalities = new ArrayList<>();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Path<Comparable> path = getPath(from, orders.get(i).getProperty());
+            Comparable value = (Comparable) keyset.getValue(i, path.getJavaType());
+
+            if (value == null)
+                throw new InvalidCursorException(String.format(
+                        "Keyset pagination doesn't support null values in the sort property '%s'",
+                        orders.get(i).getProperty()));
+
+            Predicate seek = orders.get(i).isAscending()
+                    ? builder.greaterThan(path, value)
+                    : builder.lessThan(path, value);
+
+            List<Predicate> alternative = new ArrayList<>(equalities);
+            alternative.add(seek);
+            alternatives.add(builder.and(alternative.toArray(new Predicate[0])));
+
+            equalities.add(builder.equal(path, value));
+        }
+
+        return builder.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    private static Path<Comparable> getPath(Root<?> from, String property) {
+        Path<?> path = from;
+
+        for (String part : property.split("\\."))
+            path = path.get(part);
+
+        return (Path<Comparable>) path;
+    }
+
+    private static Sort reverse(Sort sort) {
+        return Sort.by(sort.stream()
+                .map(order -> order.with(order.isAscending() ? Direction.DESC : Direction.ASC))
+                .collect(Collectors.toList()));
+    }
+
+}
@@ -3,7 +3,9 @@ package com.alon.spring.crud.domain.repository;
 import com.alon.spring.crud.domain.model.BaseEntity;
 import com.alon.spring.crud.domain.service.SearchCriteria;
 import com.cosium.spring.data.jpa.entity.graph.repository.support.EntityGraphSimpleJpaRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.query.QueryUtils;
 
 import javax.persistence.*;
@@ -63,42 +65,36 @@ extends EntityGraphSimpleJpaRepository<NESTED_ENTITY_TYPE, NESTED_ENTITY_ID_TYPE
     public List<NESTED_ENTITY_TYPE> search(
             MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
 
-        CriteriaQuery<NESTED_ENTITY_TYPE> criteriaQuery = builder.createQuery(nestedEntityType);
-        Root<NESTED_ENTITY_TYPE> from = criteriaQuery.from(nestedEntityType);
-        criteriaQuery.select(from);
-
-        Predicate predicate = builder.equal(from.get(masterFieldName).get(masterIdFieldName), masterId);
+        if (searchCriteria.getSelect() != null)
+            return searchSelected(masterId, searchCriteria);
 
-        if (searchCriteria.getFilter() != null)
-            predicate = builder.and(predicate,
-                    searchCriteria.getFilter().toPredicate(from, criteriaQuery, builder));
-
-        criteriaQuery.where(predicate);
+        TypedQuery<NESTED_ENTITY_TYPE> typedQuery = createSearchQuery(masterId, searchCriteria);
 
         if (searchCriteria.getPageable() != null) {
-            Sort sort = searchCriteria
-                    .getPageable()
-                    .getSortOr(unsorted());
+            typedQuery.setFirstResult((int) searchCriteria.getPageable().getOffset());
+            typedQuery.setMaxResults(searchCriteria.getPageable().getPageSize());
+        }
 
-            List<Order> orders = QueryUtils.toOrders(sort, from, builder);
+        List<NESTED_ENTITY_TYPE> result = typedQuery.getResultList();
 
-            criteriaQuery.orderBy(orders);
-        }
+        if (searchCriteria.getFetchPlan() != null)
+            searchCriteria.getFetchPlan().fetch(entityManager, nestedEntityType, result, searchCriteria.getFetchExpand());
 
-        TypedQuery<NESTED_ENTITY_TYPE> typedQuery = entityManager.createQuery(criteriaQuery);
+        return result;
+    }
 
-        if (searchCriteria.getPageable() != null) {
-            typedQuery.setFirstResult((int) searchCriteria.getPageable().getOffset());
-            typedQuery.setMaxResults(searchCriteria.getPageable().getPageSize());
-        }
+    /**
+     * Same as search, but ignoring the page and reading the results incrementally, up to maxRows
+     * results when it is greater than 0. The stream must be consumed inside a transaction and closed.
+     */
+    public Stream<NESTED_ENTITY_TYPE> stream(
+            MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria, int fetchSize, int maxRows) {
 
-        if (searchCriteria.getExpand() != null && !searchCriteria.getExpand().isEmpty()) {
-            List<String> expand = new ArrayList<>();
-            expand.addAll(searchCriteria.getExpand());
-            typedQuery.setHint(EXPAND_HINT, resolveExpand(expand));
-        }
+        TypedQuery<NESTED_ENTITY_TYPE> typedQuery = createSearchQuery(masterId, searchCriteria);
 
-        return typedQuery.getResultList();
+        StreamQuery.applyStreamHints(typedQuery, fetchSize, maxRows);
+
+        return typedQuery.getResultStream();
     }
 
     public Optional<NESTED_ENTITY_TYPE> findById(
@@ -148,6 +144,61 @@ extends EntityGraphSimpleJpaRepository<NESTED_ENTITY_TYPE, NESTED_ENTITY_ID_TYPE
         }
     }
 
+    private List<NESTED_ENTITY_TYPE> searchSelected(
+            MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
+
+        Specification<NESTED_ENTITY_TYPE> filter = Specification.where(
+                (from, query, builder) -> builder.equal(from.get(masterFieldName).get(masterIdFieldName), masterId));
+
+        if (searchCriteria.getFilter() != null)
+            filter = filter.and(searchCriteria.getFilter());
+
+        Pageable pageable = searchCriteria.getPageable();
+
+        if (pageable == null || pageable.isUnpaged())
+            return SelectQuery.find(entityManager, nestedEntityType, filter,
+                    pageable == null ? unsorted() : pageable.getSort(), 0, -1, searchCriteria.getSelect());
+
+        return SelectQuery.find(entityManager, nestedEntityType, filter, pageable.getSort(),
+                pageable.getOffset(), pageable.getPageSize(), searchCriteria.getSelect());
+    }
+
+    private TypedQuery<NESTED_ENTITY_TYPE> createSearchQuery(
+            MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
+
+        CriteriaQuery<NESTED_ENTITY_TYPE> criteriaQuery = builder.createQuery(nestedEntityType);
+        Root<NESTED_ENTITY_TYPE> from = criteriaQuery.from(nestedEntityType);
+        criteriaQuery.select(from);
+
+        Predicate predicate = builder.equal(from.get(masterFieldName).get(masterIdFieldName), masterId);
+
+        if (searchCriteria.getFilter() != null)
+            predicate = builder.and(predicate,
+                    searchCriteria.getFilter().toPredicate(from, criteriaQuery, builder));
+
+        criteriaQuery.where(predicate);
+
+        if (searchCriteria.getPageable() != null) {
+            Sort sort = searchCriteria
+                    .getPageable()
+                    .getSortOr(unsorted());
+
+            List<Order> orders = QueryUtils.toOrders(sort, from, builder);
+
+            criteriaQuery.orderBy(orders);
+        }
+
+        TypedQuery<NESTED_ENTITY_TYPE> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        if (searchCriteria.getExpand() != null && !searchCriteria.getExpand().isEmpty()) {
+            List<String> expand = new ArrayList<>();
+            expand.addAll(searchCriteria.getExpand());
+            typedQuery.setHint(EXPAND_HINT, resolveExpand(expand));
+        }
+
+        return typedQuery;
+    }
+
     private EntityGraph<NESTED_ENTITY_TYPE> resolveExpand(List<String> expand) {
         EntityGraph<NESTED_ENTITY_TYPE> graph = entityManager.createEntityGraph(nestedEntityType);
 
@@ -0,0 +1,197 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.ConfigurablePropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries that select only some attributes of the entity, instead of the whole row.
+ *
+ * The attributes can be paths through to-one associations and embeddables, like "owner.name":
+ * the associations are left joined and their ids are also selected. Each row is returned as a
+ * new, detached instance of the entity, with only the selected attributes and the ids set.
+ */
+public final class SelectQuery {
+
+    private SelectQuery() {}
+
+    /**
+     * @param limit The maximum number of rows, or a negative number for all the rows
+     */
+    public static <T extends BaseEntity<?>> List<T> find(EntityManager entityManager, Class<T> entityType,
+            Specification<T> filter, Sort sort, long offset, int limit, Collection<String> attributes) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = builder.createTupleQuery();
+        Root<T> from = criteriaQuery.from(entityType);
+
+        Selector selector = new Selector(entityManager.getMetamodel().entity(entityType), from);
+        selector.add(idName(selector.rootType));
+        attributes.forEach(selector::add);
+
+        criteriaQuery.multiselect(selector.selections);
+
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(from, criteriaQuery, builder);
+
+            if (predicate != null)
+                criteriaQuery.where(predicate);
+        }
+
+        if (sort != null && sort.isSorted())
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, from, builder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        if (offset > 0)
+            typedQuery.setFirstResult((int) offset);
+
+        if (limit >= 0)
+            typedQuery.setMaxResults(limit);
+
+        List<T> entities = new ArrayList<>();
+
+        for (Tuple tuple : typedQuery.getResultList())
+            entities.add(selector.hydrate(entityType, tuple));
+
+        return entities;
+    }
+
+    private static String idName(EntityType<?> entityType) {
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    private static final class Selector {
+
+        private final EntityType<?> rootType;
+        private final Root<?> root;
+
+        private final List<String> paths = new ArrayList<>();
+        private final List<Selection<?>> selections = new ArrayList<>();
+
+        // The joined associations, by path, and the paths of their ids
+        private final Map<String, From<?, ?>> joins = new HashMap<>();
+        private final Map<String, String> joinIds = new LinkedHashMap<>();
+
+        private Selector(EntityType<?> rootType, Root<?> root) {
+            this.rootType = rootType;
+            this.root = root;
+        }
+
+        private void add(String attributePath) {
+            if (paths.contains(attributePath))
+                return;
+
+            String[] properties = attributePath.split("\\.");
+
+            ManagedType<?> managedType = rootType;
+            Path<?> path = root;
+            String prefix = "";
+
+            for (int i = 0; i < properties.length; i++) {
+                String property = properties[i];
+                Attribute<?, ?> attribute = managedType.getAttribute(property);
+
+                if (attribute.isCollection())
+                    throw new IllegalArgumentException(String.format(
+                            "The collection '%s' can't be selected", attributePath));
+
+                if (i == properties.length - 1) {
+                    path = path.get(property);
+                    break;
+                }
+
+                Type<?> type = ((SingularAttribute<?, ?>) attribute).getType();
+
+                if (!(type instanceof ManagedType))
+                    throw new IllegalArgumentException(String.format(
+                            "The attribute '%s' has no property '%s'", property, properties[i + 1]));
+
+                prefix = prefix.isEmpty() ? property : prefix + "." + property;
+
+                if (attribute.isAssociation())
+                    path = join(prefix, path, property, (ManagedType<?>) type);
+                else
+                    path = path.get(property);
+
+                managedType = (ManagedType<?>) type;
+            }
+
+            paths.add(attributePath);
+            selections.add(path);
+        }
+
+        private From<?, ?> join(String prefix, Path<?> parent, String property, ManagedType<?> type) {
+            From<?, ?> join = joins.get(prefix);
+
+            if (join != null)
+                return join;
+
+            if (!(parent instanceof From))
+                throw new IllegalArgumentException(String.format(
+                        "The association '%s' can't be selected through an embeddable", prefix));
+
+            join = ((From<?, ?>) parent).join(property, JoinType.LEFT);
+            joins.put(prefix, join);
+
+            String idPath = prefix + "." + idName((EntityType<?>) type);
+            joinIds.put(prefix, idPath);
+            paths.add(idPath);
+            selections.add(join.get(idName((EntityType<?>) type)));
+
+            return join;
+        }
+
+        private <T> T hydrate(Class<T> entityType, Tuple tuple) {
+            T entity = BeanUtils.instantiateClass(entityType);
+
+            ConfigurablePropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(entity);
+            accessor.setAutoGrowNestedPaths(true);
+
+            List<String> absentJoins = new ArrayList<>();
+
+            joinIds.forEach((prefix, idPath) -> {
+                if (tuple.get(paths.indexOf(idPath)) == null)
+                    absentJoins.add(prefix + ".");
+            });
+
+            for (int i = 0; i < paths.size(); i++) {
+                String path = paths.get(i);
+                Object value = tuple.get(i);
+
+                if (value != null && absentJoins.stream().noneMatch(path::startsWith))
+                    accessor.setPropertyValue(path, value);
+            }
+
+            return entity;
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static org.springframework.data.domain.Sort.unsorted;
+
+/**
+ * Offset pagination queries without the count query. One row more than the page size
+ * is fetched, so the caller knows if there is a next page.
+ */
+public final class SliceQuery {
+
+    private static final String EXPAND_HINT = "javax.persistence.loadgraph";
+
+    private SliceQuery() {}
+
+    /**
+     * @return Up to pageable.getPageSize() + 1 rows, or all the rows if the pageable is unpaged
+     */
+    public static <T extends BaseEntity<?>> List<T> find(EntityManager entityManager, Class<T> entityType,
+            Specification<T> filter, Pageable pageable, List<String> expand) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = builder.createQuery(entityType);
+        Root<T> from = criteriaQuery.from(entityType);
+        criteriaQuery.select(from);
+
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(from, criteriaQuery, builder);
+
+            if (predicate != null)
+                criteriaQuery.where(predicate);
+        }
+
+        Sort sort = pageable.getSortOr(unsorted());
+
+        if (sort.isSorted())
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, from, builder));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize() + 1);
+        }
+
+        if (expand != null && !expand.isEmpty())
+            typedQuery.setHint(EXPAND_HINT, EntityGraphResolver.resolveExpand(entityManager, entityType, expand));
+
+        return typedQuery.getResultList();
+    }
+
+}
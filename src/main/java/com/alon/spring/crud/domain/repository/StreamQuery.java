@@ -0,0 +1,71 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries whose results are read incrementally from the JDBC cursor, instead of being
+ * loaded into a list. The stream must be consumed inside a transaction and closed.
+ */
+public final class StreamQuery {
+
+    private static final String EXPAND_HINT = "javax.persistence.loadgraph";
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    private StreamQuery() {}
+
+    /**
+     * @param maxRows The maximum of entities read, 0 is no maximum
+     */
+    public static <T extends BaseEntity<?>> Stream<T> stream(EntityManager entityManager, Class<T> entityType,
+            Specification<T> filter, Sort sort, List<String> expand, int fetchSize, int maxRows) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = builder.createQuery(entityType);
+        Root<T> from = criteriaQuery.from(entityType);
+        criteriaQuery.select(from);
+
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(from, criteriaQuery, builder);
+
+            if (predicate != null)
+                criteriaQuery.where(predicate);
+        }
+
+        if (sort != null && sort.isSorted())
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, from, builder));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+
+        applyStreamHints(typedQuery, fetchSize, maxRows);
+
+        if (expand != null && !expand.isEmpty())
+            typedQuery.setHint(EXPAND_HINT, EntityGraphResolver.resolveExpand(entityManager, entityType, expand));
+
+        return typedQuery.getResultStream();
+    }
+
+    /**
+     * The entities are loaded as read only, so Hibernate doesn't keep their dirty checking snapshots.
+     */
+    static void applyStreamHints(TypedQuery<?> typedQuery, int fetchSize, int maxRows) {
+        typedQuery.setHint(FETCH_SIZE_HINT, fetchSize);
+        typedQuery.setHint(READ_ONLY_HINT, true);
+
+        if (maxRows > 0)
+            typedQuery.setMaxResults(maxRows);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Hook executed after the commit of a write, with the id of the written entity and, for the
+ * nested services, the id of its master. The ids are kept in the outbox as strings, so they
+ * are converted back to the id types of the service before the execution.
+ */
+public final class AsyncHook {
+
+    private final String key;
+    private final Class<?> idType;
+    private final Class<?> masterIdType;
+    private final BiConsumer<Object, Object> hook;
+
+    AsyncHook(String key, Class<?> idType, Class<?> masterIdType, BiConsumer<Object, Object> hook) {
+        this.key = key;
+        this.idType = idType;
+        this.masterIdType = masterIdType;
+        this.hook = hook;
+    }
+
+    /**
+     * @return The entity type, the life cycle hook and the name of the hook, which identify
+     *         the hook in the outbox
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public void execute(String entityId, String masterId) {
+        ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+        hook.accept(conversionService.convert(entityId, idType),
+                masterId == null ? null : conversionService.convert(masterId, masterIdType));
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.domain.service.outbox.HookOutbox;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the async hooks by service, like the {@link HookManager}, and by key, so the outbox
+ * finds the hook of each of its entries. A key registered again by another service instance,
+ * like the one of another application context in the same JVM, is replaced by the new hook.
+ */
+public final class AsyncHookManager {
+
+    private AsyncHookManager() {}
+
+    private static final Map<Object, HookChains<AsyncHook>> SERVICE_HOOKS = new ConcurrentHashMap<>();
+    private static final Map<String, AsyncHook> HOOKS_BY_KEY = new ConcurrentHashMap<>();
+
+    static void addHook(Object service, LifeCycleHook hookType, String name, BiConsumer<Object, Object> hook) {
+        Class<?> entityType;
+        Class<?> idType;
+        Class<?> masterIdType = null;
+
+        if (service instanceof CrudService) {
+            entityType = ((CrudService) service).getEntityType();
+            idType = ServiceTypeResolver.resolve(service.getClass(), CrudService.class, 0);
+        } else if (service instanceof NestedCrudService) {
+            entityType = ((NestedCrudService) service).getNestedEntityType();
+            idType = ServiceTypeResolver.resolve(service.getClass(), NestedCrudService.class, 2);
+            masterIdType = ServiceTypeResolver.resolve(service.getClass(), NestedCrudService.class, 0);
+        } else {
+            throw new IllegalArgumentException(String.format(
+                    "Async hooks are not supported by %s", service.getClass().getName()));
+        }
+
+        String key = String.format("%s:%s:%s", entityType.getName(), hookType, name);
+        AsyncHook asyncHook = new AsyncHook(key, idType, masterIdType, hook);
+        HookChains<AsyncHook> hooks = SERVICE_HOOKS.computeIfAbsent(service, s -> new HookChains<>());
+
+        for (Object registered : hooks.get(hookType)) {
+            if (((AsyncHook) registered).getKey().equals(key))
+                throw new IllegalStateException(String.format("There is already an async hook with the key %s", key));
+        }
+
+        HOOKS_BY_KEY.put(key, asyncHook);
+        hooks.add(hookType, asyncHook);
+    }
+
+    static boolean hasHooks(Object service, LifeCycleHook hookType) {
+        HookChains<AsyncHook> hooks = SERVICE_HOOKS.get(service);
+
+        return hooks != null && hooks.get(hookType).length > 0;
+    }
+
+    /**
+     * Executes the write in a transaction when the service has async hooks for it, so the
+     * entries recorded by the write are committed or rolled back with it.
+     */
+    static <T> T write(Object service, LifeCycleHook hookType, Supplier<T> action) {
+        if (!hasHooks(service, hookType))
+            return action.get();
+
+        return Transactions.required(action);
+    }
+
+    /**
+     * Records an entry for each async hook of the service in the outbox, in the current transaction.
+     */
+    static void record(Object service, LifeCycleHook hookType, Object id, Object masterId) {
+        HookChains<AsyncHook> hooks = SERVICE_HOOKS.get(service);
+
+        if (hooks == null || hooks.get(hookType).length == 0)
+            return;
+
+        ApplicationContextProvider.getApplicationContext()
+                .getBean(HookOutbox.class)
+                .record((List) List.of(hooks.get(hookType)), id, masterId);
+    }
+
+    static void clearHooks(Object service, LifeCycleHook... hookTypes) {
+        HookChains<AsyncHook> hooks = SERVICE_HOOKS.get(service);
+
+        if (hooks == null)
+            return;
+
+        for (LifeCycleHook hookType : hookTypes) {
+            // The key may have been registered again by another service since
+            for (Object hook : hooks.get(hookType))
+                HOOKS_BY_KEY.remove(((AsyncHook) hook).getKey(), hook);
+
+            hooks.clear(hookType);
+        }
+    }
+
+    /**
+     * @return The hook with the key, or null if it is not registered
+     */
+    public static AsyncHook getHook(String key) {
+        return HOOKS_BY_KEY.get(key);
+    }
+
+    public static boolean isEmpty() {
+        return HOOKS_BY_KEY.isEmpty();
+    }
+
+}
@@ -1,63 +1,73 @@
 package com.alon.spring.crud.domain.service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 public final class BiHookManager {
 
     private BiHookManager() {}
 
-    protected static Map<BiHookable, Map<LifeCycleHook, List<BiFunction>>> GLOBAL_HOOKS = new HashMap<>();
+    private static final Map<BiHookable, HookChains<BiFunction>> GLOBAL_HOOKS = new ConcurrentHashMap<>();
 
+    /*
+     * The services without hooks are not in the map, so their executions return right after the lookup.
+     */
     protected static <S extends BiHookable, PA, PB> PA executeHook(
             S service, LifeCycleHook hookType, PA paramA, PB paramB) {
 
-        List<BiFunction> hooks = getHooks(service, hookType);
+        HookChains<BiFunction> hooks = GLOBAL_HOOKS.get(service);
 
-        for (BiFunction hook : hooks) {
-            paramA = (PA) hook.apply(paramA, paramB);
+        if (hooks == null)
+            return paramA;
+
+        Object[] chain = hooks.get(hookType);
+        HookInstrumentation instrumentation = chain.length == 0 ? null : HookInstrumentation.get();
+
+        if (instrumentation == null || !instrumentation.isEnabled()) {
+            for (Object hook : chain)
+                paramA = (PA) ((BiFunction) hook).apply(paramA, paramB);
+
+            return paramA;
+        }
+
+        for (int i = 0; i < chain.length; i++) {
+            long start = System.nanoTime();
+
+            try {
+                paramA = (PA) ((BiFunction) chain[i]).apply(paramA, paramB);
+            } catch (RuntimeException | Error e) {
+                instrumentation.record(service, hookType, i, System.nanoTime() - start, e);
+                throw e;
+            }
+
+            instrumentation.record(service, hookType, i, System.nanoTime() - start, null);
         }
 
         return paramA;
     }
 
     protected static <S extends BiHookable> void addHook(S hookable, LifeCycleHook hookType, BiFunction hook) {
-        getServiceHooks(hookable).get(hookType).add(hook);
+        GLOBAL_HOOKS.computeIfAbsent(hookable, service -> new HookChains<>()).add(hookType, hook);
     }
 
     protected static <S extends BiHookable> List<BiFunction> getHooks(S service, LifeCycleHook hookType) {
-        return getServiceHooks(service).get(hookType);
-    }
-
-    protected static <S extends BiHookable> Map<LifeCycleHook, List<BiFunction>> getServiceHooks(S service) {
-        Map<LifeCycleHook, List<BiFunction>> hooks = GLOBAL_HOOKS.get(service);
+        HookChains<BiFunction> hooks = GLOBAL_HOOKS.get(service);
 
         if (hooks == null)
-            hooks = initHooks(service);
+            return List.of();
 
-        return hooks;
-    }
-
-    protected static <T extends BiHookable> Map<LifeCycleHook, List<BiFunction>> initHooks(T service) {
-        Map<LifeCycleHook, List<BiFunction>> hooks = new HashMap<>();
-
-        for (LifeCycleHook hook : LifeCycleHook.values())
-            hooks.put(hook, new ArrayList<>());
-
-        GLOBAL_HOOKS.put(service, hooks);
-
-        return hooks;
+        return (List) List.of(hooks.get(hookType));
     }
 
     protected static <T extends BiHookable> void clearHooks(T service, LifeCycleHook... hookTypes) {
-        for (LifeCycleHook hook : hookTypes) {
-            Map<LifeCycleHook, List<BiFunction>> hooks = GLOBAL_HOOKS.get(service);
+        HookChains<BiFunction> hooks = GLOBAL_HOOKS.get(service);
 
-            if (hooks != null)
-                hooks.get(hook).clear();
-        }
+        if (hooks == null)
+            return;
+
+        for (LifeCycleHook hookType : hookTypes)
+            hooks.clear(hookType);
     }
 }
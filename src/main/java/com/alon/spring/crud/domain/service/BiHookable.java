@@ -2,6 +2,7 @@ package com.alon.spring.crud.domain.service;
 
 import org.springframework.data.domain.Page;
 
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
 import static com.alon.spring.crud.domain.service.BiHookManager.addHook;
@@ -70,6 +71,25 @@ public interface BiHookable<MASTER_ENTITY_ID_TYPE, ENTITY_ID_TYPE, ENTITY_TYPE>
         addHook(this, AFTER_DELETE, function);
     }
 
+    /**
+     * Adds a hook executed with the id of each created entity and the id of its master after the
+     * commit, by the async hook workers. See {@link Hookable#addAsyncAfterCreateHook}.
+     */
+    default void addAsyncAfterCreateHook(String name, BiConsumer<ENTITY_ID_TYPE, MASTER_ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_CREATE, name,
+                (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id, (MASTER_ENTITY_ID_TYPE) masterId));
+    }
+
+    default void addAsyncAfterUpdateHook(String name, BiConsumer<ENTITY_ID_TYPE, MASTER_ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_UPDATE, name,
+                (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id, (MASTER_ENTITY_ID_TYPE) masterId));
+    }
+
+    default void addAsyncAfterDeleteHook(String name, BiConsumer<ENTITY_ID_TYPE, MASTER_ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_DELETE, name,
+                (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id, (MASTER_ENTITY_ID_TYPE) masterId));
+    }
+
     default SearchCriteria executeBeforeSearchHooks(SearchCriteria search, MASTER_ENTITY_ID_TYPE masterId) {
         return executeHook(this, BEFORE_SEARCH, search, masterId);
     }
@@ -112,6 +132,7 @@ public interface BiHookable<MASTER_ENTITY_ID_TYPE, ENTITY_ID_TYPE, ENTITY_TYPE>
 
     default void clearHooks(LifeCycleHook... hookTypes) {
         BiHookManager.clearHooks(this, hookTypes);
+        AsyncHookManager.clearHooks(this, hookTypes);
     }
 
 }
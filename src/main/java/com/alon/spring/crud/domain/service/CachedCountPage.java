@@ -0,0 +1,33 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page searched with a count cache. When the total is estimated, it is a recent total
+ * that may not reflect the latest writes.
+ */
+public class CachedCountPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean estimated;
+
+    public CachedCountPage(List<T> content, Pageable pageable, long total, boolean estimated) {
+        super(content, pageable, total);
+        this.estimated = estimated;
+    }
+
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    @Override
+    public <U> CachedCountPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CachedCountPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), estimated);
+    }
+
+}
@@ -1,16 +1,36 @@
 package com.alon.spring.crud.domain.service;
 
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.core.metrics.CrudInstrumentation;
+import com.alon.spring.crud.core.metrics.CrudMetrics;
+import com.alon.spring.crud.core.metrics.CrudOperation;
 import com.alon.spring.crud.domain.model.BaseEntity;
 import com.alon.spring.crud.domain.repository.CrudRepository;
+import com.alon.spring.crud.domain.repository.IdFirstQuery;
+import com.alon.spring.crud.domain.repository.KeysetQuery;
+import com.alon.spring.crud.domain.repository.SelectQuery;
+import com.alon.spring.crud.domain.repository.SliceQuery;
+import com.alon.spring.crud.domain.repository.StreamQuery;
+import com.alon.spring.crud.domain.service.cache.CountCache;
+import com.alon.spring.crud.domain.service.cache.EntityCache;
 import com.alon.spring.crud.domain.service.exception.*;
 import com.cosium.spring.data.jpa.entity.graph.domain.DynamicEntityGraph;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 
+import javax.persistence.EntityManager;
 import javax.validation.Valid;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
 
@@ -22,107 +42,429 @@ extends Hookable<ENTITY_ID_TYPE, ENTITY_TYPE> {
     
     REPOSITORY getRepository();
 
+    default Class<ENTITY_TYPE> getEntityType() {
+        return ServiceTypeResolver.resolve(getClass(), CrudService.class, 1);
+    }
+
+    /**
+     * Override to enable the entity cache on reads. It must return always the same instance.
+     * The entries are invalidated on update and delete.
+     */
+    default EntityCache<ENTITY_ID_TYPE, ENTITY_TYPE> getEntityCache() {
+        return null;
+    }
+
+    /**
+     * Override to enable the count cache on searches. It must return always the same instance.
+     * The totals are reused while the entity type is not written.
+     */
+    default CountCache getCountCache() {
+        return null;
+    }
+
+    /**
+     * Used by the queries that are not supported by the repository, like the keyset pagination.
+     * By default, it is the shared EntityManager of the application context.
+     */
+    default EntityManager getEntityManager() {
+        return ApplicationContextProvider.getApplicationContext().getBean(EntityManager.class);
+    }
+
     default Page<ENTITY_TYPE> search(SearchCriteria criteria) {
-    	
+        return instrument(CrudOperation.SEARCH, () -> {
+            try {
+                HookManager.executeHook(this, criteria, BEFORE_SEARCH);
+
+                Page<ENTITY_TYPE> searchResult;
+
+                if (criteria.getFetchExpand() == null || criteria.getFetchExpand().isEmpty()) {
+                    searchResult = findPage(criteria);
+                } else {
+                    // The secondary fetches set the associations on the entities of the same persistence context
+                    searchResult = Transactions.readOnly(() -> {
+                        Page<ENTITY_TYPE> page = findPage(criteria);
+
+                        criteria.getFetchPlan().fetch(getEntityManager(), getEntityType(),
+                                page.getContent(), criteria.getFetchExpand());
+
+                        return page;
+                    });
+                }
+
+                HookManager.executeHook(this, searchResult, AFTER_SEARCH);
+
+                CrudMetrics metrics = CrudInstrumentation.get();
+
+                if (metrics != CrudMetrics.NONE) {
+                    metrics.recordSearch(getEntityType(), criteria.getSearchOption(), searchResult.getNumberOfElements());
+                    metrics.recordExpand(getEntityType(), CrudOperation.SEARCH,
+                            CrudInstrumentation.expandDepth(criteria.getExpand()));
+                }
+
+                return searchResult;
+            } catch (InvalidCursorException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                String message = String.format("Error searching entities: %s", ex.getMessage());
+                throw new ReadException(message, ex);
+            }
+        });
+    }
+
+    /**
+     * Passes all the entities selected by the criteria to the consumer, reading them from
+     * the database cursor. The page of the pageable is ignored, only its sort is used.
+     * The persistence context is cleared every clearInterval entities, so the memory
+     * doesn't grow with the number of rows. The AFTER_SEARCH hooks are executed on each
+     * chunk of clearInterval entities, as on a page of the search.
+     *
+     * @param maxRows The maximum of exported entities, 0 is no maximum
+     */
+    default void export(SearchCriteria criteria, int fetchSize, int clearInterval, int maxRows,
+            Consumer<ENTITY_TYPE> consumer) {
+
         try {
             HookManager.executeHook(this, criteria, BEFORE_SEARCH);
 
-            Pageable pageable = criteria.getPageable();
-            
-            Page<ENTITY_TYPE> searchResult;
+            EntityManager entityManager = getEntityManager();
+
+            List<String> expand = criteria.getExpand() != null ? List.copyOf(criteria.getExpand()) : List.of();
+            List<String> collectionPaths = IdFirstQuery.collectionPaths(entityManager, getEntityType(), expand);
+            boolean afterSearchHooks = hasHooks(AFTER_SEARCH);
+
+            if (collectionPaths.isEmpty() && !afterSearchHooks) {
+                EntityStreams.forEach(entityManager,
+                        () -> StreamQuery.stream(entityManager, getEntityType(), criteria.getFilter(),
+                                criteria.getPageable().getSort(), expand, fetchSize, maxRows),
+                        clearInterval, consumer);
+                return;
+            }
+
+            // The fetched collections would repeat the rows of the stream, so they are loaded by chunk
+            List<String> streamPaths = new ArrayList<>(expand);
+            streamPaths.removeAll(collectionPaths);
+
+            EntityStreams.forEachChunk(entityManager,
+                    () -> StreamQuery.stream(entityManager, getEntityType(), criteria.getFilter(),
+                            criteria.getPageable().getSort(), streamPaths, fetchSize, maxRows),
+                    clearInterval,
+                    chunk -> {
+                        List<ENTITY_TYPE> entities = collectionPaths.isEmpty()
+                                ? chunk
+                                : IdFirstQuery.loadExpand(entityManager, getEntityType(), chunk, collectionPaths);
+
+                        if (!afterSearchHooks)
+                            return entities;
+
+                        Page<ENTITY_TYPE> page = HookManager.executeHook(this, new PageImpl<>(entities), AFTER_SEARCH);
+
+                        return page.getContent();
+                    },
+                    consumer);
+        } catch (Throwable ex) {
+            String message = String.format("Error exporting entities: %s", ex.getMessage());
+            throw new ReadException(message, ex);
+        }
+    }
+
+    default ENTITY_TYPE create(@Valid ENTITY_TYPE entity) {
+        return instrument(CrudOperation.CREATE, () -> {
+            try {
+                return AsyncHookManager.write(this, AFTER_CREATE, () -> {
+                    ENTITY_TYPE created = HookManager.executeHook(this, entity, BEFORE_CREATE);
+                    created = (ENTITY_TYPE) getRepository().save(created);
+                    ModificationEpochs.advanceResolving(this::getEntityType);
+                    created = HookManager.executeHook(this, created, AFTER_CREATE);
+                    AsyncHookManager.record(this, AFTER_CREATE, created.getId(), null);
+                    return created;
+                });
+            } catch (Throwable ex) {
+                throw new CreateException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    default ENTITY_TYPE read(ENTITY_ID_TYPE id) {
+        return this.read(id, null);
+    }
+
+    default ENTITY_TYPE read(ENTITY_ID_TYPE id, List<String> expand) {
+        return this.read(id, expand, true);
+    }
+
+    /**
+     * @param useCache Must be false when the returned entity will be modified,
+     *                 since cached entities are shared between requests
+     */
+    default ENTITY_TYPE read(ENTITY_ID_TYPE id, List<String> expand, boolean useCache) {
+        return instrument(CrudOperation.READ, () -> {
+            try {
+                ENTITY_ID_TYPE entityId = HookManager.executeHook(this, id, BEFORE_READ);
+
+                EntityCache<ENTITY_ID_TYPE, ENTITY_TYPE> cache = useCache ? getEntityCache() : null;
+
+                ENTITY_TYPE entity = cache != null ? cache.get(entityId, expand) : null;
+
+                if (entity == null) {
+                    long stamp = cache != null ? cache.stamp(entityId) : 0;
+
+                    Optional<ENTITY_TYPE> opt;
+
+                    if (expand != null && !expand.isEmpty())
+                        opt = getRepository().findById(entityId, new DynamicEntityGraph(expand));
+                    else
+                        opt = getRepository().findById(entityId);
+
+                    if (opt.isEmpty())
+                        throw new NotFoundException(String.format("ID not found -> %s", entityId));
+
+                    entity = opt.get();
+
+                    if (cache != null)
+                        cache.put(entityId, expand, entity, stamp);
+                }
+
+                entity = HookManager.executeHook(this, entity, AFTER_READ);
+
+                CrudInstrumentation.get().recordExpand(getEntityType(), CrudOperation.READ,
+                        CrudInstrumentation.expandDepth(expand));
+
+                return entity;
+            } catch (NotFoundException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                String message = String.format("Error reading entity: %s", ex.getMessage());
+                throw new ReadException(message, ex);
+            }
+        });
+    }
+
+    default ENTITY_TYPE update(@Valid ENTITY_TYPE entity) {
+        return instrument(CrudOperation.UPDATE, () -> {
+            if (!getRepository().existsById(entity.getId()))
+                throw new NotFoundException("Entity to update not found");
 
+            try {
+                return AsyncHookManager.write(this, AFTER_UPDATE, () -> {
+                    ENTITY_TYPE updated = HookManager.executeHook(this, entity, BEFORE_UPDATE);
+                    updated = (ENTITY_TYPE) this.getRepository().save(updated);
+                    ModificationEpochs.advanceResolving(this::getEntityType);
+                    invalidateEntityCache(updated.getId());
+                    updated = HookManager.executeHook(this, updated, AFTER_UPDATE);
+                    AsyncHookManager.record(this, AFTER_UPDATE, updated.getId(), null);
+                    return updated;
+                });
+            } catch (Throwable ex) {
+                throw new UpdateException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    default void delete(ENTITY_ID_TYPE id) {
+        instrument(CrudOperation.DELETE, () -> {
+            if (!getRepository().existsById(id))
+                throw new NotFoundException(String.format("ID not found -> %s", id));
+
+            try {
+                AsyncHookManager.write(this, AFTER_DELETE, () -> {
+                    HookManager.executeHook(this, id, BEFORE_DELETE);
+                    getRepository().deleteById(id);
+                    ModificationEpochs.advanceResolving(this::getEntityType);
+                    invalidateEntityCache(id);
+                    HookManager.executeHook(this, id, AFTER_DELETE);
+                    AsyncHookManager.record(this, AFTER_DELETE, id, null);
+                    return null;
+                });
+            } catch (Throwable ex) {
+                throw new DeleteException(ex.getMessage(), ex);
+            }
+
+            return null;
+        });
+    }
+
+    /*
+     * Fetches one row more than the page size to know if there is a next page without counting.
+     */
+    private KeysetPage<ENTITY_TYPE> searchByKeyset(SearchCriteria criteria) {
+        Pageable pageable = criteria.getPageable();
+
+        if (pageable.isUnpaged())
+            throw new InvalidCursorException("The cursor requires a page size");
+
+        EntityManager entityManager = getEntityManager();
+
+        Sort sort = KeysetQuery.resolveSort(entityManager, getEntityType(), pageable.getSort());
+
+        List<ENTITY_TYPE> rows = findRows(criteria, expand -> KeysetQuery.find(entityManager, getEntityType(),
+                criteria.getFilter(), sort, criteria.getKeyset(), pageable.getPageSize() + 1, expand));
+
+        return KeysetPage.of(rows, pageable.getPageSize(), sort, criteria.getKeyset());
+    }
+
+    private Page<ENTITY_TYPE> findPage(SearchCriteria criteria) {
+        Pageable pageable = criteria.getPageable();
+        Page<ENTITY_TYPE> searchResult;
+
+        if (criteria.isKeysetPagination()) {
+            searchResult = searchByKeyset(criteria);
+        } else if (criteria.getSelect() != null) {
+            searchResult = searchSelected(criteria);
+        } else if (!criteria.isCount()) {
+            searchResult = searchWithoutCount(criteria);
+        } else if (getCountCache() != null && criteria.getFilterFingerprint() != null) {
+            searchResult = searchWithCountCache(criteria, getCountCache());
+        } else {
             switch (criteria.getSearchOption()) {
                 case FILTER:
                     searchResult = getRepository().findAll(criteria.getFilter(), pageable);
                     break;
 
                 case EXPAND:
-                    searchResult = getRepository().findAll(pageable, criteria.getEntityGraph());
+                    if (isIdFirstSearch(criteria))
+                        searchResult = searchIdFirst(criteria);
+                    else
+                        searchResult = getRepository().findAll(pageable, criteria.getEntityGraph());
                     break;
 
                 case FILTER_EXPAND:
-            		searchResult = getRepository().findAll(criteria.getFilter(), pageable, criteria.getEntityGraph());
+                    if (isIdFirstSearch(criteria))
+                        searchResult = searchIdFirst(criteria);
+                    else
+                        searchResult = getRepository().findAll(criteria.getFilter(), pageable, criteria.getEntityGraph());
                     break;
 
                 case NONE:
                 default: searchResult = getRepository().findAll(pageable);
             }
+        }
 
-            HookManager.executeHook(this, searchResult, AFTER_SEARCH);
+        return searchResult;
+    }
 
-            return searchResult;
-        } catch (Throwable ex) {
-            String message = String.format("Error searching entities: %s", ex.getMessage());
-            throw new ReadException(message, ex);
+    private Page<ENTITY_TYPE> searchSelected(SearchCriteria criteria) {
+        Pageable pageable = criteria.getPageable();
+        Specification<ENTITY_TYPE> filter = criteria.getFilter();
+        Sort sort = pageable.getSortOr(Sort.unsorted());
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+
+        if (!criteria.isCount()) {
+            int limit = pageable.isPaged() ? pageable.getPageSize() + 1 : -1;
+
+            return UncountedPage.of(SelectQuery.find(getEntityManager(), getEntityType(), filter,
+                    sort, offset, limit, criteria.getSelect()), pageable);
         }
 
+        int limit = pageable.isPaged() ? pageable.getPageSize() : -1;
+
+        List<ENTITY_TYPE> content = SelectQuery.find(getEntityManager(), getEntityType(), filter,
+                sort, offset, limit, criteria.getSelect());
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> filter == null ? getRepository().count() : getRepository().count(filter));
     }
 
-    default ENTITY_TYPE create(@Valid ENTITY_TYPE entity) {
-        try {
-            entity = HookManager.executeHook(this, entity, BEFORE_CREATE);
-            entity = (ENTITY_TYPE) getRepository().save(entity);
-            return HookManager.executeHook(this, entity, AFTER_CREATE);
-        } catch (Throwable ex) {
-            throw new CreateException(ex.getMessage(), ex);
-        }
+    private boolean isIdFirstSearch(SearchCriteria criteria) {
+        return criteria.getPageable().isPaged()
+                && IdFirstQuery.expandsCollection(getEntityManager(), getEntityType(), criteria.getExpand());
     }
 
-    default ENTITY_TYPE read(ENTITY_ID_TYPE id) {
-        return this.read(id, null);
+    /*
+     * The ids of the page are selected first, so only the entities of the page are
+     * loaded with the expanded collections.
+     */
+    private Page<ENTITY_TYPE> searchIdFirst(SearchCriteria criteria) {
+        Specification<ENTITY_TYPE> filter = criteria.getFilter();
+
+        List<ENTITY_TYPE> content = IdFirstQuery.find(getEntityManager(), getEntityType(), filter,
+                criteria.getPageable(), List.copyOf(criteria.getExpand()));
+
+        return PageableExecutionUtils.getPage(content, criteria.getPageable(),
+                () -> filter == null ? getRepository().count() : getRepository().count(filter));
     }
 
-    default ENTITY_TYPE read(ENTITY_ID_TYPE id, List<String> expand) {
-        try {
-            id = HookManager.executeHook(this, id, BEFORE_READ);
+    /*
+     * The paginated queries that read more than the ids can't fetch the expanded collections,
+     * which would paginate in memory (HHH000104) and repeat the rows. They read the page without
+     * the expand, and the entities of the page are loaded again by id with it.
+     */
+    private List<ENTITY_TYPE> findRows(SearchCriteria criteria, Function<List<String>, List<ENTITY_TYPE>> query) {
+        List<String> expand = criteria.getExpand() != null ? List.copyOf(criteria.getExpand()) : null;
 
-            Optional<ENTITY_TYPE> opt;
+        if (!IdFirstQuery.expandsCollection(getEntityManager(), getEntityType(), expand))
+            return query.apply(expand);
 
-            if (expand != null && !expand.isEmpty())
-                opt = getRepository().findById(id, new DynamicEntityGraph(expand));
-            else
-                opt = getRepository().findById(id);
+        return IdFirstQuery.loadExpand(getEntityManager(), getEntityType(), query.apply(null), expand);
+    }
 
-            if (opt.isEmpty())
-                throw new NotFoundException(String.format("ID not found -> %s", id));
+    private UncountedPage<ENTITY_TYPE> searchWithoutCount(SearchCriteria criteria) {
+        List<ENTITY_TYPE> rows = findRows(criteria, expand -> SliceQuery.find(getEntityManager(), getEntityType(),
+                criteria.getFilter(), criteria.getPageable(), expand));
 
-            ENTITY_TYPE entity = opt.get();
+        return UncountedPage.of(rows, criteria.getPageable());
+    }
 
-            entity = HookManager.executeHook(this, entity, AFTER_READ);
+    /*
+     * The content is fetched with one extra row: when it is not full, and not past the last
+     * page, the total is known without counting. Otherwise, the total comes from the cache or
+     * from a count query.
+     */
+    private CachedCountPage<ENTITY_TYPE> searchWithCountCache(SearchCriteria criteria, CountCache cache) {
+        Pageable pageable = criteria.getPageable();
+        String fingerprint = criteria.getFilterFingerprint();
+        long epoch = ModificationEpochs.current(getEntityType());
 
-            return entity;
-        } catch (NotFoundException ex) {
-            throw ex;
-        } catch (Throwable ex) {
-            String message = String.format("Error reading entity: %s", ex.getMessage());
-            throw new ReadException(message, ex);
+        List<ENTITY_TYPE> rows = findRows(criteria, expand -> SliceQuery.find(getEntityManager(), getEntityType(),
+                criteria.getFilter(), pageable, expand));
+
+        // The offset of a page past the last one is not the total
+        boolean pastLastPage = pageable.isPaged() && pageable.getOffset() > 0 && rows.isEmpty();
+
+        if (!pastLastPage && (pageable.isUnpaged() || rows.size() <= pageable.getPageSize())) {
+            long total = pageable.isUnpaged() ? rows.size() : pageable.getOffset() + rows.size();
+            cache.put(fingerprint, total, epoch);
+
+            return new CachedCountPage<>(rows, pageable, total, false);
         }
+
+        List<ENTITY_TYPE> content = pastLastPage ? rows : rows.subList(0, pageable.getPageSize());
+        CountCache.Count count = cache.get(fingerprint, epoch);
+
+        if (count != null)
+            return new CachedCountPage<>(content, pageable, count.getTotal(), count.isEstimated());
+
+        long total = getRepository().count(criteria.getFilter());
+        cache.put(fingerprint, total, epoch);
+
+        return new CachedCountPage<>(content, pageable, total, false);
     }
 
-    default ENTITY_TYPE update(@Valid ENTITY_TYPE entity) {
-        if (!getRepository().existsById(entity.getId()))
-            throw new NotFoundException("Entity to update not found");
+    /*
+     * The operations are not timed when there are no CrudMetrics beans.
+     */
+    private <T> T instrument(CrudOperation operation, Supplier<T> action) {
+        CrudMetrics metrics = CrudInstrumentation.get();
+
+        if (metrics == CrudMetrics.NONE)
+            return action.get();
+
+        long start = System.nanoTime();
 
         try {
-            entity = HookManager.executeHook(this, entity, BEFORE_UPDATE);
-            entity = (ENTITY_TYPE) this.getRepository().save(entity);
-            return HookManager.executeHook(this, entity, AFTER_UPDATE);
-        } catch (Throwable ex) {
-            throw new UpdateException(ex.getMessage(), ex);
+            T result = action.get();
+            metrics.recordOperation(getEntityType(), operation, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            metrics.recordOperation(getEntityType(), operation, System.nanoTime() - start, e);
+            throw e;
         }
     }
 
-    default void delete(ENTITY_ID_TYPE id) {
-        if (!getRepository().existsById(id))
-            throw new NotFoundException(String.format("ID not found -> %s", id));
+    private void invalidateEntityCache(ENTITY_ID_TYPE id) {
+        EntityCache<ENTITY_ID_TYPE, ENTITY_TYPE> cache = getEntityCache();
 
-        try {
-        	HookManager.executeHook(this, id, BEFORE_DELETE);
-            getRepository().deleteById(id);
-            HookManager.executeHook(this, id, AFTER_DELETE);
-        } catch (Throwable ex) {
-            throw new DeleteException(ex.getMessage(), ex);
-        }
+        if (cache != null && id != null)
+            cache.invalidate(id);
     }
-    
+
 }
@@ -0,0 +1,71 @@
+package com.alon.spring.crud.domain.service;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+final class EntityStreams {
+
+    private EntityStreams() {}
+
+    /**
+     * Consumes the stream inside a read only transaction, clearing the persistence context
+     * every clearInterval entities. Each entity is passed to the consumer before the clear,
+     * so its lazy associations can still be loaded, but the consumer must not keep it.
+     */
+    static <T> void forEach(EntityManager entityManager, Supplier<Stream<T>> streamSupplier,
+            int clearInterval, Consumer<T> consumer) {
+
+        Transactions.readOnly(() -> {
+            try (Stream<T> stream = streamSupplier.get()) {
+                Iterator<T> iterator = stream.iterator();
+                int consumed = 0;
+
+                while (iterator.hasNext()) {
+                    consumer.accept(iterator.next());
+
+                    if (++consumed % clearInterval == 0)
+                        entityManager.clear();
+                }
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #forEach}, but the entities are read in chunks of clearInterval entities,
+     * and each chunk is passed to the chunk loader before the consumer, so its associations
+     * are loaded by one query instead of one query per entity.
+     *
+     * @param chunkLoader Returns the entities of the chunk to consume, in the same order
+     */
+    static <T> void forEachChunk(EntityManager entityManager, Supplier<Stream<T>> streamSupplier,
+            int clearInterval, UnaryOperator<List<T>> chunkLoader, Consumer<T> consumer) {
+
+        Transactions.readOnly(() -> {
+            try (Stream<T> stream = streamSupplier.get()) {
+                Iterator<T> iterator = stream.iterator();
+                List<T> chunk = new ArrayList<>(clearInterval);
+
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+
+                    if (chunk.size() == clearInterval || !iterator.hasNext()) {
+                        chunkLoader.apply(chunk).forEach(consumer);
+                        chunk.clear();
+                        entityManager.clear();
+                    }
+                }
+            }
+
+            return null;
+        });
+    }
+
+}
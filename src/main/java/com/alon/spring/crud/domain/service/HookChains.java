@@ -0,0 +1,41 @@
+package com.alon.spring.crud.domain.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The hooks of a service by life cycle hook. Each registration replaces the array of the life
+ * cycle hook with a copy, so the executions read the arrays without locks and never see
+ * a registration in progress.
+ */
+final class HookChains<H> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final AtomicReferenceArray<Object[]> chains = new AtomicReferenceArray<>(LifeCycleHook.values().length);
+
+    HookChains() {
+        for (int i = 0; i < chains.length(); i++)
+            chains.set(i, EMPTY);
+    }
+
+    /**
+     * @return The hooks in the order of registration. The array must not be modified.
+     */
+    Object[] get(LifeCycleHook hookType) {
+        return chains.get(hookType.ordinal());
+    }
+
+    synchronized void add(LifeCycleHook hookType, H hook) {
+        Object[] hooks = chains.get(hookType.ordinal());
+        Object[] updated = Arrays.copyOf(hooks, hooks.length + 1);
+        updated[hooks.length] = hook;
+
+        chains.set(hookType.ordinal(), updated);
+    }
+
+    synchronized void clear(LifeCycleHook hookType) {
+        chains.set(hookType.ordinal(), EMPTY);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.core.metrics.HookMetrics;
+import com.alon.spring.crud.core.properties.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Reports the hook executions to the {@link HookMetrics} beans, and warns about the hooks slower
+ * than the threshold. The beans and the threshold are resolved once for each application context;
+ * without them, the hook managers don't time the executions.
+ */
+final class HookInstrumentation {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HookInstrumentation.class);
+
+    private static final HookInstrumentation DISABLED = new HookInstrumentation(null, new HookMetrics[0], 0);
+
+    private static volatile HookInstrumentation current = DISABLED;
+
+    private final ApplicationContext context;
+    private final HookMetrics[] metrics;
+    private final long slowThresholdNanos;
+
+    private HookInstrumentation(ApplicationContext context, HookMetrics[] metrics, long slowThresholdNanos) {
+        this.context = context;
+        this.metrics = metrics;
+        this.slowThresholdNanos = slowThresholdNanos;
+    }
+
+    static HookInstrumentation get() {
+        ApplicationContext context = ApplicationContextProvider.getApplicationContext();
+        HookInstrumentation instrumentation = current;
+
+        if (instrumentation.context != context) {
+            instrumentation = create(context);
+            current = instrumentation;
+        }
+
+        return instrumentation;
+    }
+
+    private static HookInstrumentation create(ApplicationContext context) {
+        if (context == null)
+            return DISABLED;
+
+        HookMetrics[] metrics = context.getBeanProvider(HookMetrics.class)
+                .orderedStream()
+                .toArray(HookMetrics[]::new);
+
+        Properties properties = context.getBeanProvider(Properties.class).getIfAvailable();
+        long slowThreshold = properties == null ? 0 : properties.hooks.slowThreshold;
+
+        return new HookInstrumentation(context, metrics, slowThreshold * 1_000_000);
+    }
+
+    boolean isEnabled() {
+        return metrics.length > 0 || slowThresholdNanos > 0;
+    }
+
+    void record(Object service, LifeCycleHook hookType, int hookIndex, long nanos, Throwable error) {
+        Class<?> serviceType = ClassUtils.getUserClass(service);
+
+        for (HookMetrics hookMetrics : metrics)
+            hookMetrics.recordExecution(serviceType, hookType, hookIndex, nanos, error);
+
+        if (slowThresholdNanos > 0 && nanos >= slowThresholdNanos)
+            LOGGER.warn("Slow hook: the {} hook {} of {} took {} ms", hookType, hookIndex,
+                    serviceType.getSimpleName(), nanos / 1_000_000);
+    }
+
+}
@@ -1,61 +1,84 @@
 package com.alon.spring.crud.domain.service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public final class HookManager {
 
     private HookManager() {}
 
-    protected static Map<Hookable, Map<LifeCycleHook, List<Function>>> GLOBAL_HOOKS = new HashMap<>();
+    private static final Map<Hookable, HookChains<Function>> GLOBAL_HOOKS = new ConcurrentHashMap<>();
 
+    /*
+     * The services without hooks are not in the map, so their executions return right after the lookup.
+     */
     protected static <S extends Hookable, P> P executeHook(S service, P param, LifeCycleHook hookType) {
-        List<Function> hooks = getHooks(service, hookType);
+        HookChains<Function> hooks = GLOBAL_HOOKS.get(service);
 
-        param = (P) hooks.stream()
-                .reduce(Function.identity(), Function::andThen)
-                .apply(param);
+        if (hooks == null)
+            return param;
+
+        Object[] chain = hooks.get(hookType);
+        HookInstrumentation instrumentation = chain.length == 0 ? null : HookInstrumentation.get();
+
+        if (instrumentation == null || !instrumentation.isEnabled()) {
+            for (Object hook : chain)
+                param = (P) ((Function) hook).apply(param);
+
+            return param;
+        }
+
+        for (int i = 0; i < chain.length; i++) {
+            long start = System.nanoTime();
+
+            try {
+                param = (P) ((Function) chain[i]).apply(param);
+            } catch (RuntimeException | Error e) {
+                instrumentation.record(service, hookType, i, System.nanoTime() - start, e);
+                throw e;
+            }
+
+            instrumentation.record(service, hookType, i, System.nanoTime() - start, null);
+        }
 
         return param;
     }
 
     protected static <S extends Hookable> void addHook(S hookable, LifeCycleHook hookType, Function hook) {
-        getServiceHooks(hookable).get(hookType).add(hook);
+        GLOBAL_HOOKS.computeIfAbsent(hookable, service -> new HookChains<>()).add(hookType, hook);
     }
 
     protected static <S extends Hookable> List<Function> getHooks(S service, LifeCycleHook hookType) {
-        return getServiceHooks(service).get(hookType);
-    }
-
-    protected static <S extends Hookable> Map<LifeCycleHook, List<Function>> getServiceHooks(S service) {
-        Map<LifeCycleHook, List<Function>> hooks = GLOBAL_HOOKS.get(service);
+        HookChains<Function> hooks = GLOBAL_HOOKS.get(service);
 
         if (hooks == null)
-            hooks = initHooks(service);
+            return List.of();
 
-        return hooks;
+        return (List) List.of(hooks.get(hookType));
     }
 
-    protected static <T extends Hookable> Map<LifeCycleHook, List<Function>> initHooks(T service) {
-        Map<LifeCycleHook, List<Function>> hooks = new HashMap<>();
+    protected static <S extends Hookable> boolean hasHooks(S service, LifeCycleHook... hookTypes) {
+        HookChains<Function> hooks = GLOBAL_HOOKS.get(service);
 
-        for (LifeCycleHook hook : LifeCycleHook.values())
-            hooks.put(hook, new ArrayList<>());
+        if (hooks == null)
+            return false;
 
-        GLOBAL_HOOKS.put(service, hooks);
+        for (LifeCycleHook hookType : hookTypes)
+            if (hooks.get(hookType).length > 0)
+                return true;
 
-        return hooks;
+        return false;
     }
 
     protected static <T extends Hookable> void clearHooks(T service, LifeCycleHook... hookTypes) {
-        for (LifeCycleHook hook : hookTypes) {
-            Map<LifeCycleHook, List<Function>> hooks = GLOBAL_HOOKS.get(service);
+        HookChains<Function> hooks = GLOBAL_HOOKS.get(service);
 
-            if (hooks != null)
-                hooks.get(hook).clear();
-        }
+        if (hooks == null)
+            return;
+
+        for (LifeCycleHook hookType : hookTypes)
+            hooks.clear(hookType);
     }
 }
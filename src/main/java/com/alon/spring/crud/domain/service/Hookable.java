@@ -2,6 +2,7 @@ package com.alon.spring.crud.domain.service;
 
 import org.springframework.data.domain.Page;
 
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static com.alon.spring.crud.domain.service.HookManager.*;
@@ -49,6 +50,30 @@ public interface Hookable<ENTITY_ID_TYPE, ENTITY_TYPE> {
         addHook(this, AFTER_DELETE, function);
     }
 
+    /**
+     * Adds a hook executed with the id of each created entity after the commit, by the async hook
+     * workers. The execution is recorded in the outbox table in the transaction of the creation,
+     * and retried when it fails. The name identifies the hook in the outbox, so it must be unique
+     * for the entity type and kept between versions.
+     */
+    default void addAsyncAfterCreateHook(String name, Consumer<ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_CREATE, name, (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id));
+    }
+
+    /**
+     * Same as {@link #addAsyncAfterCreateHook(String, Consumer)}, for the updates
+     */
+    default void addAsyncAfterUpdateHook(String name, Consumer<ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_UPDATE, name, (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id));
+    }
+
+    /**
+     * Same as {@link #addAsyncAfterCreateHook(String, Consumer)}, for the deletions
+     */
+    default void addAsyncAfterDeleteHook(String name, Consumer<ENTITY_ID_TYPE> hook) {
+        AsyncHookManager.addHook(this, AFTER_DELETE, name, (id, masterId) -> hook.accept((ENTITY_ID_TYPE) id));
+    }
+
     default SearchCriteria executeBeforeSearchHooks(SearchCriteria entity) {
         return executeHook(this, entity, BEFORE_SEARCH);
     }
@@ -89,7 +114,15 @@ public interface Hookable<ENTITY_ID_TYPE, ENTITY_TYPE> {
         return executeHook(this, id, AFTER_DELETE);
     }
 
+    /**
+     * @return If there is a synchronous hook of any of the life cycle hooks
+     */
+    default boolean hasHooks(LifeCycleHook... hookTypes) {
+        return HookManager.hasHooks(this, hookTypes);
+    }
+
     default void clearHooks(LifeCycleHook... hookTypes) {
         HookManager.clearHooks(this, hookTypes);
+        AsyncHookManager.clearHooks(this, hookTypes);
     }
 }
@@ -0,0 +1,149 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.domain.service.exception.InvalidCursorException;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Method;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Position of a row in a sorted result, used by the keyset (seek) pagination. It holds the
+ * values of the sort properties of the row, so the next page can be fetched with a
+ * "greater than the last row" predicate instead of an OFFSET.
+ *
+ * The cursor is the URL safe Base64 of the direction, the sort properties and their values.
+ */
+public final class Keyset {
+
+    private static final String FORWARD = "n";
+    private static final String BACKWARD = "p";
+    private static final String NULL_VALUE = "~";
+
+    private final boolean backward;
+    private final List<String> properties;
+    private final List<String> values;
+
+    private Keyset(boolean backward, List<String> properties, List<String> values) {
+        this.backward = backward;
+        this.properties = properties;
+        this.values = values;
+    }
+
+    /**
+     * @param backward true if the keyset points to the page before the entity
+     */
+    public static Keyset of(Object entity, Sort sort, boolean backward) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+
+        List<String> properties = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        sort.forEach(order -> {
+            properties.add(order.getProperty());
+            values.add(toString(wrapper.getPropertyValue(order.getProperty())));
+        });
+
+        return new Keyset(backward, properties, values);
+    }
+
+    public static Keyset decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", -1);
+
+            if (parts.length != 3 || !(parts[0].equals(FORWARD) || parts[0].equals(BACKWARD)))
+                throw new InvalidCursorException(String.format("Invalid cursor -> %s", cursor));
+
+            List<String> properties = split(parts[1]);
+            List<String> values = split(parts[2]);
+
+            if (properties.size() != values.size())
+                throw new InvalidCursorException(String.format("Invalid cursor -> %s", cursor));
+
+            return new Keyset(parts[0].equals(BACKWARD), properties, values);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(String.format("Invalid cursor -> %s", cursor), e);
+        }
+    }
+
+    public String encode() {
+        String plain = String.join("|",
+                backward ? BACKWARD : FORWARD,
+                join(properties),
+                join(values));
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return The value of the sort property at the index, converted to the property type
+     */
+    public Object getValue(int index, Class<?> type) {
+        String value = values.get(index);
+
+        if (value == null || type == String.class)
+            return value;
+
+        try {
+            if (Date.class.isAssignableFrom(type))
+                return type.getConstructor(long.class).newInstance(Long.parseLong(value));
+
+            DefaultConversionService conversionService =
+                    (DefaultConversionService) DefaultConversionService.getSharedInstance();
+
+            if (conversionService.canConvert(String.class, type))
+                return conversionService.convert(value, type);
+
+            Method parse = type.getMethod("parse", CharSequence.class);
+            return parse.invoke(null, value);
+        } catch (Exception e) {
+            throw new InvalidCursorException(String.format(
+                    "Invalid cursor value for property '%s' -> %s", properties.get(index), value), e);
+        }
+    }
+
+    private static String toString(Object value) {
+        if (value == null)
+            return null;
+
+        if (value instanceof Date)
+            return String.valueOf(((Date) value).getTime());
+
+        return value.toString();
+    }
+
+    private static String join(List<String> values) {
+        return values.stream()
+                .map(value -> value == null ? NULL_VALUE : URLEncoder.encode(value, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(","));
+    }
+
+    private static List<String> split(String joined) {
+        List<String> values = new ArrayList<>();
+
+        for (String value : joined.split(",", -1))
+            values.add(value.equals(NULL_VALUE) ? null : URLDecoder.decode(value, StandardCharsets.UTF_8));
+
+        return values;
+    }
+
+}
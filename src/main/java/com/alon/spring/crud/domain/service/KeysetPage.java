@@ -0,0 +1,74 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page fetched with keyset pagination. The total of elements is not counted and the
+ * navigation is done through the next and previous cursors, which are null when
+ * there is no such page.
+ */
+public class KeysetPage<T> extends UncountedPage<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String nextCursor;
+    private final String previousCursor;
+
+    private KeysetPage(List<T> content, PageRequest pageable, String nextCursor, String previousCursor) {
+        super(content, pageable, nextCursor != null);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    /**
+     * @param rows Up to pageSize + 1 rows, in the order of the query. The extra row
+     *             only indicates that there are more rows in the query direction.
+     * @param keyset The keyset used to fetch the rows, null on the first page
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int pageSize, Sort sort, Keyset keyset) {
+        boolean hasMore = rows.size() > pageSize;
+        boolean backward = keyset != null && keyset.isBackward();
+
+        List<T> content = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+
+        if (backward)
+            Collections.reverse(content);
+
+        String nextCursor = null;
+        String previousCursor = null;
+
+        if (!content.isEmpty()) {
+            T first = content.get(0);
+            T last = content.get(content.size() - 1);
+
+            if (backward || hasMore)
+                nextCursor = Keyset.of(last, sort, false).encode();
+
+            if (backward ? hasMore : keyset != null)
+                previousCursor = Keyset.of(first, sort, true).encode();
+        }
+
+        return new KeysetPage<>(content, PageRequest.of(0, pageSize, sort), nextCursor, previousCursor);
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    @Override
+    public <U> KeysetPage<U> map(Function<? super T, ? extends U> converter) {
+        return new KeysetPage<>(getConvertedContent(converter),
+                PageRequest.of(0, getSize(), getSort()), nextCursor, previousCursor);
+    }
+
+}
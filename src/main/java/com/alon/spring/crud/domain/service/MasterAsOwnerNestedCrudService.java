@@ -1,5 +1,6 @@
 package com.alon.spring.crud.domain.service;
 
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
 import com.alon.spring.crud.domain.model.BaseEntity;
 import com.alon.spring.crud.domain.repository.CrudRepository;
 import com.alon.spring.crud.domain.repository.EntityGraphResolver;
@@ -9,17 +10,21 @@ import com.cosium.spring.data.jpa.entity.graph.domain.EntityGraph;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.Join;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
+
 public interface MasterAsOwnerNestedCrudService<
         MASTER_ENTITY_ID_TYPE extends Serializable,
         MASTER_ENTITY_TYPE extends BaseEntity<MASTER_ENTITY_ID_TYPE>,
@@ -38,9 +43,36 @@ extends NestedCrudService<
     MASTER_REPOSITORY_TYPE getMasterRepository();
     String getNestedFieldName();
 
+    /**
+     * Used to load the expanded paths that are not fetched by JOIN. By default, it is the shared
+     * EntityManager of the application context.
+     */
+    default EntityManager getEntityManager() {
+        return ApplicationContextProvider.getApplicationContext().getBean(EntityManager.class);
+    }
+
     @Override
     default Collection<NESTED_ENTITY_TYPE> search(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
-        List<String> expand = normalizeExpand(List.copyOf(searchCriteria.getExpand()));
+        Set<String> fetchExpand = searchCriteria.getFetchExpand();
+
+        if (fetchExpand == null || fetchExpand.isEmpty())
+            return findNested(masterId, searchCriteria);
+
+        // The secondary fetches set the associations on the entities of the same persistence context
+        return Transactions.readOnly(() -> {
+            Collection<NESTED_ENTITY_TYPE> nestedEntities = findNested(masterId, searchCriteria);
+
+            searchCriteria.getFetchPlan().fetch(getEntityManager(), getNestedEntityType(),
+                    nestedEntities, fetchExpand);
+
+            return nestedEntities;
+        });
+    }
+
+    private Collection<NESTED_ENTITY_TYPE> findNested(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
+        List<String> expand = normalizeExpand(searchCriteria.getExpand() != null
+                ? List.copyOf(searchCriteria.getExpand())
+                : List.of());
 
         EntityGraph graph = new DynamicEntityGraph(expand);
 
@@ -86,71 +118,91 @@ extends NestedCrudService<
 
     @Override
     default NESTED_ENTITY_TYPE create(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_TYPE nestedEntity) {
-        executeBeforeCreateHooks(nestedEntity, masterId);
+        return AsyncHookManager.write(this, AFTER_CREATE, () -> {
+            executeBeforeCreateHooks(nestedEntity, masterId);
 
-        MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
-                .findById(masterId)
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("Master resource with id %s was not found", masterId)));
+            MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
+                    .findById(masterId)
+                    .orElseThrow(() -> new NotFoundException(
+                            String.format("Master resource with id %s was not found", masterId)));
 
-        getNestedSetter(masterEntity).accept(nestedEntity);
+            getNestedSetter(masterEntity).accept(nestedEntity);
 
-        masterEntity = getMasterRepository().save(masterEntity);
+            masterEntity = getMasterRepository().save(masterEntity);
 
-        Collection<NESTED_ENTITY_TYPE> nestedCollection = getNestedGetter(masterEntity).get();
+            advanceModificationEpochs();
 
-        NESTED_ENTITY_TYPE entity = nestedCollection.stream()
-                .skip(nestedCollection.size() - 1)
-                .findFirst()
-                .get();
+            Collection<NESTED_ENTITY_TYPE> nestedCollection = getNestedGetter(masterEntity).get();
 
-        executeAfterCreateHooks(entity, masterId);
+            NESTED_ENTITY_TYPE entity = nestedCollection.stream()
+                    .skip(nestedCollection.size() - 1)
+                    .findFirst()
+                    .get();
 
-        return entity;
+            executeAfterCreateHooks(entity, masterId);
+
+            AsyncHookManager.record(this, AFTER_CREATE, entity.getId(), masterId);
+
+            return entity;
+        });
     }
 
     @Override
     default NESTED_ENTITY_TYPE update(MASTER_ENTITY_ID_TYPE masterId,
             NESTED_ENTITY_ID_TYPE nestedId, NESTED_ENTITY_TYPE nestedEntity) {
-        executeBeforeUpdateHooks(nestedEntity, masterId);
+        return AsyncHookManager.write(this, AFTER_UPDATE, () -> {
+            executeBeforeUpdateHooks(nestedEntity, masterId);
 
-        Specification<MASTER_ENTITY_TYPE> specification = getFindByIdSpecification(masterId, nestedId);
+            Specification<MASTER_ENTITY_TYPE> specification = getFindByIdSpecification(masterId, nestedId);
 
-        Optional<MASTER_ENTITY_TYPE> masterEntityOpt = getMasterRepository().findOne(specification);
+            Optional<MASTER_ENTITY_TYPE> masterEntityOpt = getMasterRepository().findOne(specification);
 
-        NESTED_ENTITY_TYPE persistedNestedEntity = masterEntityOpt
-                .map(this::getNestedGetter)
-                .map(Supplier::get)
-                .map(Collection::stream)
-                .map(Stream::findFirst)
-                .map(Optional::get)
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("Resource not found with masterId %s and nestedId %s", masterId, nestedId)));
+            NESTED_ENTITY_TYPE persistedNestedEntity = masterEntityOpt
+                    .map(this::getNestedGetter)
+                    .map(Supplier::get)
+                    .map(Collection::stream)
+                    .map(Stream::findFirst)
+                    .map(Optional::get)
+                    .orElseThrow(() -> new NotFoundException(
+                            String.format("Resource not found with masterId %s and nestedId %s", masterId, nestedId)));
 
-        MAPPER.map(nestedEntity, persistedNestedEntity);
+            MAPPER.map(nestedEntity, persistedNestedEntity);
 
-        getMasterRepository().save(masterEntityOpt.get());
+            getMasterRepository().save(masterEntityOpt.get());
 
-        executeAfterUpdateHooks(persistedNestedEntity, masterId);
+            advanceModificationEpochs();
 
-        return persistedNestedEntity;
+            executeAfterUpdateHooks(persistedNestedEntity, masterId);
+
+            AsyncHookManager.record(this, AFTER_UPDATE, persistedNestedEntity.getId(), masterId);
+
+            return persistedNestedEntity;
+        });
     }
 
     @Override
     default void delete(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_ID_TYPE nestedId) {
-        executeBeforeDeleteHooks(nestedId, masterId);
+        AsyncHookManager.write(this, AFTER_DELETE, () -> {
+            executeBeforeDeleteHooks(nestedId, masterId);
 
-        MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
-                .findOne(getFindByIdSpecification(masterId, nestedId))
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("Resource not found with masterId %s and nestedId %s",
-                                masterId, nestedId)));
+            MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
+                    .findOne(getFindByIdSpecification(masterId, nestedId))
+                    .orElseThrow(() -> new NotFoundException(
+                            String.format("Resource not found with masterId %s and nestedId %s",
+                                    masterId, nestedId)));
 
-        getNestedGetter(masterEntity).get().clear();
+            getNestedGetter(masterEntity).get().clear();
 
-        getMasterRepository().save(masterEntity);
+            getMasterRepository().save(masterEntity);
 
-        executeBeforeDeleteHooks(nestedId, masterId);
+            advanceModificationEpochs();
+
+            executeBeforeDeleteHooks(nestedId, masterId);
+
+            AsyncHookManager.record(this, AFTER_DELETE, nestedId, masterId);
+
+            return null;
+        });
     }
 
     default Specification<MASTER_ENTITY_TYPE> getFindByIdSpecification(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_ID_TYPE nestedId) {
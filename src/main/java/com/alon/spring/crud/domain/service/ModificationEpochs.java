@@ -0,0 +1,107 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory modification counters, one per entity type plus a global one.
+ *
+ * The epochs are advanced by the CRUD services whenever an entity is created,
+ * updated or deleted, so any value derived from an epoch (ETags, cache keys)
+ * changes as soon as the underlying data changes, without querying the database.
+ *
+ * The epochs live in the JVM memory: writes made outside the CRUD services
+ * (or by other application instances) are not observed.
+ *
+ * A write whose entity type can't be resolved advances the epochs of all the types.
+ */
+public final class ModificationEpochs {
+
+    private ModificationEpochs() {}
+
+    private static final Map<Class<?>, AtomicLong> EPOCHS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong GLOBAL_EPOCH = new AtomicLong();
+
+    // Added to the epoch of every type
+    private static final AtomicLong UNRESOLVED_EPOCH = new AtomicLong();
+
+    public static long current(Class<?> entityType) {
+        AtomicLong epoch = EPOCHS.get(entityType);
+        return (epoch == null ? 0 : epoch.get()) + UNRESOLVED_EPOCH.get();
+    }
+
+    public static long global() {
+        return GLOBAL_EPOCH.get();
+    }
+
+    /**
+     * Advances the epochs of the given entity types. When called inside a transaction
+     * the epochs are advanced again after the commit, so a reader that has seen the
+     * first advance while the transaction was still open can not keep a stale value.
+     */
+    public static void advance(Class<?>... entityTypes) {
+        advanceTwice(() -> advanceNow(entityTypes));
+    }
+
+    /**
+     * Advances the epochs of the entity types resolved by the suppliers, like the types of the
+     * generics of a service. If any type can't be resolved to a concrete class, as in a generic
+     * base service or a JDK proxy, the epochs of all the types are advanced instead of failing
+     * the write.
+     */
+    @SafeVarargs
+    public static void advanceResolving(Supplier<Class<?>>... entityTypes) {
+        Class<?>[] resolved = new Class<?>[entityTypes.length];
+
+        try {
+            for (int i = 0; i < entityTypes.length; i++)
+                resolved[i] = entityTypes[i].get();
+        } catch (IllegalStateException e) {
+            advanceTwice(ModificationEpochs::advanceAllNow);
+            return;
+        }
+
+        for (Class<?> entityType : resolved) {
+            // A type variable of a generic service is resolved as its bound, like BaseEntity
+            if (entityType == null || entityType == Object.class || Modifier.isAbstract(entityType.getModifiers())) {
+                advanceTwice(ModificationEpochs::advanceAllNow);
+                return;
+            }
+        }
+
+        advance(resolved);
+    }
+
+    private static void advanceTwice(Runnable advance) {
+        advance.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    advance.run();
+                }
+            });
+        }
+    }
+
+    private static void advanceNow(Class<?>... entityTypes) {
+        for (Class<?> entityType : entityTypes)
+            EPOCHS.computeIfAbsent(entityType, type -> new AtomicLong()).incrementAndGet();
+
+        GLOBAL_EPOCH.incrementAndGet();
+    }
+
+    private static void advanceAllNow() {
+        UNRESOLVED_EPOCH.incrementAndGet();
+        GLOBAL_EPOCH.incrementAndGet();
+    }
+
+}
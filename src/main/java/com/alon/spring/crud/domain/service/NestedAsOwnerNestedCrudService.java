@@ -1,5 +1,6 @@
 package com.alon.spring.crud.domain.service;
 
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
 import com.alon.spring.crud.domain.model.BaseEntity;
 import com.alon.spring.crud.domain.model.NestedBaseEntity;
 import com.alon.spring.crud.domain.repository.CrudRepository;
@@ -8,9 +9,13 @@ import com.alon.spring.crud.domain.service.exception.NotFoundException;
 import com.alon.spring.crud.domain.service.exception.UpdateException;
 import org.modelmapper.ModelMapper;
 
+import javax.persistence.EntityManager;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
 
 public interface NestedAsOwnerNestedCrudService<
         MASTER_ENTITY_ID_TYPE extends Serializable,
@@ -31,7 +36,24 @@ public interface NestedAsOwnerNestedCrudService<
 
     @Override
     default Collection<NESTED_ENTITY_TYPE> search(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria) {
-        return getNestedRepository().search(masterId, searchCriteria);
+        if (searchCriteria.getFetchExpand() == null || searchCriteria.getFetchExpand().isEmpty())
+            return getNestedRepository().search(masterId, searchCriteria);
+
+        // The secondary fetches set the associations on the entities of the same persistence context
+        return Transactions.readOnly(() -> getNestedRepository().search(masterId, searchCriteria));
+    }
+
+    @Override
+    default void export(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria,
+            int fetchSize, int clearInterval, int maxRows, Consumer<NESTED_ENTITY_TYPE> consumer) {
+
+        EntityManager entityManager = ApplicationContextProvider
+                .getApplicationContext()
+                .getBean(EntityManager.class);
+
+        EntityStreams.forEach(entityManager,
+                () -> getNestedRepository().stream(masterId, searchCriteria, fetchSize, maxRows),
+                clearInterval, consumer);
     }
 
     @Override
@@ -52,61 +74,80 @@ public interface NestedAsOwnerNestedCrudService<
 
     @Override
     default NESTED_ENTITY_TYPE create(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_TYPE nestedEntity) {
-        executeBeforeCreateHooks(nestedEntity, masterId);
+        return AsyncHookManager.write(this, AFTER_CREATE, () -> {
+            executeBeforeCreateHooks(nestedEntity, masterId);
 
-        MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
-                .findById(masterId)
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("Master resource with id %s was not found", masterId)));
+            MASTER_ENTITY_TYPE masterEntity = getMasterRepository()
+                    .findById(masterId)
+                    .orElseThrow(() -> new NotFoundException(
+                            String.format("Master resource with id %s was not found", masterId)));
 
-        nestedEntity.setMasterEntity(masterEntity);
+            nestedEntity.setMasterEntity(masterEntity);
 
-        nestedEntity = getNestedRepository().save(nestedEntity);
+            NESTED_ENTITY_TYPE createdEntity = getNestedRepository().save(nestedEntity);
 
-        executeAfterCreateHooks(nestedEntity, masterId);
+            advanceModificationEpochs();
 
-        return nestedEntity;
+            executeAfterCreateHooks(createdEntity, masterId);
+
+            AsyncHookManager.record(this, AFTER_CREATE, createdEntity.getId(), masterId);
+
+            return createdEntity;
+        });
     }
 
     @Override
     default NESTED_ENTITY_TYPE update(MASTER_ENTITY_ID_TYPE masterId,
             NESTED_ENTITY_ID_TYPE nestedId, NESTED_ENTITY_TYPE nestedEntity) {
+        return AsyncHookManager.write(this, AFTER_UPDATE, () -> {
+            executeBeforeUpdateHooks(nestedEntity, masterId);
 
-        executeBeforeUpdateHooks(nestedEntity, masterId);
+            if (nestedEntity.getMasterEntity() != null && nestedEntity.getMasterEntity().getId().equals(nestedId))
+                throw new UpdateException("Master entity must not be changed in the update.");
 
-        if (nestedEntity.getMasterEntity() != null && nestedEntity.getMasterEntity().getId().equals(nestedId))
-            throw new UpdateException("Master entity must not be changed in the update.");
+            NESTED_ENTITY_TYPE persistedNestedEntity = getNestedRepository()
+                    .findById(masterId, nestedId, null)
+                    .orElseThrow(() -> new NotFoundException(
+                            String.format("Resource not found with masterId %s and nestedId %s",
+                                    masterId, nestedId)));
 
-        NESTED_ENTITY_TYPE persistedNestedEntity = getNestedRepository()
-                .findById(masterId, nestedId, null)
-                .orElseThrow(() -> new NotFoundException(
-                        String.format("Resource not found with masterId %s and nestedId %s",
-                                masterId, nestedId)));
+            UPDATE_MAPPER.map(nestedEntity, persistedNestedEntity);
+
+            persistedNestedEntity = getNestedRepository().save(persistedNestedEntity);
 
-        UPDATE_MAPPER.map(nestedEntity, persistedNestedEntity);
+            advanceModificationEpochs();
 
-        persistedNestedEntity = getNestedRepository().save(persistedNestedEntity);
+            executeAfterUpdateHooks(persistedNestedEntity, masterId);
 
-        executeAfterUpdateHooks(persistedNestedEntity, masterId);
+            AsyncHookManager.record(this, AFTER_UPDATE, persistedNestedEntity.getId(), masterId);
 
-        return persistedNestedEntity;
+            return persistedNestedEntity;
+        });
     }
 
     @Override
     default void delete(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_ID_TYPE nestedId) {
-        executeBeforeDeleteHooks(nestedId, masterId);
+        AsyncHookManager.write(this, AFTER_DELETE, () -> {
+            executeBeforeDeleteHooks(nestedId, masterId);
+
+            boolean exists = getNestedRepository()
+                    .existsById(masterId, nestedId);
+
+            if (!exists)
+                throw new NotFoundException(String.format(
+                        "Resource not found with masterId %s and nestedId %s",
+                        masterId, nestedId));
+
+            getNestedRepository().deleteById(nestedId);
 
-        boolean exists = getNestedRepository()
-                .existsById(masterId, nestedId);
+            advanceModificationEpochs();
 
-        if (!exists)
-            throw new NotFoundException(String.format(
-                    "Resource not found with masterId %s and nestedId %s",
-                    masterId, nestedId));
+            executeAfterDeleteHooks(nestedId, masterId);
 
-        getNestedRepository().deleteById(nestedId);
+            AsyncHookManager.record(this, AFTER_DELETE, nestedId, masterId);
 
-        executeAfterDeleteHooks(nestedId, masterId);
+            return null;
+        });
     }
 
     default ModelMapper getUpdateMapper() {
@@ -2,14 +2,46 @@ package com.alon.spring.crud.domain.service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface NestedCrudService<
         MASTER_ENTITY_ID_TYPE, MASTER_ENTITY_TYPE,
         NESTED_ENTITY_ID_TYPE, NESTED_ENTITY_TYPE>
 extends BiHookable<MASTER_ENTITY_ID_TYPE, NESTED_ENTITY_ID_TYPE, NESTED_ENTITY_TYPE> {
 
+    default Class<MASTER_ENTITY_TYPE> getMasterEntityType() {
+        return ServiceTypeResolver.resolve(getClass(), NestedCrudService.class, 1);
+    }
+
+    default Class<NESTED_ENTITY_TYPE> getNestedEntityType() {
+        return ServiceTypeResolver.resolve(getClass(), NestedCrudService.class, 3);
+    }
+
+    /**
+     * Nested resources can be expanded from their master resources, so a nested
+     * write advances the modification epochs of both types.
+     */
+    default void advanceModificationEpochs() {
+        ModificationEpochs.advanceResolving(this::getMasterEntityType, this::getNestedEntityType);
+    }
+
     Collection<NESTED_ENTITY_TYPE> search(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria);
 
+    /**
+     * Passes all the nested entities selected by the criteria to the consumer. By default,
+     * it consumes the search result; the implementations that can query the nested
+     * entities directly read them from the database cursor.
+     *
+     * @param maxRows The maximum of exported entities, 0 is no maximum
+     */
+    default void export(MASTER_ENTITY_ID_TYPE masterId, SearchCriteria searchCriteria,
+            int fetchSize, int clearInterval, int maxRows, Consumer<NESTED_ENTITY_TYPE> consumer) {
+
+        search(masterId, searchCriteria).stream()
+                .limit(maxRows > 0 ? maxRows : Long.MAX_VALUE)
+                .forEach(consumer);
+    }
+
     NESTED_ENTITY_TYPE create(MASTER_ENTITY_ID_TYPE masterId, NESTED_ENTITY_TYPE nestedEntity);
 
     NESTED_ENTITY_TYPE read(MASTER_ENTITY_ID_TYPE masterId,
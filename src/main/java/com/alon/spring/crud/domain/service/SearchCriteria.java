@@ -1,6 +1,7 @@
 package com.alon.spring.crud.domain.service;
 
-import com.alon.spring.specification.ExpressionSpecification;
+import com.alon.spring.crud.domain.repository.FetchPlan;
+import com.alon.spring.crud.domain.service.cache.ExpressionFilterCache;
 import com.cosium.spring.data.jpa.entity.graph.domain.DynamicEntityGraph;
 import com.cosium.spring.data.jpa.entity.graph.domain.EntityGraph;
 import org.springframework.data.domain.PageRequest;
@@ -15,7 +16,14 @@ public class SearchCriteria {
     private Specification filter;
     private Pageable pageable = PageRequest.of(0, 20);
     private Set<String> expand;
+    private Set<String> fetchExpand;
+    private FetchPlan fetchPlan;
+    private Set<String> select;
     private EntityGraph entityGraph;
+    private boolean keysetPagination;
+    private Keyset keyset;
+    private boolean count = true;
+    private String filterFingerprint;
 
     public Specification getFilter() {
         return filter;
@@ -25,10 +33,32 @@ public class SearchCriteria {
         return pageable;
     }
 
+    /**
+     * @return The expanded paths fetched by the search query. When there is a fetch plan,
+     * the paths fetched by secondary queries are in {@link #getFetchExpand()}.
+     */
     public Set<String> getExpand() {
         return expand;
     }
 
+    /**
+     * @return The expanded paths fetched after the search query, by the fetch plan
+     */
+    public Set<String> getFetchExpand() {
+        return fetchExpand;
+    }
+
+    public FetchPlan getFetchPlan() {
+        return fetchPlan;
+    }
+
+    /**
+     * @return The attributes to select, or null to load the whole entities
+     */
+    public Set<String> getSelect() {
+        return select;
+    }
+
     public EntityGraph getEntityGraph() {
         if (entityGraph == null && expand != null && !expand.isEmpty())
             entityGraph = new DynamicEntityGraph(List.copyOf(expand));
@@ -36,6 +66,38 @@ public class SearchCriteria {
         return entityGraph;
     }
 
+    /**
+     * @return true if the search must use keyset pagination instead of the pageable offset
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * @return The keyset to start from, or null for the first page
+     */
+    public Keyset getKeyset() {
+        return keyset;
+    }
+
+    /**
+     * @return false if the total of elements must not be counted
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    /**
+     * @return A canonical representation of the filter, used as the count cache key. It is
+     * empty when there is no filter and null when the filter can't be fingerprinted.
+     */
+    public String getFilterFingerprint() {
+        if (filter == null)
+            return "";
+
+        return filterFingerprint;
+    }
+
     public SearchType getSearchOption() {
 
         String option = "";
@@ -68,7 +130,17 @@ public class SearchCriteria {
         }
         
         public SearchCriteriaBuilder filter(String filter) {
-            this.searchCriteria.filter = ExpressionSpecification.of(filter);
+            this.searchCriteria.filter = ExpressionFilterCache.shared().get(filter);
+            this.searchCriteria.filterFingerprint = filter;
+            return this;
+        }
+
+        /**
+         * Sets the canonical representation of the filter Specification. Two filters with the
+         * same fingerprint must select the same rows.
+         */
+        public SearchCriteriaBuilder filterFingerprint(String filterFingerprint) {
+            this.searchCriteria.filterFingerprint = filterFingerprint;
             return this;
         }
 
@@ -83,7 +155,57 @@ public class SearchCriteria {
             return this;
         }
 
+        /**
+         * Sets the fetch strategies of the expanded paths. The paths that are not fetched by
+         * JOIN are removed from the expand and loaded after the search query.
+         */
+        public SearchCriteriaBuilder fetchPlan(FetchPlan fetchPlan) {
+            this.searchCriteria.fetchPlan = fetchPlan;
+            return this;
+        }
+
+        /**
+         * Selects only the given attributes, including paths through to-one associations.
+         * The search returns detached entities with only these attributes and the ids set.
+         * An empty set loads the whole entities, and so does an expand, since the detached
+         * entities can't load associations.
+         */
+        public SearchCriteriaBuilder select(Set<String> select) {
+            this.searchCriteria.select = select == null || select.isEmpty() ? null : select;
+            return this;
+        }
+
+        /**
+         * Enables keyset pagination when the cursor is not null. An empty cursor
+         * fetches the first page. The page size and sort are taken from the pageable.
+         */
+        public SearchCriteriaBuilder cursor(String cursor) {
+            this.searchCriteria.keysetPagination = cursor != null;
+            this.searchCriteria.keyset = cursor == null || cursor.isEmpty() ? null : Keyset.decode(cursor);
+            return this;
+        }
+
+        /**
+         * When false, the search doesn't execute the count query and returns an
+         * {@link UncountedPage}, which only knows if there is a next page.
+         */
+        public SearchCriteriaBuilder count(boolean count) {
+            this.searchCriteria.count = count;
+            return this;
+        }
+
         public SearchCriteria build() {
+            FetchPlan fetchPlan = this.searchCriteria.fetchPlan;
+            Set<String> expand = this.searchCriteria.expand;
+
+            if (expand != null && !expand.isEmpty())
+                this.searchCriteria.select = null;
+
+            if (fetchPlan != null && expand != null) {
+                this.searchCriteria.expand = fetchPlan.joinPaths(expand);
+                this.searchCriteria.fetchExpand = fetchPlan.secondaryPaths(expand);
+            }
+
             return this.searchCriteria;
         }
 
@@ -0,0 +1,26 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.core.GenericTypeResolver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class ServiceTypeResolver {
+
+    private ServiceTypeResolver() {}
+
+    private static final Map<List<Class<?>>, Class<?>[]> CACHE = new ConcurrentHashMap<>();
+
+    static <T> Class<T> resolve(Class<?> serviceType, Class<?> genericInterface, int index) {
+        Class<?>[] typeArguments = CACHE.computeIfAbsent(List.of(serviceType, genericInterface),
+                key -> GenericTypeResolver.resolveTypeArguments(serviceType, genericInterface));
+
+        if (typeArguments == null || typeArguments[index] == null)
+            throw new IllegalStateException(String.format(
+                    "It was not possible to resolve the generic types of %s on %s",
+                    genericInterface.getSimpleName(), serviceType.getName()));
+
+        return (Class<T>) typeArguments[index];
+    }
+}
@@ -0,0 +1,38 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+final class Transactions {
+
+    private Transactions() {}
+
+    /**
+     * Executes the action in a read only transaction, or in the current transaction if there is one.
+     */
+    static <T> T readOnly(Supplier<T> action) {
+        PlatformTransactionManager transactionManager = ApplicationContextProvider
+                .getApplicationContext()
+                .getBean(PlatformTransactionManager.class);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        return transaction.execute(status -> action.get());
+    }
+
+    /**
+     * Executes the action in a new transaction, or in the current transaction if there is one.
+     */
+    static <T> T required(Supplier<T> action) {
+        PlatformTransactionManager transactionManager = ApplicationContextProvider
+                .getApplicationContext()
+                .getBean(PlatformTransactionManager.class);
+
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.alon.spring.crud.domain.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page fetched without the count query. It only knows if there is a next page,
+ * so getTotalElements and getTotalPages return -1.
+ */
+public class UncountedPage<T> extends SliceImpl<T> implements Page<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncountedPage(List<T> content, Pageable pageable, boolean hasNext) {
+        super(content, pageable, hasNext);
+    }
+
+    /**
+     * @param rows Up to pageSize + 1 rows. The extra row only indicates that there is a next page.
+     */
+    public static <T> UncountedPage<T> of(List<T> rows, Pageable pageable) {
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+
+        return new UncountedPage<>(hasNext ? List.copyOf(rows.subList(0, pageable.getPageSize())) : rows,
+                pageable, hasNext);
+    }
+
+    @Override
+    public int getTotalPages() {
+        return -1;
+    }
+
+    @Override
+    public long getTotalElements() {
+        return -1;
+    }
+
+    @Override
+    public <U> UncountedPage<U> map(Function<? super T, ? extends U> converter) {
+        return new UncountedPage<>(getConvertedContent(converter), getPageable(), hasNext());
+    }
+
+}
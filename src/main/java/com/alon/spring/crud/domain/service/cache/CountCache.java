@@ -0,0 +1,180 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of search totals, keyed by a canonical fingerprint of the filter.
+ *
+ * Each total is stored with the modification epoch of the entity type at the moment it was
+ * counted, so it stops being exact as soon as the entity type is written. When the estimate
+ * mode is enabled, a total that is no longer exact is still returned, flagged as an estimate,
+ * until it is older than the estimate time to live.
+ *
+ * Filters on associations are only refreshed by the time to live, since the writes on the
+ * associated entity types don't advance the epoch of the counted type.
+ */
+public class CountCache {
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final long estimateTimeToLiveNanos;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder estimates = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private CountCache(int maximumSize, Duration timeToLive, Duration estimateTimeToLive) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.estimateTimeToLiveNanos = estimateTimeToLive == null ? 0 : estimateTimeToLive.toNanos();
+    }
+
+    public static Builder of() {
+        return new Builder();
+    }
+
+    /**
+     * @param epoch The current modification epoch of the entity type
+     * @return The cached total or null if there is no valid total
+     */
+    public Count get(String fingerprint, long epoch) {
+        long now = System.nanoTime();
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(fingerprint);
+        }
+
+        if (entry != null) {
+            long age = now - entry.countedAt;
+
+            if (entry.epoch == epoch && age < timeToLiveNanos) {
+                hits.increment();
+                return new Count(entry.total, false);
+            }
+
+            if (age < estimateTimeToLiveNanos) {
+                estimates.increment();
+                return new Count(entry.total, true);
+            }
+        }
+
+        misses.increment();
+
+        return null;
+    }
+
+    /**
+     * @param epoch The modification epoch of the entity type taken before counting
+     */
+    public void put(String fingerprint, long total, long epoch) {
+        Entry entry = new Entry(total, epoch, System.nanoTime());
+
+        synchronized (this) {
+            entries.put(fingerprint, entry);
+
+            Iterator<Entry> iterator = entries.values().iterator();
+
+            while (entries.size() > maximumSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getEstimateCount() {
+        return estimates.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public static final class Count {
+
+        private final long total;
+        private final boolean estimated;
+
+        private Count(long total, boolean estimated) {
+            this.total = total;
+            this.estimated = estimated;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public boolean isEstimated() {
+            return estimated;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long total;
+        private final long epoch;
+        private final long countedAt;
+
+        private Entry(long total, long epoch, long countedAt) {
+            this.total = total;
+            this.epoch = epoch;
+            this.countedAt = countedAt;
+        }
+    }
+
+    public static final class Builder {
+
+        private int maximumSize = 1_000;
+        private Duration timeToLive = Duration.ofMinutes(5);
+        private Duration estimateTimeToLive;
+
+        private Builder() {}
+
+        public Builder maximumSize(int maximumSize) {
+            if (maximumSize < 1)
+                throw new IllegalArgumentException("The maximum size must be greater than zero");
+
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder timeToLive(Duration timeToLive) {
+            if (timeToLive == null)
+                throw new IllegalArgumentException("The time to live must not be null");
+
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Enables the estimate mode: after a write, the last total is still returned as an
+         * estimate until it is older than the estimate time to live.
+         */
+        public Builder estimateTimeToLive(Duration estimateTimeToLive) {
+            this.estimateTimeToLive = estimateTimeToLive;
+            return this;
+        }
+
+        public CountCache build() {
+            return new CountCache(maximumSize, timeToLive, estimateTimeToLive);
+        }
+    }
+
+}
@@ -0,0 +1,384 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded read-through cache of entities, keyed by entity id and expand set.
+ *
+ * The size is bounded by a maximum number of entries and, optionally, by a time to live.
+ * When the cache is full, a new entry is only admitted if it has been requested more
+ * frequently than the least recently used entry (TinyLFU admission), so one-off reads
+ * don't flush the hot entries. Long ids are stored in a primitive keyed map.
+ *
+ * The cached entities are detached and shared between requests: they must be treated as
+ * read only, and lazy associations that were not expanded when the entity was loaded
+ * are not available.
+ */
+public class EntityCache<ID, E> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long timeToLiveNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private EntityCache(long maximumSize, Duration timeToLive) {
+        int segmentCount = (int) Math.min(MAX_SEGMENTS, Math.max(1, maximumSize / MAX_SEGMENTS));
+        int segmentSize = (int) Math.max(1, (maximumSize + segmentCount - 1) / segmentCount);
+
+        this.segments = new EntityCache.Segment[segmentCount];
+        this.timeToLiveNanos = timeToLive == null ? 0 : timeToLive.toNanos();
+
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment(segmentSize);
+    }
+
+    public static Builder of() {
+        return new Builder();
+    }
+
+    /**
+     * @return The cached entity or null if it is not cached
+     */
+    public E get(ID id, Collection<String> expand) {
+        E entity = segmentFor(id).get(id, normalizeExpand(expand), System.nanoTime());
+
+        if (entity == null)
+            misses.increment();
+        else
+            hits.increment();
+
+        return entity;
+    }
+
+    /**
+     * Returns a stamp that must be passed to {@link #put(Object, Collection, Object, long)}. It should be taken
+     * before loading the entity, so that an invalidation that happens during the load prevents
+     * the stale entity from being cached.
+     */
+    public long stamp(ID id) {
+        return segmentFor(id).stamp();
+    }
+
+    public void put(ID id, Collection<String> expand, E entity, long stamp) {
+        if (entity != null)
+            segmentFor(id).put(id, normalizeExpand(expand), entity, stamp, System.nanoTime());
+    }
+
+    /**
+     * Removes all the cached variants of the entity. When called inside a transaction,
+     * the entity is invalidated again after the commit.
+     */
+    public void invalidate(ID id) {
+        segmentFor(id).invalidate(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    segmentFor(id).invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments)
+            segment.clear();
+    }
+
+    public long size() {
+        long size = 0;
+
+        for (Segment segment : segments)
+            size += segment.size();
+
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long requestCount = hitCount + getMissCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    private Segment segmentFor(ID id) {
+        return segments[(hash(id) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static int hash(Object id) {
+        if (id instanceof Long)
+            return LongKeyHashMap.hash((Long) id);
+
+        int hash = id.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String normalizeExpand(Collection<String> expand) {
+        if (expand == null || expand.isEmpty())
+            return "";
+
+        return String.join(",", new TreeSet<>(expand));
+    }
+
+    private static final class Node {
+        private final Object id;
+        private final String expand;
+        private final Object entity;
+        private final long expiresAt;
+
+        private Node previous;
+        private Node next;
+        private Node nextVariant;
+
+        private Node(Object id, String expand, Object entity, long expiresAt) {
+            this.id = id;
+            this.expand = expand;
+            this.entity = entity;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+
+        private final int maximumSize;
+        private final FrequencySketch sketch;
+        private final LongKeyHashMap<Node> longIndex;
+        private final Map<Object, Node> index = new HashMap<>();
+
+        // Access ordered list, the head is the most recently used entry
+        private Node head;
+        private Node tail;
+        private int size;
+        private long invalidations;
+
+        private Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+            this.sketch = new FrequencySketch(maximumSize);
+            this.longIndex = new LongKeyHashMap<>(Math.min(maximumSize, 1024));
+        }
+
+        private synchronized E get(Object id, String expand, long now) {
+            sketch.increment(hash(id));
+
+            Node node = findVariant(id, expand);
+
+            if (node == null)
+                return null;
+
+            if (isExpired(node, now)) {
+                remove(node);
+                return null;
+            }
+
+            moveToHead(node);
+
+            return (E) node.entity;
+        }
+
+        private synchronized long stamp() {
+            return invalidations;
+        }
+
+        private synchronized void put(Object id, String expand, Object entity, long stamp, long now) {
+            if (stamp != invalidations)
+                return;
+
+            Node existing = findVariant(id, expand);
+
+            if (existing != null)
+                remove(existing);
+
+            if (size >= maximumSize && !admit(id, now))
+                return;
+
+            Node node = new Node(id, expand, entity,
+                    timeToLiveNanos > 0 ? now + timeToLiveNanos : Long.MAX_VALUE);
+
+            node.nextVariant = getVariants(id);
+            setVariants(id, node);
+            linkHead(node);
+            size++;
+        }
+
+        private boolean admit(Object candidateId, long now) {
+            if (tail != null && isExpired(tail, now)) {
+                remove(tail);
+                evictions.increment();
+                return true;
+            }
+
+            if (sketch.frequency(hash(candidateId)) <= sketch.frequency(hash(tail.id)))
+                return false;
+
+            remove(tail);
+            evictions.increment();
+
+            return true;
+        }
+
+        private synchronized void invalidate(Object id) {
+            invalidations++;
+
+            Node node = getVariants(id);
+
+            while (node != null) {
+                Node next = node.nextVariant;
+                unlink(node);
+                size--;
+                node = next;
+            }
+
+            removeVariants(id);
+        }
+
+        private synchronized void clear() {
+            invalidations++;
+            longIndex.clear();
+            index.clear();
+            head = null;
+            tail = null;
+            size = 0;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private Node findVariant(Object id, String expand) {
+            Node node = getVariants(id);
+
+            while (node != null && !node.expand.equals(expand))
+                node = node.nextVariant;
+
+            return node;
+        }
+
+        private void remove(Node node) {
+            Node first = getVariants(node.id);
+
+            if (first == node) {
+                if (node.nextVariant == null)
+                    removeVariants(node.id);
+                else
+                    setVariants(node.id, node.nextVariant);
+            } else {
+                Node previous = first;
+
+                while (previous.nextVariant != node)
+                    previous = previous.nextVariant;
+
+                previous.nextVariant = node.nextVariant;
+            }
+
+            unlink(node);
+            size--;
+        }
+
+        private boolean isExpired(Node node, long now) {
+            return node.expiresAt != Long.MAX_VALUE && now - node.expiresAt > 0;
+        }
+
+        private Node getVariants(Object id) {
+            return id instanceof Long ? longIndex.get((Long) id) : index.get(id);
+        }
+
+        private void setVariants(Object id, Node node) {
+            if (id instanceof Long)
+                longIndex.put((Long) id, node);
+            else
+                index.put(id, node);
+        }
+
+        private void removeVariants(Object id) {
+            if (id instanceof Long)
+                longIndex.remove((Long) id);
+            else
+                index.remove(id);
+        }
+
+        private void linkHead(Node node) {
+            node.previous = null;
+            node.next = head;
+
+            if (head != null)
+                head.previous = node;
+
+            head = node;
+
+            if (tail == null)
+                tail = node;
+        }
+
+        private void unlink(Node node) {
+            if (node.previous != null)
+                node.previous.next = node.next;
+            else
+                head = node.next;
+
+            if (node.next != null)
+                node.next.previous = node.previous;
+            else
+                tail = node.previous;
+
+            node.previous = null;
+            node.next = null;
+        }
+
+        private void moveToHead(Node node) {
+            if (head != node) {
+                unlink(node);
+                linkHead(node);
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private long maximumSize = 10_000;
+        private Duration timeToLive;
+
+        private Builder() {}
+
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize < 1)
+                throw new IllegalArgumentException("The maximum size must be greater than zero");
+
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder timeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public <ID, E> EntityCache<ID, E> build() {
+            return new EntityCache<>(maximumSize, timeToLive);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import com.alon.spring.specification.ExpressionSpecification;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the Specifications parsed from filter expressions, keyed by the raw expression.
+ *
+ * The parsed Specifications are immutable, so the same instance is shared by all the
+ * requests with the same expression. Invalid expressions are not cached: the parse error
+ * is thrown again on each request.
+ */
+public class ExpressionFilterCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 500;
+
+    private static final ExpressionFilterCache SHARED = new ExpressionFilterCache(DEFAULT_MAXIMUM_SIZE);
+
+    private volatile int maximumSize;
+
+    private final LinkedHashMap<String, Specification> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of expressions kept. Zero disables the cache.
+     */
+    public ExpressionFilterCache(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * The cache used by the SearchResolver and by SearchCriteriaBuilder.filter(String).
+     */
+    public static ExpressionFilterCache shared() {
+        return SHARED;
+    }
+
+    public Specification get(String expression) {
+        if (maximumSize == 0) {
+            misses.increment();
+            return ExpressionSpecification.of(expression);
+        }
+
+        Specification specification;
+
+        synchronized (this) {
+            specification = entries.get(expression);
+        }
+
+        if (specification != null) {
+            hits.increment();
+            return specification;
+        }
+
+        misses.increment();
+
+        // Parsed outside the lock: concurrent misses of the same expression may parse it twice
+        specification = ExpressionSpecification.of(expression);
+
+        synchronized (this) {
+            entries.put(expression, specification);
+            evict();
+        }
+
+        return specification;
+    }
+
+    public synchronized void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0)
+            throw new IllegalArgumentException("The maximum size must not be negative");
+
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private void evict() {
+        Iterator<Specification> iterator = entries.values().iterator();
+
+        while (entries.size() > maximumSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.alon.spring.crud.domain.service.cache;
+
+/**
+ * Count-min sketch of 4 bit counters used to estimate how frequently the keys are
+ * accessed. The counters are halved periodically, so old popularity fades away.
+ * It is not thread safe, the access must be guarded by the owner.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97CB3127, 0xB5E5C38F, 0x8F4F0A6B, 0xDC7D0CA5 };
+
+    private final byte[][] table;
+    private final int mask;
+    private final int resetThreshold;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int width = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+
+        table = new byte[DEPTH][width];
+        mask = width - 1;
+        resetThreshold = Math.max(16, maximumSize) * 10;
+    }
+
+    void increment(int hash) {
+        boolean incremented = false;
+
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                incremented = true;
+            }
+        }
+
+        if (incremented && ++additions >= resetThreshold)
+            reset();
+    }
+
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+
+        for (int row = 0; row < DEPTH; row++)
+            frequency = Math.min(frequency, table[row][indexOf(hash, row)]);
+
+        return frequency;
+    }
+
+    private void reset() {
+        for (byte[] row : table) {
+            for (int i = 0; i < row.length; i++)
+                row[i] >>= 1;
+        }
+
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int mixed = (hash ^ SEEDS[row]) * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,144 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys. It is not thread safe,
+ * the access must be guarded by the owner.
+ */
+final class LongKeyHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    LongKeyHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongKeyHashMap(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(MIN_CAPACITY, (int) (expectedSize / 0.75f) + 1));
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    V put(long key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("Null values are not supported");
+
+        int index = slot(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size > (keys.length * 3) / 4)
+            resize(keys.length * 2);
+
+        return null;
+    }
+
+    V remove(long key) {
+        int index = indexOf(key);
+
+        if (index < 0)
+            return null;
+
+        V previous = (V) values[index];
+        values[index] = null;
+        size--;
+
+        shiftBack(index);
+
+        return previous;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int index = slot(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key)
+                return index;
+
+            index = (index + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /*
+     * Backward shift deletion: moves the following entries of the probe sequence to
+     * the freed slot, so lookups never need tombstones.
+     */
+    private void shiftBack(int freed) {
+        int index = (freed + 1) & mask;
+
+        while (values[index] != null) {
+            int ideal = slot(keys[index]);
+
+            if (((index - ideal) & mask) >= ((index - freed) & mask)) {
+                keys[freed] = keys[index];
+                values[freed] = values[index];
+                values[index] = null;
+                freed = index;
+            }
+
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null)
+                put(oldKeys[i], (V) oldValues[i]);
+        }
+    }
+
+    private int slot(long key) {
+        return hash(key) & mask;
+    }
+
+    static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
@@ -0,0 +1,15 @@
+package com.alon.spring.crud.domain.service.exception;
+
+public class InvalidCursorException extends CrudException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidCursorException(String message) {
+		super(message);
+	}
+
+	public InvalidCursorException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
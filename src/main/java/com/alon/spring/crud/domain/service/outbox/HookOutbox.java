@@ -0,0 +1,370 @@
+package com.alon.spring.crud.domain.service.outbox;
+
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.service.AsyncHook;
+import com.alon.spring.crud.domain.service.AsyncHookManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Table of the async hooks to execute. The entries are inserted in the transaction of the
+ * write, and executed by a bounded pool of workers after the commit, so a hook is executed even
+ * if the application stops before it, and never for a write that was rolled back.
+ *
+ * A failed execution is retried with an exponential delay, until the maximum of attempts, when
+ * the entry is kept as failed. Only the oldest entry of each hook and entity id is executed at a
+ * time, so a hook receives the writes of an entity in order. The failed entries don't hold the
+ * next ones.
+ *
+ * The entries being executed have a deadline, after which they are executed again, so the
+ * hooks must be idempotent. Without the default table creation, which works on H2 and
+ * PostgreSQL, the table must be created with the columns of {@link #CREATE_TABLE}.
+ *
+ * The table is created and the polling started at the application startup, when there are async
+ * hooks registered, or at the first entry recorded otherwise. The table is created with its own
+ * connection, in auto commit, so the DDL doesn't commit the transaction of a write, as it does
+ * in databases like MySQL.
+ */
+@Component
+public class HookOutbox implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HookOutbox.class);
+
+    static final String PENDING = "PENDING";
+    static final String PROCESSING = "PROCESSING";
+    static final String FAILED = "FAILED";
+
+    private static final int MAXIMUM_ERROR_LENGTH = 1000;
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS %s ("
+            + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+            + "hook_key VARCHAR(255) NOT NULL, "
+            + "entity_id VARCHAR(255) NOT NULL, "
+            + "master_id VARCHAR(255), "
+            + "status VARCHAR(16) NOT NULL, "
+            + "attempts INT NOT NULL, "
+            + "next_attempt_at BIGINT NOT NULL, "
+            + "created_at BIGINT NOT NULL, "
+            + "last_error VARCHAR(" + MAXIMUM_ERROR_LENGTH + "))";
+
+    private static final String CREATE_INDEX =
+            "CREATE INDEX IF NOT EXISTS %1$s_entity ON %1$s (hook_key, entity_id, id)";
+
+    private static final String INSERT = "INSERT INTO %s "
+            + "(hook_key, entity_id, master_id, status, attempts, next_attempt_at, created_at) "
+            + "VALUES (?, ?, ?, '" + PENDING + "', 0, ?, ?)";
+
+    private static final String RELEASE_EXPIRED = "UPDATE %s SET status = '" + PENDING + "' "
+            + "WHERE status = '" + PROCESSING + "' AND next_attempt_at < ?";
+
+    /*
+     * The entries with an older entry of the same hook and entity wait for it.
+     */
+    private static final String SELECT_DUE = "SELECT o.id, o.hook_key, o.entity_id, o.master_id, o.attempts "
+            + "FROM %1$s o WHERE o.status = '" + PENDING + "' AND o.next_attempt_at <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM %1$s p WHERE p.hook_key = o.hook_key "
+            + "AND p.entity_id = o.entity_id AND p.id < o.id AND p.status <> '" + FAILED + "') "
+            + "ORDER BY o.id";
+
+    private static final String CLAIM = "UPDATE %s SET status = '" + PROCESSING + "', next_attempt_at = ? "
+            + "WHERE id = ? AND status = '" + PENDING + "'";
+
+    private static final String RELEASE = "UPDATE %s SET status = '" + PENDING + "' WHERE id = ?";
+
+    private static final String DELETE = "DELETE FROM %s WHERE id = ?";
+
+    private static final String RESCHEDULE = "UPDATE %s SET status = ?, attempts = ?, next_attempt_at = ?, "
+            + "last_error = ? WHERE id = ?";
+
+    private static final RowMapper<Entry> ENTRY_MAPPER = (resultSet, row) -> new Entry(
+            resultSet.getLong("id"),
+            resultSet.getString("hook_key"),
+            resultSet.getString("entity_id"),
+            resultSet.getString("master_id"),
+            resultSet.getInt("attempts"));
+
+    private final ObjectProvider<DataSource> dataSource;
+    private final Properties.AsyncHookProperties properties;
+    private final String table;
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private final AtomicInteger executing = new AtomicInteger();
+
+    private volatile JdbcTemplate jdbcTemplate;
+    private volatile ScheduledExecutorService poller;
+    private volatile ThreadPoolExecutor workers;
+    private volatile boolean running;
+
+    public HookOutbox(ObjectProvider<DataSource> dataSource, Properties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties.asyncHooks;
+        this.table = properties.asyncHooks.tableName;
+    }
+
+    /**
+     * Inserts an entry for each hook in the current transaction. The entries are polled after
+     * the commit or, without a transaction, right away.
+     */
+    public void record(List<AsyncHook> hooks, Object entityId, Object masterId) {
+        JdbcTemplate jdbcTemplate = initialize();
+        long now = System.currentTimeMillis();
+
+        List<Object[]> rows = hooks.stream()
+                .map(hook -> new Object[] {
+                        hook.getKey(), String.valueOf(entityId),
+                        masterId == null ? null : String.valueOf(masterId), now, now })
+                .collect(Collectors.toList());
+
+        jdbcTemplate.batchUpdate(String.format(INSERT, table), rows);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    requestPoll();
+                }
+            });
+        else
+            requestPoll();
+    }
+
+    /**
+     * The entries left by a previous execution are polled at startup, if the hooks are registered.
+     */
+    @Override
+    public void start() {
+        running = true;
+
+        if (!AsyncHookManager.isEmpty())
+            initialize();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+            workers.shutdown();
+        }
+    }
+
+    /*
+     * All the fields are set before the first poll is scheduled.
+     */
+    private synchronized JdbcTemplate initialize() {
+        if (jdbcTemplate != null)
+            return jdbcTemplate;
+
+        DataSource source = dataSource.getIfAvailable();
+
+        if (source == null)
+            throw new IllegalStateException("The async hooks require a DataSource for the outbox table");
+
+        if (properties.createTable)
+            createTable(source);
+
+        AtomicInteger workerCount = new AtomicInteger();
+
+        workers = new ThreadPoolExecutor(properties.workers, properties.workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.queueCapacity),
+                runnable -> daemon(runnable, "async-hook-" + workerCount.incrementAndGet()));
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "async-hook-poller"));
+        jdbcTemplate = new JdbcTemplate(source);
+
+        poller.scheduleWithFixedDelay(this::poll, 0, properties.pollInterval, TimeUnit.MILLISECONDS);
+
+        return jdbcTemplate;
+    }
+
+    /*
+     * A new connection of the DataSource, not the one bound to the current transaction.
+     */
+    private void createTable(DataSource source) {
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(String.format(CREATE_TABLE, table));
+            statement.execute(String.format(CREATE_INDEX, table));
+
+            if (!connection.getAutoCommit())
+                connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format("Error creating the outbox table %s", table), e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /*
+     * The requests made while a poll is waiting are served by it.
+     */
+    private void requestPoll() {
+        if (pollRequested.compareAndSet(false, true)) {
+            try {
+                poller.execute(this::poll);
+            } catch (RejectedExecutionException e) {
+                // Shut down, the entries are polled at the next startup
+            }
+        }
+    }
+
+    /*
+     * Reads only the entries that fit in the queue of the workers. The next entries of the
+     * entities may be waiting for the executed ones, so the outbox is polled again when the
+     * workers have executed all the claimed entries, once per batch instead of once per entry.
+     */
+    void poll() {
+        pollRequested.set(false);
+
+        try {
+            long now = System.currentTimeMillis();
+
+            jdbcTemplate.update(String.format(RELEASE_EXPIRED, table), now);
+
+            int capacity = workers.getQueue().remainingCapacity();
+
+            if (capacity == 0)
+                return;
+
+            List<Entry> entries = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(String.format(SELECT_DUE, table));
+                statement.setLong(1, now);
+                statement.setMaxRows(capacity);
+                return statement;
+            }, ENTRY_MAPPER);
+
+            for (Entry entry : entries) {
+                if (jdbcTemplate.update(String.format(CLAIM, table), now + properties.processingTimeout, entry.id) == 0)
+                    continue;
+
+                executing.incrementAndGet();
+
+                try {
+                    workers.execute(() -> {
+                        try {
+                            execute(entry);
+                        } finally {
+                            if (executing.decrementAndGet() == 0)
+                                requestPoll();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    executing.decrementAndGet();
+                    jdbcTemplate.update(String.format(RELEASE, table), entry.id);
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Error polling the async hooks", e);
+        }
+    }
+
+    void execute(Entry entry) {
+        try {
+            AsyncHook hook = AsyncHookManager.getHook(entry.hookKey);
+
+            if (hook == null)
+                throw new IllegalStateException(String.format(
+                        "There is no async hook registered with the key %s", entry.hookKey));
+
+            hook.execute(entry.entityId, entry.masterId);
+        } catch (Exception e) {
+            reschedule(entry, e);
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(String.format(DELETE, table), entry.id);
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Error deleting the executed async hook entry %d", entry.id), e);
+        }
+    }
+
+    private void reschedule(Entry entry, Exception error) {
+        int attempts = entry.attempts + 1;
+        boolean failed = attempts >= properties.maxAttempts;
+        String message = String.valueOf(error.getMessage());
+
+        if (message.length() > MAXIMUM_ERROR_LENGTH)
+            message = message.substring(0, MAXIMUM_ERROR_LENGTH);
+
+        if (failed)
+            LOGGER.error(String.format("The async hook %s failed %d times for the id %s",
+                    entry.hookKey, attempts, entry.entityId), error);
+        else
+            LOGGER.warn(String.format("The async hook %s failed for the id %s, attempt %d of %d: %s",
+                    entry.hookKey, entry.entityId, attempts, properties.maxAttempts, message));
+
+        try {
+            jdbcTemplate.update(String.format(RESCHEDULE, table),
+                    failed ? FAILED : PENDING,
+                    attempts,
+                    System.currentTimeMillis() + retryDelay(attempts),
+                    message,
+                    entry.id);
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Error rescheduling the async hook entry %d", entry.id), e);
+        }
+    }
+
+    /**
+     * @return The delay before the next attempt, doubled at each attempt
+     */
+    long retryDelay(int attempts) {
+        long delay = properties.retryDelay << Math.min(attempts - 1, 30);
+
+        return delay < 0 ? properties.maxRetryDelay : Math.min(delay, properties.maxRetryDelay);
+    }
+
+    static final class Entry {
+
+        final long id;
+        final String hookKey;
+        final String entityId;
+        final String masterId;
+        final int attempts;
+
+        Entry(long id, String hookKey, String entityId, String masterId, int attempts) {
+            this.id = id;
+            this.hookKey = hookKey;
+            this.entityId = entityId;
+            this.masterId = masterId;
+            this.attempts = attempts;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.api.configuration.WebConfigurer;
+import com.alon.spring.crud.api.controller.cache.ResponseBodyCache;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.service.ExampleService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CrudControllerResponseCacheTest {
+
+    private ExampleService service;
+    private ExampleController controller;
+
+    @Before
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.responseCache.enabled = true;
+
+        WebConfigurer webConfigurer = new WebConfigurer();
+        webConfigurer.properties = properties;
+
+        service = new ExampleService(null);
+        controller = new ExampleController(service);
+        controller.responseBodyCache = new ResponseBodyCache(properties, webConfigurer);
+    }
+
+    @Test
+    public void whenServiceHasReadHooksThenDontCache() {
+        assertThat(controller.isResponseCacheEnabled()).isTrue();
+
+        service.addAfterReadHook(Function.identity());
+
+        assertThat(controller.isResponseCacheEnabled()).isFalse();
+    }
+
+    @Test
+    public void whenThereIsPrincipalThenScopeTheKeyByItsName() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/example");
+
+        assertThat(controller.getCacheKeyScope(request)).isNull();
+
+        request.setUserPrincipal(() -> "user");
+
+        assertThat(controller.getCacheKeyScope(request)).isEqualTo("user");
+    }
+
+}
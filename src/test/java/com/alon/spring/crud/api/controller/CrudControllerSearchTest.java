@@ -0,0 +1,105 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.api.controller.cache.ResponseBodyCache;
+import com.alon.spring.crud.api.controller.input.ExampleSearchInput;
+import com.alon.spring.crud.api.controller.input.Options;
+import com.alon.spring.crud.api.controller.input.OptionsNormalizer;
+import com.alon.spring.crud.api.controller.input.SearchResolver;
+import com.alon.spring.crud.api.controller.output.OutputPage;
+import com.alon.spring.crud.api.projection.ProjectionService;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.service.ExampleService;
+import com.alon.spring.crud.domain.service.SearchCriteria;
+import com.alon.spring.crud.domain.service.exception.ProjectionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.AFTER_SEARCH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class CrudControllerSearchTest {
+
+    private ExampleService service;
+    private ProjectionService projectionService;
+    private ExampleController controller;
+    private Page<Example> page;
+
+    @Before
+    public void setUp() {
+        service = mock(ExampleService.class);
+        projectionService = mock(ProjectionService.class);
+        page = new PageImpl<>(List.of(new Example()));
+
+        OptionsNormalizer optionsNormalizer = mock(OptionsNormalizer.class);
+        when(optionsNormalizer.projectDefaultOnError(eq("projection"), any())).thenReturn(true);
+
+        ResponseBodyCache responseBodyCache = mock(ResponseBodyCache.class);
+
+        controller = new ExampleController(service);
+        controller.projectionService = projectionService;
+        controller.optionsNormalizer = optionsNormalizer;
+        controller.responseBodyCache = responseBodyCache;
+        ReflectionTestUtils.setField(controller, CrudController.class, "searchResolver",
+                mock(SearchResolver.class), SearchResolver.class);
+        ReflectionTestUtils.setField(controller, CrudController.class, "properties",
+                new Properties(), Properties.class);
+
+        when(service.search(any())).thenReturn(page);
+        when(projectionService.getSourceAttributes("projection", Example.class)).thenReturn(Set.of("name"));
+        when(projectionService.project(eq("projection"), isNull(), any(Page.class)))
+                .thenThrow(new ProjectionException("error"));
+        when(projectionService.project(eq(ProjectionService.NOP_PROJECTION), any(Page.class)))
+                .thenReturn(OutputPage.of().build());
+    }
+
+    @Test
+    public void whenProjectionFailsOnSelectedEntitiesThenSearchTheWholeEntitiesToFallBack() {
+        search();
+
+        ArgumentCaptor<SearchCriteria> criteria = ArgumentCaptor.forClass(SearchCriteria.class);
+        verify(service, times(2)).search(criteria.capture());
+
+        assertThat(criteria.getAllValues().get(0).getSelect()).containsExactly("name");
+        assertThat(criteria.getAllValues().get(1).getSelect()).isNull();
+    }
+
+    @Test
+    public void whenServiceHasAfterSearchHooksThenSearchTheWholeEntities() {
+        when(service.hasHooks(AFTER_SEARCH)).thenReturn(true);
+
+        search();
+
+        ArgumentCaptor<SearchCriteria> criteria = ArgumentCaptor.forClass(SearchCriteria.class);
+        verify(service).search(criteria.capture());
+
+        assertThat(criteria.getValue().getSelect()).isNull();
+    }
+
+    private void search() {
+        Options options = new Options();
+        options.setProjection("projection");
+        options.setCount(true);
+
+        ServletWebRequest request = new ServletWebRequest(
+                new MockHttpServletRequest("GET", "/example"), new MockHttpServletResponse());
+
+        controller.search(new ExampleSearchInput(), PageRequest.of(0, 20), options, request);
+    }
+
+}
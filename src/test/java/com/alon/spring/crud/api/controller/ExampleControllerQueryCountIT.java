@@ -0,0 +1,101 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.cleaner.DatabaseCleaner;
+import com.alon.spring.crud.core.query.QueryCounter;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static com.alon.spring.crud.api.controller.ExampleCreator.insertBatchOfExamples;
+import static com.alon.spring.crud.core.query.QueryCountAssertions.HEADER;
+import static com.alon.spring.crud.core.query.QueryCountAssertions.assertMaxQueryCount;
+import static com.alon.spring.crud.core.query.QueryCountAssertions.assertQueryCount;
+import static io.restassured.RestAssured.get;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource("classpath:query-count-test.properties")
+@AutoConfigureMockMvc
+public class ExampleControllerQueryCountIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DatabaseCleaner databaseCleaner;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Before
+    public void init() {
+        RestAssured.port = port;
+    }
+
+    @After
+    public void tearDown() {
+        databaseCleaner.clearTables();
+    }
+
+    @Test
+    public void whenSearchThenReturnQueryCount() {
+        insertBatchOfExamples(3);
+
+        Response response = get("/example");
+
+        response.then()
+                .statusCode(HttpStatus.OK.value());
+
+        // The page query, and the count query when the page is not the whole result
+        assertMaxQueryCount(2, response.header(HEADER));
+    }
+
+    @Test
+    public void whenReadThenReturnQueryCount() {
+        insertBatchOfExamples(1);
+
+        Integer id = get("/example").path("content[0].id");
+
+        Response response = get("/example/{id}", id);
+
+        response.then()
+                .statusCode(HttpStatus.OK.value());
+
+        assertQueryCount(1, response.header(HEADER));
+    }
+
+    @Test
+    public void whenExportThenCloseTheQueryCountOfTheRequestThread() throws Exception {
+        insertBatchOfExamples(3);
+
+        // MockMvc runs the first dispatch in the test thread, and the export in another one
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/example/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(QueryCounter.current()).isNull();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alon.spring.crud.api.controller;
+
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.core.query.QueryCount;
+import com.alon.spring.crud.core.query.QueryCounter;
+import com.alon.spring.crud.domain.service.ExampleService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.DispatcherType;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryCountAdviceTest {
+
+    private QueryCountAdvice advice;
+    private HandlerMethod exportHandler;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.queryCount.enabled = true;
+
+        ExampleController controller = new ExampleController(new ExampleService(null));
+        ReflectionTestUtils.setField(controller, CrudController.class, "properties", properties, Properties.class);
+
+        advice = new QueryCountAdvice(properties, new MockEnvironment());
+        exportHandler = new HandlerMethod(controller, Arrays.stream(CrudController.class.getMethods())
+                .filter(method -> method.getName().equals("export"))
+                .findFirst()
+                .orElseThrow());
+        request = new MockHttpServletRequest("GET", "/example/export");
+        response = new MockHttpServletResponse();
+    }
+
+    @After
+    public void tearDown() {
+        QueryCount count = QueryCounter.current();
+
+        while (count != null) {
+            count.close();
+            count = QueryCounter.current();
+        }
+    }
+
+    @Test
+    public void whenAsyncProcessingStartsThenCloseTheCountOfTheRequestThread() {
+        advice.preHandle(request, response, exportHandler);
+
+        assertThat(QueryCounter.current()).isNotNull();
+
+        advice.afterConcurrentHandlingStarted(request, response, exportHandler);
+
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+    @Test
+    public void whenAsyncDispatchThenDontStartAnotherCount() {
+        advice.preHandle(request, response, exportHandler);
+        advice.afterConcurrentHandlingStarted(request, response, exportHandler);
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        advice.preHandle(request, response, exportHandler);
+
+        assertThat(QueryCounter.current()).isNull();
+
+        advice.afterCompletion(request, response, exportHandler, null);
+
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+    @Test
+    public void whenAsyncTaskRunsThenCountItsStatementsInItsThread() {
+        advice.preHandle(request, response, exportHandler);
+        advice.afterConcurrentHandlingStarted(request, response, exportHandler);
+
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        Callable<StreamingResponseBody> task = () -> null;
+
+        Boolean countedInTask = CompletableFuture.supplyAsync(() -> {
+            advice.preProcess(webRequest, task);
+            boolean counted = QueryCounter.current() != null;
+            advice.postProcess(webRequest, task, null);
+
+            return counted && QueryCounter.current() == null;
+        }).join();
+
+        assertThat(countedInTask).isTrue();
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+}
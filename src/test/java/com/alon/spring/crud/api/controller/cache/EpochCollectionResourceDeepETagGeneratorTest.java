@@ -0,0 +1,116 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import com.alon.spring.crud.api.controller.input.SearchInput;
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.service.ModificationEpochs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class EpochCollectionResourceDeepETagGeneratorTest {
+
+    private CollectionResourceDeepETagGenerator eTagGenerator = new EpochCollectionResourceDeepETagGenerator();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        verifyZeroInteractions(entityManager);
+    }
+
+    @Test
+    public void whenNothingChangesThenReturnSameETag() {
+        SearchInput search = buildSearchInput("stringProperty:example");
+
+        String first = eTagGenerator.generate(Example.class, entityManager, search);
+        String second = eTagGenerator.generate(Example.class, entityManager, search);
+
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    public void whenEntityTypeIsModifiedThenChangeETag() {
+        SearchInput search = buildSearchInput(null);
+
+        String before = eTagGenerator.generate(Example.class, entityManager, search);
+
+        ModificationEpochs.advance(Example.class);
+
+        String after = eTagGenerator.generate(Example.class, entityManager, search);
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    public void whenFilterChangesThenChangeETag() {
+        String first = eTagGenerator.generate(Example.class, entityManager, buildSearchInput("stringProperty:a"));
+        String second = eTagGenerator.generate(Example.class, entityManager, buildSearchInput("stringProperty:b"));
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    public void whenRequestIsBoundThenUseQueryParametersAsFingerprint() {
+        SearchInput search = buildSearchInput(null);
+
+        bindRequest("page", "0");
+        String firstPage = eTagGenerator.generate(Example.class, entityManager, search);
+
+        bindRequest("page", "1");
+        String secondPage = eTagGenerator.generate(Example.class, entityManager, search);
+
+        assertThat(firstPage).isNotEqualTo(secondPage);
+    }
+
+    @Test
+    public void whenRequestHasExpandThenUseGlobalEpoch() {
+        SearchInput search = buildSearchInput(null);
+
+        bindRequest("expand", "property");
+        String before = eTagGenerator.generate(Example.class, entityManager, search);
+
+        ModificationEpochs.advance(String.class);
+
+        String after = eTagGenerator.generate(Example.class, entityManager, search);
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    private void bindRequest(String parameter, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/example");
+        request.addParameter(parameter, value);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private SearchInput buildSearchInput(String filter) {
+        SearchInput search = new SearchInput() {
+            @Override
+            public Specification toSpecification() {
+                return null;
+            }
+        };
+
+        search.setFilter(filter);
+
+        return search;
+    }
+
+}
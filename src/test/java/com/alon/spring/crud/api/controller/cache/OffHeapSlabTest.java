@@ -0,0 +1,60 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapSlabTest {
+
+    @Test
+    public void whenRingComesAroundThenEvictTheEldestBodies() {
+        OffHeapSlab slab = new OffHeapSlab(10);
+
+        slab.put("first", bytes("aaaa"));
+        slab.put("second", bytes("bbbb"));
+        slab.put("third", bytes("cccc"));
+
+        assertThat(slab.get("first")).isNull();
+        assertThat(slab.get("second")).isEqualTo(bytes("bbbb"));
+        assertThat(slab.get("third")).isEqualTo(bytes("cccc"));
+        assertThat(slab.size()).isEqualTo(8);
+    }
+
+    @Test
+    public void whenKeyIsPutAgainThenReturnTheLastBody() {
+        OffHeapSlab slab = new OffHeapSlab(10);
+
+        slab.put("key", bytes("aaaa"));
+        slab.put("key", bytes("bbbb"));
+
+        assertThat(slab.get("key")).isEqualTo(bytes("bbbb"));
+        assertThat(slab.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void whenBodyIsLargerThanTheSlabThenDoNotStoreIt() {
+        OffHeapSlab slab = new OffHeapSlab(4);
+
+        slab.put("key", bytes("aaaaa"));
+
+        assertThat(slab.get("key")).isNull();
+        assertThat(slab.size()).isZero();
+    }
+
+    @Test
+    public void whenBodyIsOverwrittenThenTheReturnedCopyIsKept() {
+        OffHeapSlab slab = new OffHeapSlab(4);
+
+        slab.put("first", bytes("aaaa"));
+        byte[] first = slab.get("first");
+        slab.put("second", bytes("bbbb"));
+
+        assertThat(first).isEqualTo(bytes("aaaa"));
+        assertThat(slab.get("first")).isNull();
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes();
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.alon.spring.crud.api.controller.cache;
+
+import com.alon.spring.crud.api.configuration.WebConfigurer;
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.service.ModificationEpochs;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseBodyCacheTest {
+
+    private Properties properties;
+    private ResponseBodyCache cache;
+
+    @Before
+    public void setUp() {
+        properties = new Properties();
+        properties.responseCache.enabled = true;
+
+        WebConfigurer webConfigurer = new WebConfigurer();
+        webConfigurer.properties = properties;
+
+        cache = new ResponseBodyCache(properties, webConfigurer);
+    }
+
+    @Test
+    public void whenBodyIsCachedThenWriteTheSameBytes() throws Exception {
+        MockHttpServletRequest request = buildRequest();
+        String key = cache.buildKey(Example.class, request, null, "default", Set.of());
+
+        MockHttpServletResponse miss = new MockHttpServletResponse();
+        assertThat(cache.writeIfPresent(key, request, miss, new HttpHeaders())).isFalse();
+
+        cache.putAndWrite(key, Map.of("name", "example"), request, miss, new HttpHeaders());
+
+        MockHttpServletResponse hit = new MockHttpServletResponse();
+        assertThat(cache.writeIfPresent(key, request, hit, new HttpHeaders())).isTrue();
+
+        assertThat(hit.getContentAsString()).isEqualTo("{\"name\":\"example\"}");
+        assertThat(hit.getContentAsString()).isEqualTo(miss.getContentAsString());
+        assertThat(hit.getContentType()).startsWith("application/json");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenEntityTypeIsModifiedThenChangeKey() {
+        MockHttpServletRequest request = buildRequest();
+
+        String before = cache.buildKey(Example.class, request, null, "default", Set.of());
+
+        ModificationEpochs.advance(Example.class);
+
+        String after = cache.buildKey(Example.class, request, null, "default", Set.of());
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    public void whenRequestHasExpandThenUseGlobalEpoch() {
+        MockHttpServletRequest request = buildRequest();
+
+        String before = cache.buildKey(Example.class, request, null, "default", Set.of("property"));
+
+        ModificationEpochs.advance(String.class);
+
+        String after = cache.buildKey(Example.class, request, null, "default", Set.of("property"));
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    public void whenScopeIsDifferentThenChangeKey() {
+        MockHttpServletRequest request = buildRequest();
+
+        String first = cache.buildKey(Example.class, request, "first-user", "default", Set.of());
+        String second = cache.buildKey(Example.class, request, "second-user", "default", Set.of());
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    public void whenHeapTierIsFullThenMoveEldestToOffHeapTier() throws Exception {
+        properties.responseCache.maximumHeapSize = 40;
+        properties.responseCache.maximumOffHeapSize = 1024;
+
+        MockHttpServletRequest request = buildRequest();
+
+        cache.putAndWrite("first", Map.of("name", "first-example"), request,
+                new MockHttpServletResponse(), new HttpHeaders());
+        cache.putAndWrite("second", Map.of("name", "second-example"), request,
+                new MockHttpServletResponse(), new HttpHeaders());
+
+        assertThat(cache.getOffHeapSize()).isGreaterThan(0);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(cache.writeIfPresent("first", request, response, new HttpHeaders())).isTrue();
+        assertThat(response.getContentAsString()).isEqualTo("{\"name\":\"first-example\"}");
+    }
+
+    @Test
+    public void whenEntriesAreInManySegmentsThenKeepTheHeapSizeUnderTheMaximum() {
+        properties.responseCache.maximumHeapSize = 200;
+
+        MockHttpServletRequest request = buildRequest();
+
+        for (int i = 0; i < 50; i++)
+            cache.putAndWrite("key " + i, Map.of("name", "example " + i), request,
+                    new MockHttpServletResponse(), new HttpHeaders());
+
+        assertThat(cache.getHeapSize()).isBetween(1L, 200L);
+        assertThat(cache.writeIfPresent("key 49", request, new MockHttpServletResponse(), new HttpHeaders()))
+                .isTrue();
+    }
+
+    @Test
+    public void whenGzipIsEnabledThenWriteCompressedBodyOnlyIfAccepted() throws Exception {
+        properties.responseCache.gzip = true;
+
+        MockHttpServletRequest request = buildRequest();
+        cache.putAndWrite("key", Map.of("name", "example"), request,
+                new MockHttpServletResponse(), new HttpHeaders());
+
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+        cache.writeIfPresent("key", request, plain, new HttpHeaders());
+
+        assertThat(plain.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plain.getContentAsString()).isEqualTo("{\"name\":\"example\"}");
+
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        MockHttpServletResponse compressed = new MockHttpServletResponse();
+        cache.writeIfPresent("key", request, compressed, new HttpHeaders());
+
+        assertThat(compressed.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(new String(new GZIPInputStream(new ByteArrayInputStream(compressed.getContentAsByteArray()))
+                .readAllBytes())).isEqualTo("{\"name\":\"example\"}");
+    }
+
+    private MockHttpServletRequest buildRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/example");
+        request.addParameter("page", "0");
+        return request;
+    }
+
+}
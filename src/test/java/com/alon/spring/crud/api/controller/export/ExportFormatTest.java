@@ -0,0 +1,69 @@
+package com.alon.spring.crud.api.controller.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExportFormatTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void whenNdjsonThenWriteOneDocumentPerLine() throws IOException {
+        String output = export(ExportFormat.NDJSON, row(1, "first"), row(2, "second"));
+
+        assertThat(output).isEqualTo("{\"id\":1,\"name\":\"first\"}\n{\"id\":2,\"name\":\"second\"}\n");
+    }
+
+    @Test
+    public void whenCsvThenWriteHeaderFromFirstRow() throws IOException {
+        String output = export(ExportFormat.CSV, row(1, "first"), row(2, null));
+
+        assertThat(output).isEqualTo("id,name\r\n1,first\r\n2,\r\n");
+    }
+
+    @Test
+    public void whenCsvCellHasSeparatorsThenQuoteIt() throws IOException {
+        String output = export(ExportFormat.CSV, row(1, "a, \"b\"\nc"));
+
+        assertThat(output).isEqualTo("id,name\r\n1,\"a, \"\"b\"\"\nc\"\r\n");
+    }
+
+    @Test
+    public void whenCsvCellIsAnArrayThenWriteItAsJson() throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1);
+        row.put("tags", List.of("a"));
+
+        String output = export(ExportFormat.CSV, row);
+
+        assertThat(output).isEqualTo("id,tags\r\n1,\"[\"\"a\"\"]\"\r\n");
+    }
+
+    private String export(ExportFormat format, Object... rows) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = format.createWriter(output, objectMapper)) {
+            for (Object row : rows)
+                writer.write(row);
+        }
+
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> row(int id, String name) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("name", name);
+        return row;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.alon.spring.crud.api.controller.input;
+
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.model.Example;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class OptionsNormalizerTest {
+
+    private static final Set<String> SELECTABLE_FIELDS = Set.of("name", "owner.name");
+
+    private OptionsNormalizer normalizer;
+
+    @Before
+    public void setUp() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType exampleType = mockType(metamodel, Example.class);
+        ManagedType ownerType = mockType(metamodel, Owner.class);
+
+        mockBasic(exampleType, "name");
+        mockBasic(exampleType, "password");
+        mockSingularAssociation(exampleType, "owner", ownerType);
+        mockBasic(ownerType, "name");
+
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getMetamodel()).thenReturn(metamodel);
+
+        normalizer = new OptionsNormalizer(new Properties(), null, entityManagerFactory);
+    }
+
+    @Test
+    public void whenSelectableFieldsThenKeepThem() {
+        Options options = buildOptions(Set.of("owner"), " name ", "owner.name");
+
+        normalizer.normalizeFields(options, Example.class, () -> SELECTABLE_FIELDS, List::of);
+
+        assertThat(options.getFields()).containsExactlyInAnyOrder("name", "owner.name");
+    }
+
+    @Test
+    public void whenNoSelectableFieldsThenRejectFields() {
+        Options options = buildOptions(null, "name");
+
+        assertThatThrownBy(() -> normalizer.normalizeFields(options, Example.class, Set::of, List::of))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    public void whenProjectionsAreRestrictedThenRejectFields() {
+        Options options = buildOptions(null, "name");
+
+        assertThatThrownBy(() -> normalizer.normalizeFields(options, Example.class,
+                () -> SELECTABLE_FIELDS, () -> List.of("projection")))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    public void whenFieldIsNotSelectableThenReject() {
+        Options options = buildOptions(null, "password");
+
+        assertThatThrownBy(() -> normalizer.normalizeFields(options, Example.class,
+                () -> Set.of("name"), List::of))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    public void whenPathGoesThroughAssociationNotExpandedThenReject() {
+        Options options = buildOptions(null, "owner.name");
+
+        assertThatThrownBy(() -> normalizer.normalizeFields(options, Example.class,
+                () -> SELECTABLE_FIELDS, List::of))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    public void whenBlankFieldsThenRemoveThem() {
+        Options options = buildOptions(null, " ");
+
+        normalizer.normalizeFields(options, Example.class, Set::of, List::of);
+
+        assertThat(options.getFields()).isNull();
+    }
+
+    @Test
+    public void whenCursorInUnpagedRequestThenReject() {
+        Options options = new Options();
+        options.setCursor("");
+
+        assertThatThrownBy(() -> normalizer.normalizeCursor(options, Pageable.unpaged()))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    public void whenCursorInPagedRequestThenKeepIt() {
+        Options options = new Options();
+        options.setCursor("");
+
+        normalizer.normalizeCursor(options, PageRequest.of(0, 20));
+
+        assertThat(options.getCursor()).isEmpty();
+    }
+
+    private Options buildOptions(Set<String> expand, String... fields) {
+        Options options = new Options();
+        options.setExpand(expand);
+        options.setFields(Set.of(fields));
+        return options;
+    }
+
+    private ManagedType mockType(Metamodel metamodel, Class<?> type) {
+        ManagedType managedType = mock(ManagedType.class);
+        when(managedType.getAttribute(anyString())).thenThrow(new IllegalArgumentException());
+        when(metamodel.managedType(type)).thenReturn(managedType);
+        return managedType;
+    }
+
+    private void mockBasic(ManagedType owner, String name) {
+        SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.isAssociation()).thenReturn(false);
+        doReturn(attribute).when(owner).getAttribute(name);
+    }
+
+    private void mockSingularAssociation(ManagedType owner, String name, ManagedType type) {
+        SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.isAssociation()).thenReturn(true);
+        when(attribute.getType()).thenReturn(type);
+        doReturn((Attribute) attribute).when(owner).getAttribute(name);
+    }
+
+    private static class Owner {}
+
+}
@@ -0,0 +1,353 @@
+package com.alon.spring.crud.api.controller.input.mapper;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.model.Example;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompiledInputMapperTest {
+
+    @Test
+    public void whenMapThenCopyTheProperties() {
+        CompiledInputMapper<ExampleInput, Example> mapper = CompiledInputMapper.of(ExampleInput.class, Example.class)
+                .map("property", "stringProperty")
+                .build();
+
+        Example output = mapper.map(input(1L, "property"));
+
+        assertThat(output.getId()).isEqualTo(1L);
+        assertThat(output.getStringProperty()).isEqualTo("property");
+    }
+
+    @Test
+    public void whenMapToExistingOutputThenCopyTheProperties() {
+        CompiledInputMapper<ExampleInput, Example> mapper = CompiledInputMapper.of(ExampleInput.class, Example.class)
+                .map("property", "stringProperty")
+                .ignore("id")
+                .build();
+
+        Example output = new Example();
+        output.setId(2L);
+
+        mapper.map(input(1L, "property"), output);
+
+        assertThat(output.getId()).isEqualTo(2L);
+        assertThat(output.getStringProperty()).isEqualTo("property");
+    }
+
+    @Test
+    public void whenInputPropertyIsNotMappedThenFailOnBuild() {
+        assertThatThrownBy(() -> CompiledInputMapper.of(ExampleInput.class, Example.class).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The properties [property] of ExampleInput have no property of the same name and type in Example");
+    }
+
+    @Test
+    public void whenInputAndOutputAreEqualsThenReturn() {
+        CompiledInputMapper<Example, Example> mapper = CompiledInputMapper.of(Example.class, Example.class).build();
+
+        Example input = new Example();
+
+        assertThat(mapper.map(input)).isSameAs(input);
+    }
+
+    @Test
+    public void whenPropertyIsAnotherBeanThenMapItWithNestedMapper() {
+        CompiledInputMapper<OrderInput, Order> mapper = CompiledInputMapper.of(OrderInput.class, Order.class).build();
+
+        OrderInput input = new OrderInput();
+        input.setQuantity(3);
+        input.setCustomer(new CustomerInput());
+        input.getCustomer().setName("customer");
+
+        Order output = mapper.map(input);
+
+        assertThat(output.getQuantity()).isEqualTo(3);
+        assertThat(output.getCustomer().getName()).isEqualTo("customer");
+    }
+
+    @Test
+    public void whenPropertyIsCollectionOfAnotherBeanThenMapTheElements() {
+        CompiledInputMapper<CartInput, Cart> mapper = CompiledInputMapper.of(CartInput.class, Cart.class).build();
+
+        Cart output = mapper.map(cartInput("first", "second"));
+
+        assertThat(output.getItems())
+                .hasSize(2)
+                .allSatisfy(item -> assertThat(item).isExactlyInstanceOf(Item.class))
+                .extracting(Item::getName)
+                .containsExactly("first", "second");
+        assertThat(output.getTags()).containsExactly("tag");
+    }
+
+    @Test
+    public void whenOutputHasCollectionThenReplaceItsElements() {
+        CompiledInputMapper<CartInput, Cart> mapper = CompiledInputMapper.of(CartInput.class, Cart.class).build();
+
+        Cart output = new Cart();
+        List<Item> items = new ArrayList<>(List.of(new Item()));
+        output.setItems(items);
+
+        mapper.map(cartInput("first"), output);
+
+        assertThat(output.getItems()).isSameAs(items);
+        assertThat(output.getItems()).extracting(Item::getName).containsExactly("first");
+    }
+
+    @Test
+    public void whenCollectionElementsCantBeMappedThenFailOnBuild() {
+        assertThatThrownBy(() -> CompiledInputMapper.of(CodesInput.class, Codes.class).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The properties [codes] of CodesInput have no property of the same name and type in Codes");
+    }
+
+    private CartInput cartInput(String... names) {
+        CartInput input = new CartInput();
+        input.setTags(Set.of("tag"));
+
+        for (String name : names) {
+            ItemInput item = new ItemInput();
+            item.setName(name);
+            input.getItems().add(item);
+        }
+
+        return input;
+    }
+
+    private ExampleInput input(Long id, String property) {
+        ExampleInput input = new ExampleInput();
+        input.setId(id);
+        input.setProperty(property);
+        return input;
+    }
+
+    public static class ExampleInput {
+
+        private Long id;
+        private String property;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String property) {
+            this.property = property;
+        }
+    }
+
+    public static class OrderInput {
+
+        private Integer quantity;
+        private CustomerInput customer;
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+
+        public CustomerInput getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(CustomerInput customer) {
+            this.customer = customer;
+        }
+    }
+
+    public static class CustomerInput {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Order extends BaseEntity<Long> {
+
+        private Long id;
+        private int quantity;
+        private Customer customer;
+
+        protected Order() {}
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    public static class Customer {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class CartInput {
+
+        private List<ItemInput> items = new ArrayList<>();
+        private Set<String> tags;
+
+        public List<ItemInput> getItems() {
+            return items;
+        }
+
+        public void setItems(List<ItemInput> items) {
+            this.items = items;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    public static class ItemInput {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Cart extends BaseEntity<Long> {
+
+        private Long id;
+        private List<Item> items;
+        private Set<String> tags;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    public static class Item {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class CodesInput {
+
+        private List<String> codes;
+
+        public List<String> getCodes() {
+            return codes;
+        }
+
+        public void setCodes(List<String> codes) {
+            this.codes = codes;
+        }
+    }
+
+    public static class Codes extends BaseEntity<Long> {
+
+        private Long id;
+        private List<Integer> codes;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public List<Integer> getCodes() {
+            return codes;
+        }
+
+        public void setCodes(List<Integer> codes) {
+            this.codes = codes;
+        }
+    }
+
+}
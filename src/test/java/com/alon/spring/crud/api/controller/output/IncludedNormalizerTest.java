@@ -0,0 +1,257 @@
+package com.alon.spring.crud.api.controller.output;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncludedNormalizerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void whenRowsShareExpandedEntityThenIncludeItOnce() throws Exception {
+        Customer customer = customer(10L, "customer");
+        List<Order> orders = List.of(order(1L, customer), order(2L, customer));
+
+        OutputPage page = IncludedNormalizer.normalize(page(orders), orders, Set.of("customer"), objectMapper);
+
+        assertThat(objectMapper.writeValueAsString(page.getContent())).isEqualTo(
+                "[{\"id\":1,\"customer\":{\"type\":\"Customer\",\"id\":10}},"
+                        + "{\"id\":2,\"customer\":{\"type\":\"Customer\",\"id\":10}}]");
+        assertThat(objectMapper.writeValueAsString(page.getIncluded())).isEqualTo(
+                "{\"Customer\":{\"10\":{\"id\":10,\"name\":\"customer\",\"address\":null}}}");
+    }
+
+    @Test
+    public void whenExpandIsNestedThenIncludedEntitiesReferenceEachOther() throws Exception {
+        Customer customer = customer(10L, "customer");
+        customer.setAddress(address(100L));
+        List<Order> orders = List.of(order(1L, customer));
+
+        OutputPage page = IncludedNormalizer.normalize(page(orders), orders, Set.of("customer.address"), objectMapper);
+
+        assertThat(objectMapper.writeValueAsString(page.getIncluded())).isEqualTo(
+                "{\"Address\":{\"100\":{\"id\":100}},"
+                        + "\"Customer\":{\"10\":{\"id\":10,\"name\":\"customer\","
+                        + "\"address\":{\"type\":\"Address\",\"id\":100}}}}");
+    }
+
+    @Test
+    public void whenPropertyIsNotExpandedThenKeepItEmbedded() throws Exception {
+        List<Order> orders = List.of(order(1L, customer(10L, "customer")));
+
+        OutputPage page = IncludedNormalizer.normalize(page(orders), orders, Set.of(), objectMapper);
+
+        assertThat(objectMapper.writeValueAsString(page.getContent())).isEqualTo(
+                "[{\"id\":1,\"customer\":{\"id\":10,\"name\":\"customer\",\"address\":null}}]");
+        assertThat(page.getIncluded()).isEmpty();
+    }
+
+    @Test
+    public void whenNormalizeThenDontChangeThePage() {
+        List<Order> orders = List.of(order(1L, customer(10L, "customer")));
+        OutputPage page = page(orders);
+
+        OutputPage normalized = IncludedNormalizer.normalize(page, orders, Set.of("customer"), objectMapper);
+
+        assertThat(normalized).isNotSameAs(page);
+        assertThat(page.getContent()).containsExactlyElementsOf(orders);
+        assertThat(page.getIncluded()).isNull();
+    }
+
+    @Test
+    public void whenPageIsSliceThenKeepNextPageAndCursors() {
+        List<Order> orders = List.of(order(1L, customer(10L, "customer")));
+        OutputPage slice = OutputSlice.ofSlice()
+                .page(0)
+                .pageSize(orders.size())
+                .hasNext(true)
+                .nextCursor("next")
+                .content(orders)
+                .build();
+
+        OutputPage normalized = IncludedNormalizer.normalize(slice, orders, Set.of("customer"), objectMapper);
+
+        assertThat(normalized).isInstanceOf(OutputSlice.class);
+        assertThat(((OutputSlice) normalized).hasNext()).isTrue();
+        assertThat(normalized.getNextCursor()).isEqualTo("next");
+        assertThat(normalized.getPreviousCursor()).isNull();
+        assertThat(normalized.getIncluded()).containsOnlyKeys("Customer");
+    }
+
+    @Test
+    public void whenEntityIsNamedThenIncludeItByEntityName() throws Exception {
+        Contract contract = new Contract();
+        contract.setId(1L);
+        contract.setParty(party(10L));
+        List<Contract> contracts = List.of(contract);
+
+        OutputPage page = IncludedNormalizer.normalize(OutputPage.of().content(contracts).build(), contracts,
+                Set.of("party"), objectMapper);
+
+        assertThat(objectMapper.writeValueAsString(page.getContent())).isEqualTo(
+                "[{\"id\":1,\"party\":{\"type\":\"ContractParty\",\"id\":10}}]");
+        assertThat(page.getIncluded()).containsOnlyKeys("ContractParty");
+    }
+
+    private OutputPage page(List<Order> orders) {
+        return OutputPage.of()
+                .page(0)
+                .pageSize(orders.size())
+                .content(orders)
+                .build();
+    }
+
+    private Order order(Long id, Customer customer) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCustomer(customer);
+        return order;
+    }
+
+    private Customer customer(Long id, String name) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName(name);
+        return customer;
+    }
+
+    private Party party(Long id) {
+        Party party = new Party();
+        party.setId(id);
+        return party;
+    }
+
+    private Address address(Long id) {
+        Address address = new Address();
+        address.setId(id);
+        return address;
+    }
+
+    @JsonIgnoreProperties({ "creationTimestamp", "updateTimestamp" })
+    public static class Order extends BaseEntity<Long> {
+
+        private Long id;
+        private Customer customer;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    @JsonIgnoreProperties({ "creationTimestamp", "updateTimestamp" })
+    public static class Customer extends BaseEntity<Long> {
+
+        private Long id;
+        private String name;
+        private Address address;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    @JsonIgnoreProperties({ "creationTimestamp", "updateTimestamp" })
+    public static class Address extends BaseEntity<Long> {
+
+        private Long id;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    @JsonIgnoreProperties({ "creationTimestamp", "updateTimestamp" })
+    public static class Contract extends BaseEntity<Long> {
+
+        private Long id;
+        private Party party;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Party getParty() {
+            return party;
+        }
+
+        public void setParty(Party party) {
+            this.party = party;
+        }
+    }
+
+    @Entity(name = "ContractParty")
+    @JsonIgnoreProperties({ "creationTimestamp", "updateTimestamp" })
+    public static class Party extends BaseEntity<Long> {
+
+        @Id
+        private Long id;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+}
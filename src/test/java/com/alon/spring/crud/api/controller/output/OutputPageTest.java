@@ -10,6 +10,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.springframework.data.domain.Page;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 public class OutputPageTest {
 
     @Mock
@@ -40,4 +42,17 @@ public class OutputPageTest {
                 .first()
                 .isEqualTo("element");
     }
+
+    @Test
+    public void whenThereAreNoCursorsThenDontSerializeThem() throws Exception {
+        OutputPage outputPage = OutputPage.of()
+                .content(List.of("element"))
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(outputPage);
+
+        assertThat(json)
+                .doesNotContain("nextCursor")
+                .doesNotContain("previousCursor");
+    }
 }
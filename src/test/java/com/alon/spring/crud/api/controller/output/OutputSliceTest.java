@@ -0,0 +1,49 @@
+package com.alon.spring.crud.api.controller.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutputSliceTest {
+
+    @Test
+    public void whenBuildThenSuccess() {
+        OutputSlice outputSlice = OutputSlice.ofSlice()
+                .page(1)
+                .pageSize(10)
+                .hasNext(true)
+                .content(List.of("element"))
+                .build();
+
+        assertThat(outputSlice.getPage()).isEqualTo(1);
+        assertThat(outputSlice.getPageSize()).isEqualTo(10);
+        assertThat(outputSlice.hasNext()).isTrue();
+        assertThat(outputSlice.getTotalPages()).isEqualTo(-1);
+        assertThat(outputSlice.getTotalSize()).isEqualTo(-1);
+        assertThat(outputSlice.getContent())
+                .hasSize(1)
+                .first()
+                .isEqualTo("element");
+    }
+
+    @Test
+    public void whenSerializeThenReplaceTotalsWithHasNext() throws Exception {
+        OutputSlice outputSlice = OutputSlice.ofSlice()
+                .page(0)
+                .pageSize(1)
+                .hasNext(false)
+                .content(List.of("element"))
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(outputSlice);
+
+        assertThat(json)
+                .contains("\"hasNext\":false")
+                .doesNotContain("totalPages")
+                .doesNotContain("totalSize");
+    }
+
+}
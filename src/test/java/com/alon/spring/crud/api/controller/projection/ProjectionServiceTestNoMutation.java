@@ -8,15 +8,15 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.annotation.DirtiesContext.MethodMode.AFTER_METHOD;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.hibernate.collection.internal.PersistentBag;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,10 +28,14 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import com.alon.spring.crud.api.controller.output.ExampleDTO;
 import com.alon.spring.crud.api.controller.output.OutputPage;
+import com.alon.spring.crud.api.projection.BatchProjector;
+import com.alon.spring.crud.api.projection.ProjectionRegistry;
 import com.alon.spring.crud.api.projection.ProjectionRepresentation;
 import com.alon.spring.crud.api.projection.ProjectionService;
 import com.alon.spring.crud.api.projection.Projector;
+import com.alon.spring.crud.api.projection.RepresentationService;
 import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.model.ExampleGroup;
 import com.alon.spring.crud.domain.service.exception.ProjectionException;
 
 @RunWith(SpringRunner.class)
@@ -41,6 +45,9 @@ public class ProjectionServiceTestNoMutation {
     @Autowired
     private ProjectionService projectionService;
 
+    @Autowired
+    private RepresentationService representationService;
+
     @Test
     public void whenProjectNOPProjectionThenReturnSameObject() {
         Example example = Example.of()
@@ -85,7 +92,8 @@ public class ProjectionServiceTestNoMutation {
     public void whenProjectorThrowsExceptionThenThrowsProjectionException() {
         Projector brokerProjector = mockBrokenProjector();
         ReflectionTestUtils.setField(projectionService,
-                "projections", Map.of("brokenProjection", brokerProjector));
+                "registry", ProjectionRegistry.of(Map.of("brokenProjection", brokerProjector),
+                        representationService));
 
         Example example = Example.of()
                 .id(1L)
@@ -159,7 +167,105 @@ public class ProjectionServiceTestNoMutation {
     public void whenProjectorThrowsExceptionProjectingPageThenThrowsProjectionException() {
         Projector brokerProjector = mockBrokenProjector();
         ReflectionTestUtils.setField(projectionService,
-                "projections", Map.of("brokenProjection", brokerProjector));
+                "registry", ProjectionRegistry.of(Map.of("brokenProjection", brokerProjector),
+                        representationService));
+
+        assertThatThrownBy(() -> projectionService.project("brokenProjection", mockPage()))
+                .isExactlyInstanceOf(ProjectionException.class)
+                .hasMessage("Error projecting page with projector 'brokenProjection'")
+                .hasCauseExactlyInstanceOf(RuntimeException.class)
+                .hasStackTraceContaining("Mocked exception");
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenProjectPageWithBatchProjectorThenProjectAllAtOnce() {
+        BatchProjector batchProjector = mock(BatchProjector.class);
+        when(batchProjector.projectAll(any())).thenReturn(List.of("projection 1", "projection 2"));
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("batchProjection", batchProjector),
+                        representationService));
+
+        OutputPage<String> outputPage = projectionService.project("batchProjection", mockPage());
+
+        assertThat(outputPage.getContent()).containsExactly("projection 1", "projection 2");
+        verify(batchProjector).projectAll(any());
+        verify(batchProjector, never()).project(any());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenBatchProjectorReturnsWrongSizeThenThrowsProjectionException() {
+        BatchProjector batchProjector = mock(BatchProjector.class);
+        when(batchProjector.projectAll(any())).thenReturn(List.of("projection 1"));
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("batchProjection", batchProjector),
+                        representationService));
+
+        assertThatThrownBy(() -> projectionService.project("batchProjection", mockPage()))
+                .isExactlyInstanceOf(ProjectionException.class)
+                .hasMessage("Batch projector returned 1 projections for 2 inputs");
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenPageReachesParallelThresholdThenProjectInParallelKeepingOrder() {
+        Projector parallelProjector = mock(Projector.class);
+        when(parallelProjector.parallelThreshold()).thenReturn(2);
+        when(parallelProjector.project(any()))
+                .thenAnswer(invocation -> ((Example) invocation.getArgument(0)).getStringProperty());
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("parallelProjection", parallelProjector),
+                        representationService));
+
+        OutputPage<String> outputPage = projectionService.project("parallelProjection", mockPage());
+
+        assertThat(outputPage.getContent()).containsExactly("property 1", "property 2");
+        assertThat(projectionService.getStats("parallelProjection").getParallelCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenExpandIsNotLoadedThenProjectSequentially() {
+        Projector parallelProjector = mockGroupProjector();
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("groupProjection", parallelProjector),
+                        representationService));
+
+        ExampleGroup loaded = ExampleGroup.of("loaded", 1);
+        ExampleGroup notLoaded = ExampleGroup.of("not loaded", 0);
+        notLoaded.setItems(new PersistentBag());
+
+        OutputPage<String> outputPage = projectionService.project("groupProjection", mockPage(List.of(loaded, notLoaded)));
+
+        assertThat(outputPage.getContent()).containsExactly("loaded", "not loaded");
+        assertThat(projectionService.getStats("groupProjection").getParallelCount()).isZero();
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenExpandIsLoadedThenProjectInParallel() {
+        Projector parallelProjector = mockGroupProjector();
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("groupProjection", parallelProjector),
+                        representationService));
+
+        List<ExampleGroup> groups = List.of(ExampleGroup.of("first", 1), ExampleGroup.of("second", 2));
+
+        OutputPage<String> outputPage = projectionService.project("groupProjection", mockPage(groups));
+
+        assertThat(outputPage.getContent()).containsExactly("first", "second");
+        assertThat(projectionService.getStats("groupProjection").getParallelCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DirtiesContext(methodMode = AFTER_METHOD)
+    public void whenProjectorThrowsExceptionProjectingPageInParallelThenThrowsProjectionException() {
+        Projector brokerProjector = mockBrokenProjector();
+        when(brokerProjector.parallelThreshold()).thenReturn(1);
+        ReflectionTestUtils.setField(projectionService,
+                "registry", ProjectionRegistry.of(Map.of("brokenProjection", brokerProjector),
+                        representationService));
 
         assertThatThrownBy(() -> projectionService.project("brokenProjection", mockPage()))
                 .isExactlyInstanceOf(ProjectionException.class)
@@ -188,29 +294,28 @@ public class ProjectionServiceTestNoMutation {
 
     @Test
     public void whenGetRepresentationsThenReturn() {
-        Map<Class, List<ProjectionRepresentation>> representationsCache = spy(new HashMap<>());
-        ReflectionTestUtils.setField(projectionService, "representationsCache", representationsCache);
-
         List<ProjectionRepresentation> representations =
                 projectionService.getEntityRepresentations(Example.class, () -> "default", () -> "default");
 
         assertRepresentations(representations);
 
-        verify(representationsCache, never()).get(Example.class);
-        verify(representationsCache).put(Example.class, representations);
+        List<ProjectionRepresentation> otherRepresentations =
+                projectionService.getEntityRepresentations(Example.class, () -> "default", () -> "exampleProjection");
 
-        representations = projectionService.getEntityRepresentations(Example.class, () -> "default", () -> "default");
-
-        assertRepresentations(representations);
+        assertRepresentations(otherRepresentations);
 
-        verify(representationsCache).get(Example.class);
+        assertThat(otherRepresentations.get(0).getRepresentation())
+                .isSameAs(representations.get(0).getRepresentation());
+        assertThat(representations.get(0).isCollectionDefault()).isFalse();
+        assertThat(otherRepresentations.get(0).isCollectionDefault()).isTrue();
     }
 
     @Test
     @DirtiesContext(methodMode = AFTER_METHOD)
     public void whenProjectorGenericsNotDefinedInClassDeclarationThenDoNotReturnIt() {
         ReflectionTestUtils.setField(projectionService,
-                "projections", Map.of("projector", new GenericProjectorExample<Example, Example>()));
+                "registry", ProjectionRegistry.of(Map.of("projector", new GenericProjectorExample<Example, Example>()),
+                        representationService));
 
         List<ProjectionRepresentation> representations =
                 projectionService.getEntityRepresentations(Example.class, () -> "default", () -> "default");
@@ -237,6 +342,27 @@ public class ProjectionServiceTestNoMutation {
         return projector;
     }
 
+    private Projector mockGroupProjector() {
+        Projector projector = mock(Projector.class);
+        when(projector.parallelThreshold()).thenReturn(2);
+        when(projector.requiredExpand()).thenReturn(Set.of("items"));
+        when(projector.project(any()))
+                .thenAnswer(invocation -> ((ExampleGroup) invocation.getArgument(0)).getName());
+
+        return projector;
+    }
+
+    private Page mockPage(List content) {
+        Page page = mock(Page.class);
+        when(page.getNumber()).thenReturn(1);
+        when(page.getNumberOfElements()).thenReturn(content.size());
+        when(page.getTotalPages()).thenReturn(1);
+        when(page.getTotalElements()).thenReturn((long) content.size());
+        when(page.getContent()).thenReturn(content);
+
+        return page;
+    }
+
     private Page mockPage() {
         Page page = mock(Page.class);
         when(page.getNumber()).thenReturn(1);
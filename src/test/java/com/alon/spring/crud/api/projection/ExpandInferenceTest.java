@@ -0,0 +1,133 @@
+package com.alon.spring.crud.api.projection;
+
+import org.junit.Test;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ExpandInferenceTest {
+
+    private final RepresentationService representationService = new RepresentationService(List.of());
+
+    @Test
+    public void whenOutputFieldsReadAssociationsThenInferMinimalExpand() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+        ManagedType ownerType = mockType(metamodel, Owner.class);
+        ManagedType itemType = mockType(metamodel, Item.class);
+
+        mockBasic(entityType, "name");
+        mockSingularAssociation(entityType, "owner", ownerType);
+        mockPluralAssociation(entityType, "items", itemType);
+        mockSingularAssociation(ownerType, "address", mockType(metamodel, Address.class));
+
+        assertThat(ExpandInference.infer(metamodel, representationService, Entity.class, EntityDTO.class))
+                .containsExactly("owner.address", "items");
+    }
+
+    @Test
+    public void whenOutputFieldOfAssociationIsAValueThenDoNotExpand() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+
+        mockSingularAssociation(entityType, "owner", mockType(metamodel, Owner.class));
+
+        assertThat(ExpandInference.infer(metamodel, representationService, Entity.class, OwnerNameDTO.class)).isEmpty();
+    }
+
+    @Test
+    public void whenOutputFieldIsInheritedThenInferItsExpand() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+        ManagedType ownerType = mockType(metamodel, Owner.class);
+
+        mockSingularAssociation(entityType, "owner", ownerType);
+        mockSingularAssociation(ownerType, "address", mockType(metamodel, Address.class));
+
+        assertThat(ExpandInference.infer(metamodel, representationService, Entity.class, ExtendedOwnerDTO.class))
+                .containsExactly("owner.address");
+    }
+
+    @Test
+    public void whenDeclaredExpandLoadsInferredPathThenItIsCovered() {
+        assertThat(ExpandInference.notCovered(Set.of("owner"), Set.of("owner.address"))).isEmpty();
+        assertThat(ExpandInference.notCovered(Set.of("owner.address"), Set.of("owner")))
+                .containsExactly("owner.address");
+    }
+
+    private ManagedType mockType(Metamodel metamodel, Class<?> type) {
+        ManagedType managedType = mock(ManagedType.class);
+        when(managedType.getJavaType()).thenReturn(type);
+        when(managedType.getAttribute(anyString())).thenThrow(new IllegalArgumentException());
+        when(metamodel.managedType(type)).thenReturn(managedType);
+        return managedType;
+    }
+
+    private void mockBasic(ManagedType owner, String name) {
+        SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.isAssociation()).thenReturn(false);
+        doReturn(attribute).when(owner).getAttribute(name);
+    }
+
+    private void mockSingularAssociation(ManagedType owner, String name, ManagedType type) {
+        SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.isAssociation()).thenReturn(true);
+        when(attribute.getType()).thenReturn(type);
+        doReturn((Attribute) attribute).when(owner).getAttribute(name);
+    }
+
+    private void mockPluralAssociation(ManagedType owner, String name, ManagedType type) {
+        PluralAttribute attribute = mock(PluralAttribute.class);
+        when(attribute.isAssociation()).thenReturn(true);
+        when(attribute.getElementType()).thenReturn(type);
+        doReturn((Attribute) attribute).when(owner).getAttribute(name);
+    }
+
+    private static class Entity {
+        private String name;
+        private Owner owner;
+        private List<Item> items;
+    }
+
+    private static class Owner {
+        private Address address;
+    }
+
+    private static class Address {
+    }
+
+    private static class Item {
+    }
+
+    private static class EntityDTO {
+        private String name;
+        private OwnerDTO owner;
+        private List<Item> items;
+        private String computed;
+    }
+
+    private static class OwnerDTO {
+        private Address address;
+    }
+
+    private static class OwnerNameDTO {
+        private String owner;
+    }
+
+    private static class BaseOwnerDTO {
+        private OwnerDTO owner;
+    }
+
+    private static class ExtendedOwnerDTO extends BaseOwnerDTO {
+        private String computed;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FieldsProjectorTest {
+
+    @Test
+    public void whenProjectThenWriteOnlyTheFields() {
+        Map<String, Object> output = new FieldsProjector(List.of("name")).project(entity());
+
+        assertThat(output).containsOnly(Map.entry("name", "entity"));
+    }
+
+    @Test
+    public void whenFieldIsAPathThenWriteNestedMap() {
+        Map<String, Object> output = new FieldsProjector(List.of("id", "owner.name")).project(entity());
+
+        assertThat(output).containsEntry("id", 1L);
+        assertThat(output.get("owner")).isEqualTo(Map.of("name", "owner"));
+    }
+
+    @Test
+    public void whenAssociationIsNullThenWriteNull() {
+        TestEntity entity = entity();
+        entity.setOwner(null);
+
+        Map<String, Object> output = new FieldsProjector(List.of("owner.name")).project(entity);
+
+        assertThat(output).containsEntry("owner", null);
+    }
+
+    @Test
+    public void whenFieldAndItsPathAreRequestedThenWriteTheWholeField() {
+        TestEntity entity = entity();
+
+        Map<String, Object> output = new FieldsProjector(List.of("owner.name", "owner")).project(entity);
+
+        assertThat(output).containsOnly(Map.entry("owner", entity.getOwner()));
+    }
+
+    private TestEntity entity() {
+        Owner owner = new Owner();
+        owner.setName("owner");
+
+        TestEntity entity = new TestEntity();
+        entity.setId(1L);
+        entity.setName("entity");
+        entity.setOwner(owner);
+
+        return entity;
+    }
+
+    public static class TestEntity extends BaseEntity<Long> {
+
+        private Long id;
+        private String name;
+        private Owner owner;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Owner getOwner() {
+            return owner;
+        }
+
+        public void setOwner(Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    public static class Owner {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+}
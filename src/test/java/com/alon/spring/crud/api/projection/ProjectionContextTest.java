@@ -0,0 +1,53 @@
+package com.alon.spring.crud.api.projection;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectionContextTest {
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        MDC.clear();
+    }
+
+    @Test
+    public void whenWithinContextInAnotherThreadThenSeeTheContextOfTheCapturingThread() {
+        RequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(attributes);
+        MDC.put("requestId", "42");
+
+        ProjectionContext context = ProjectionContext.capture();
+
+        Object[] seen = CompletableFuture.supplyAsync(() -> context.within(
+                () -> new Object[] { RequestContextHolder.getRequestAttributes(), MDC.get("requestId") }))
+                .join();
+
+        assertThat(seen).containsExactly(attributes, "42");
+    }
+
+    @Test
+    public void whenLeavingContextThenRestoreThePreviousOne() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        MDC.put("requestId", "42");
+
+        ProjectionContext context = ProjectionContext.capture();
+
+        Object[] seen = CompletableFuture.supplyAsync(() -> {
+            context.within(() -> null);
+            return new Object[] { RequestContextHolder.getRequestAttributes(), MDC.get("requestId") };
+        }).join();
+
+        assertThat(seen).containsExactly(null, null);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectionMemoTest {
+
+    @Test
+    public void whenOutsideOfMemoThenProjectEveryTime() {
+        AtomicInteger projections = new AtomicInteger();
+        Function<TestEntity, String> projector = countingProjector(projections);
+
+        ProjectionMemo.project("entity", entity(1L), projector);
+        ProjectionMemo.project("entity", entity(1L), projector);
+
+        assertThat(projections).hasValue(2);
+    }
+
+    @Test
+    public void whenEntityRepeatsWithinMemoThenProjectOnce() {
+        AtomicInteger projections = new AtomicInteger();
+        Function<TestEntity, String> projector = countingProjector(projections);
+
+        ProjectionMemo.within(ProjectionMemo.create(), () -> {
+            assertThat(ProjectionMemo.project("entity", entity(1L), projector)).isEqualTo("entity 1");
+            assertThat(ProjectionMemo.project("entity", entity(1L), projector)).isEqualTo("entity 1");
+            assertThat(ProjectionMemo.project("entity", entity(2L), projector)).isEqualTo("entity 2");
+            return null;
+        });
+
+        assertThat(projections).hasValue(2);
+        assertThat(ProjectionMemo.current()).isNull();
+    }
+
+    @Test
+    public void whenNamesAreDifferentThenProjectEach() {
+        AtomicInteger projections = new AtomicInteger();
+        Function<TestEntity, String> projector = countingProjector(projections);
+
+        ProjectionMemo.within(ProjectionMemo.create(), () -> {
+            ProjectionMemo.project("summary", entity(1L), projector);
+            ProjectionMemo.project("details", entity(1L), projector);
+            return null;
+        });
+
+        assertThat(projections).hasValue(2);
+    }
+
+    @Test
+    public void whenInputIsNotAnEntityThenMemoizeByIdentity() {
+        AtomicInteger projections = new AtomicInteger();
+        Object input = new Object();
+        Function<Object, Object> projector = value -> projections.incrementAndGet();
+
+        ProjectionMemo.within(ProjectionMemo.create(), () -> {
+            ProjectionMemo.project("value", input, projector);
+            ProjectionMemo.project("value", input, projector);
+            ProjectionMemo.project("value", new Object(), projector);
+            return null;
+        });
+
+        assertThat(projections).hasValue(2);
+    }
+
+    @Test
+    public void whenProjectorMemoizesNestedInputThenProjectBoth() {
+        ProjectionMemo memo = ProjectionMemo.create();
+
+        String output = ProjectionMemo.within(memo, () -> ProjectionMemo.project("outer", entity(1L),
+                outer -> ProjectionMemo.project("inner", entity(2L), inner -> "inner " + inner.getId())));
+
+        assertThat(output).isEqualTo("inner 2");
+        assertThat(memo.size()).isEqualTo(2);
+    }
+
+    private Function<TestEntity, String> countingProjector(AtomicInteger projections) {
+        return entity -> {
+            projections.incrementAndGet();
+            return "entity " + entity.getId();
+        };
+    }
+
+    private TestEntity entity(Long id) {
+        TestEntity entity = new TestEntity();
+        entity.setId(id);
+        return entity;
+    }
+
+    public static class TestEntity extends BaseEntity<Long> {
+
+        private Long id;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+}
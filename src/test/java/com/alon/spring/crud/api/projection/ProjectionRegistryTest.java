@@ -0,0 +1,102 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.api.projection.StreamingProjectionTest.NameOutput;
+import com.alon.spring.crud.api.projection.StreamingProjectionTest.NameProjector;
+import com.alon.spring.crud.api.projection.StreamingProjectionTest.TestEntity;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectionRegistryTest {
+
+    private final RepresentationService representationService = new RepresentationService(List.of());
+
+    @Test
+    public void whenProjectorThenResolveTypes() {
+        ProjectionRegistry registry = ProjectionRegistry.of(Map.of("name", new SimpleNameProjector()),
+                representationService);
+
+        assertTypes(registry.get("name"));
+        assertThat(registry.getEntityProjections(TestEntity.class)).hasSize(1);
+    }
+
+    @Test
+    public void whenBatchProjectorThenResolveTypes() {
+        ProjectionRegistry registry = ProjectionRegistry.of(Map.of("batch", new BatchNameProjector()),
+                representationService);
+
+        assertTypes(registry.get("batch"));
+        assertThat(registry.getEntityProjections(TestEntity.class)).hasSize(1);
+    }
+
+    @Test
+    public void whenStreamingProjectorThenResolveTypes() {
+        ProjectionRegistry registry = ProjectionRegistry.of(Map.of("streaming", new NameProjector()),
+                representationService);
+
+        assertTypes(registry.get("streaming"));
+        assertThat(registry.getEntityProjections(TestEntity.class)).hasSize(1);
+    }
+
+    @Test
+    public void whenProjectorSubclassThenResolveTypes() {
+        ProjectionRegistry registry = ProjectionRegistry.of(Map.of("name", new SimpleNameProjector() {}),
+                representationService);
+
+        assertTypes(registry.get("name"));
+    }
+
+    @Test
+    public void whenTypeArgumentsAreVariablesThenDontResolveTypes() {
+        ProjectionRegistry registry = ProjectionRegistry.of(Map.of("generic", new IdentityProjector<>()),
+                representationService);
+
+        ProjectionRegistry.Entry entry = registry.get("generic");
+
+        assertThat(entry.getInputType()).isNull();
+        assertThat(entry.getOutputType()).isNull();
+        assertThat(registry.getEntityProjections(TestEntity.class)).isEmpty();
+    }
+
+    private void assertTypes(ProjectionRegistry.Entry entry) {
+        assertThat(entry.getInputType()).isEqualTo(TestEntity.class);
+        assertThat(entry.getOutputType()).isEqualTo(NameOutput.class);
+        assertThat(entry.getRepresentation()).isNotNull();
+    }
+
+    public static class SimpleNameProjector implements Projector<TestEntity, NameOutput> {
+
+        @Override
+        public NameOutput project(TestEntity input) {
+            NameOutput output = new NameOutput();
+            output.setName(input.getName());
+
+            return output;
+        }
+    }
+
+    public static class BatchNameProjector implements BatchProjector<TestEntity, NameOutput> {
+
+        private final SimpleNameProjector projector = new SimpleNameProjector();
+
+        @Override
+        public List<NameOutput> projectAll(List<TestEntity> inputs) {
+            return inputs.stream()
+                    .map(projector::project)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static class IdentityProjector<T> implements Projector<T, T> {
+
+        @Override
+        public T project(T input) {
+            return input;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.alon.spring.crud.api.projection;
+
+import org.junit.Test;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class SourceAttributesTest {
+
+    private final RepresentationService representationService = new RepresentationService(List.of());
+
+    @Test
+    public void whenOutputFieldsAreAttributesThenInferThem() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+        ManagedType ownerType = mock(ManagedType.class);
+
+        mockAttribute(entityType, "name", String.class, null);
+        mockAttribute(entityType, "owner", Owner.class, ownerType);
+        mockAttribute(ownerType, "name", String.class, null);
+
+        assertThat(SourceAttributes.infer(metamodel, representationService, Entity.class, EntityDTO.class))
+                .containsExactly("name", "owner.name");
+    }
+
+    @Test
+    public void whenOutputFieldIsInheritedThenInferIt() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+        ManagedType ownerType = mock(ManagedType.class);
+
+        mockAttribute(entityType, "name", String.class, null);
+        mockAttribute(entityType, "owner", Owner.class, ownerType);
+        mockAttribute(ownerType, "name", String.class, null);
+
+        assertThat(SourceAttributes.infer(metamodel, representationService, Entity.class, ExtendedDTO.class))
+                .containsExactlyInAnyOrder("name", "owner.name");
+    }
+
+    @Test
+    public void whenOutputFieldIsNotAnAttributeThenInferNothing() {
+        Metamodel metamodel = mock(Metamodel.class);
+        ManagedType entityType = mockType(metamodel, Entity.class);
+
+        mockAttribute(entityType, "name", String.class, null);
+        when(entityType.getAttribute("computed")).thenThrow(new IllegalArgumentException());
+
+        assertThat(SourceAttributes.infer(metamodel, representationService, Entity.class, ComputedDTO.class)).isEmpty();
+    }
+
+    private ManagedType mockType(Metamodel metamodel, Class<?> type) {
+        ManagedType managedType = mock(ManagedType.class);
+        when(metamodel.managedType(type)).thenReturn(managedType);
+        return managedType;
+    }
+
+    private void mockAttribute(ManagedType owner, String name, Class<?> javaType, ManagedType type) {
+        SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.getJavaType()).thenReturn(javaType);
+        when(attribute.isCollection()).thenReturn(false);
+        when(attribute.getType()).thenReturn(type);
+        when(owner.getAttribute(name)).thenReturn((Attribute) attribute);
+    }
+
+    private static class Entity {
+        private String name;
+        private Owner owner;
+    }
+
+    private static class Owner {
+        private String name;
+    }
+
+    private static class EntityDTO {
+        private String name;
+        private OwnerDTO owner;
+    }
+
+    private static class OwnerDTO {
+        private String name;
+    }
+
+    private static class NameDTO {
+        private String name;
+    }
+
+    private static class ExtendedDTO extends NameDTO {
+        private OwnerDTO owner;
+    }
+
+    private static class ComputedDTO {
+        private String name;
+        private String computed;
+    }
+
+}
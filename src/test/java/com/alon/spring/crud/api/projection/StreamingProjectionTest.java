@@ -0,0 +1,126 @@
+package com.alon.spring.crud.api.projection;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.service.exception.ProjectionException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamingProjectionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void whenSerializeThenWriteTheProjection() throws IOException {
+        StreamingProjection projection = new StreamingProjection("test", new NameProjector(), entity(1L, "entity"));
+
+        assertThat(objectMapper.writeValueAsString(projection))
+                .isEqualTo("{\"id\":1,\"name\":\"entity\"}");
+    }
+
+    @Test
+    public void whenSerializeListThenWriteArrayOfProjections() throws IOException {
+        NameProjector projector = new NameProjector();
+
+        List<StreamingProjection> projections = List.of(
+                new StreamingProjection("test", projector, entity(1L, "a")),
+                new StreamingProjection("test", projector, entity(2L, "b")));
+
+        assertThat(objectMapper.writeValueAsString(projections))
+                .isEqualTo("[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"}]");
+    }
+
+    @Test
+    public void whenProjectorFailsThenThrowProjectionException() {
+        StreamingProjection projection = new StreamingProjection("test", new NameProjector(), entity(1L, null));
+
+        assertThatThrownBy(() -> objectMapper.writeValueAsString(projection))
+                .isInstanceOf(JsonMappingException.class)
+                .hasCauseInstanceOf(ProjectionException.class);
+    }
+
+    private TestEntity entity(Long id, String name) {
+        TestEntity entity = new TestEntity();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    public static class NameProjector implements StreamingProjector<TestEntity, NameOutput> {
+
+        @Override
+        public NameOutput project(TestEntity input) {
+            NameOutput output = new NameOutput();
+            output.setId(input.getId());
+            output.setName(input.getName());
+
+            return output;
+        }
+
+        @Override
+        public void write(TestEntity input, JsonGenerator generator, SerializerProvider serializers)
+                throws IOException {
+
+            generator.writeStartObject();
+            generator.writeNumberField("id", input.getId());
+            generator.writeStringField("name", input.getName().trim());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class NameOutput {
+
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class TestEntity extends BaseEntity<Long> {
+
+        private Long id;
+        private String name;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.domain.service.SearchType;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CrudInstrumentationTest {
+
+    @After
+    public void tearDown() {
+        new ApplicationContextProvider().setApplicationContext(null);
+    }
+
+    @Test
+    public void whenThereIsNoContextThenReturnNone() {
+        new ApplicationContextProvider().setApplicationContext(null);
+
+        assertThat(CrudInstrumentation.get()).isSameAs(CrudMetrics.NONE);
+    }
+
+    @Test
+    public void whenThereAreManyBeansThenRecordInAllOfThem() {
+        List<String> searches = new ArrayList<>();
+
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("first", recordingMetrics("first", searches));
+        context.getBeanFactory().registerSingleton("second", recordingMetrics("second", searches));
+        context.refresh();
+
+        new ApplicationContextProvider().setApplicationContext(context);
+
+        CrudInstrumentation.get().recordSearch(String.class, SearchType.FILTER, 10);
+
+        assertThat(searches).containsExactlyInAnyOrder("first String FILTER 10", "second String FILTER 10");
+    }
+
+    @Test
+    public void expandDepthIsTheLengthOfTheLongestPath() {
+        assertThat(CrudInstrumentation.expandDepth(null)).isZero();
+        assertThat(CrudInstrumentation.expandDepth(Set.of())).isZero();
+        assertThat(CrudInstrumentation.expandDepth(Set.of("a", "a.b.c", "d.e"))).isEqualTo(3);
+    }
+
+    private static CrudMetrics recordingMetrics(String name, List<String> searches) {
+        return new CrudMetrics() {
+            @Override
+            public void recordSearch(Class<?> entityType, SearchType searchType, int rows) {
+                searches.add(String.format("%s %s %s %d", name, entityType.getSimpleName(), searchType, rows));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.alon.spring.crud.core.metrics;
+
+import com.alon.spring.crud.domain.service.SearchType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerCrudMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerCrudMetrics metrics = new MicrometerCrudMetrics(registry);
+
+    @Test
+    public void whenSearchesAreRecordedThenRowsAreSummarizedBySearchType() {
+        metrics.recordSearch(String.class, SearchType.FILTER, 10);
+        metrics.recordSearch(String.class, SearchType.FILTER, 30);
+        metrics.recordSearch(String.class, SearchType.NONE, 5);
+
+        assertThat(registry.get(MicrometerCrudMetrics.SEARCH_ROWS)
+                .tags("entity", "String", "searchType", "FILTER")
+                .summary()
+                .totalAmount()).isEqualTo(40);
+
+        assertThat(registry.get(MicrometerCrudMetrics.SEARCH_ROWS)
+                .tags("searchType", "NONE")
+                .summary()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenConditionalRequestsAreRecordedThenCountHitsAndMisses() {
+        metrics.recordConditionalRequest(String.class, CrudOperation.READ, true);
+        metrics.recordConditionalRequest(String.class, CrudOperation.READ, true);
+        metrics.recordConditionalRequest(String.class, CrudOperation.READ, false);
+
+        assertThat(registry.get(MicrometerCrudMetrics.ETAG_REQUESTS).tags("result", "hit").counter().count())
+                .isEqualTo(2);
+        assertThat(registry.get(MicrometerCrudMetrics.ETAG_REQUESTS).tags("result", "miss").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void whenOperationFailsThenTagTheException() {
+        metrics.recordOperation(String.class, CrudOperation.CREATE, 1_000, null);
+        metrics.recordOperation(String.class, CrudOperation.CREATE, 1_000, new IllegalStateException());
+
+        assertThat(registry.get(MicrometerCrudMetrics.OPERATIONS)
+                .tags("operation", "CREATE", "outcome", "error", "exception", "IllegalStateException")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.alon.spring.crud.core.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerHookMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerHookMetrics metrics = new MicrometerHookMetrics(registry);
+
+    @Test
+    public void whenExecutionsAreRecordedThenTimersAreTaggedByOutcome() {
+        metrics.recordExecution(String.class, AFTER_CREATE, 0, 1_000_000, null);
+        metrics.recordExecution(String.class, AFTER_CREATE, 0, 3_000_000, null);
+        metrics.recordExecution(String.class, AFTER_CREATE, 0, 1_000_000, new IllegalStateException());
+
+        Timer success = registry.get(MicrometerHookMetrics.TIMER_NAME)
+                .tags("service", "String", "hook", "AFTER_CREATE", "index", "0", "outcome", "success")
+                .timer();
+
+        Timer error = registry.get(MicrometerHookMetrics.TIMER_NAME)
+                .tags("outcome", "error", "exception", "IllegalStateException")
+                .timer();
+
+        assertThat(success.count()).isEqualTo(2);
+        assertThat(success.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4);
+        assertThat(error.count()).isEqualTo(1);
+    }
+
+}
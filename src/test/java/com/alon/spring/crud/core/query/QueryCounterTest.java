@@ -0,0 +1,78 @@
+package com.alon.spring.crud.core.query;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryCounterTest {
+
+    private final QueryCounter counter = new QueryCounter();
+
+    @Test
+    public void whenThereIsNoCountThenDontCount() {
+        assertThat(counter.inspect("select 1")).isEqualTo("select 1");
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+    @Test
+    public void whenCountIsStartedThenCountTheStatementsOfTheThread() {
+        try (QueryCount count = QueryCounter.start()) {
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+
+            assertThat(count.getCount()).isEqualTo(2);
+        }
+
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+    @Test
+    public void whenCountIsNestedThenRestoreThePreviousCount() {
+        try (QueryCount outer = QueryCounter.start()) {
+            counter.inspect("select 1");
+
+            try (QueryCount inner = QueryCounter.start()) {
+                counter.inspect("select 2");
+
+                assertThat(inner.getCount()).isEqualTo(1);
+            }
+
+            counter.inspect("select 3");
+
+            assertThat(QueryCounter.current()).isSameAs(outer);
+            assertThat(outer.getCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void whenStatementIsRepeatedThenReturnItAsRepeated() {
+        try (QueryCount count = QueryCounter.start()) {
+            for (int i = 0; i < 3; i++)
+                counter.inspect("select * from child where parent_id=?");
+
+            counter.inspect("select * from parent");
+
+            assertThat(count.getRepeatedStatements(3))
+                    .containsOnlyKeys("select * from child where parent_id=?")
+                    .containsValue(3);
+        }
+    }
+
+    @Test
+    public void whenActionExceedsTheCountThenFailTheAssertion() {
+        QueryCountAssertions.assertQueryCount(2, () -> {
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+        });
+
+        assertThatThrownBy(() -> QueryCountAssertions.assertMaxQueryCount(1, () -> {
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThatThrownBy(() -> QueryCountAssertions.assertMaxQueryCount(1, (String) null))
+                .isInstanceOf(AssertionError.class);
+    }
+
+}
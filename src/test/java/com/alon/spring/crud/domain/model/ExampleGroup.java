@@ -0,0 +1,58 @@
+package com.alon.spring.crud.domain.model;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+public class ExampleGroup extends BaseEntity<Long> {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private String name;
+
+    @OneToMany(mappedBy = "group", cascade = CascadeType.ALL)
+    private List<ExampleItem> items = new ArrayList<>();
+
+    public static ExampleGroup of(String name, int items) {
+        ExampleGroup group = new ExampleGroup();
+        group.name = name;
+
+        for (int i = 1; i <= items; i++)
+            group.items.add(new ExampleItem(name + " item " + i, group));
+
+        return group;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<ExampleItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ExampleItem> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,58 @@
+package com.alon.spring.crud.domain.model;
+
+import javax.persistence.ConstraintMode;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+@Entity
+public class ExampleItem extends BaseEntity<Long> {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private String name;
+
+    // Without constraint, so the DatabaseCleaner can truncate the tables in any order
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private ExampleGroup group;
+
+    protected ExampleItem() {}
+
+    public ExampleItem(String name, ExampleGroup group) {
+        this.name = name;
+        this.group = group;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ExampleGroup getGroup() {
+        return group;
+    }
+
+    public void setGroup(ExampleGroup group) {
+        this.group = group;
+    }
+}
@@ -0,0 +1,5 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.model.ExampleGroup;
+
+public interface ExampleGroupRepository extends CrudRepository<Long, ExampleGroup> {}
@@ -0,0 +1,53 @@
+package com.alon.spring.crud.domain.repository;
+
+import com.alon.spring.crud.domain.service.SearchCriteria;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FetchPlanTest {
+
+    @Test
+    public void whenPathIsNestedThenUseStrategyOfFirstProperty() {
+        FetchPlan plan = FetchPlan.of()
+                .strategy("items", FetchStrategy.BATCH)
+                .build();
+
+        assertThat(plan.getStrategy("items")).isEqualTo(FetchStrategy.BATCH);
+        assertThat(plan.getStrategy("items.product")).isEqualTo(FetchStrategy.BATCH);
+        assertThat(plan.getStrategy("owner")).isEqualTo(FetchStrategy.JOIN);
+    }
+
+    @Test
+    public void whenSplitExpandThenSeparateJoinAndSecondaryPaths() {
+        FetchPlan plan = FetchPlan.of()
+                .defaultStrategy(FetchStrategy.SUBSELECT)
+                .strategy("owner", FetchStrategy.JOIN)
+                .build();
+
+        List<String> expand = List.of("owner", "items", "tags.group");
+
+        assertThat(plan.joinPaths(expand)).containsExactly("owner");
+        assertThat(plan.secondaryPaths(expand)).containsExactly("items", "tags.group");
+    }
+
+    @Test
+    public void whenBuildCriteriaWithFetchPlanThenExpandOnlyJoinPaths() {
+        FetchPlan plan = FetchPlan.of()
+                .strategy("items", FetchStrategy.BATCH)
+                .build();
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .expand(Set.of("owner", "items"))
+                .fetchPlan(plan)
+                .build();
+
+        assertThat(criteria.getExpand()).containsExactly("owner");
+        assertThat(criteria.getFetchExpand()).containsExactly("items");
+        assertThat(criteria.getEntityGraph().getEntityGraphAttributePaths()).containsExactly("owner");
+    }
+
+}
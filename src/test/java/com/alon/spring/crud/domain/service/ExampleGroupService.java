@@ -0,0 +1,31 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.domain.model.ExampleGroup;
+import com.alon.spring.crud.domain.repository.ExampleGroupRepository;
+import com.alon.spring.crud.domain.service.cache.CountCache;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExampleGroupService implements CrudService<Long, ExampleGroup, ExampleGroupRepository> {
+
+    private ExampleGroupRepository repository;
+    private CountCache countCache;
+
+    public ExampleGroupService(ExampleGroupRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public ExampleGroupRepository getRepository() {
+        return repository;
+    }
+
+    @Override
+    public CountCache getCountCache() {
+        return countCache;
+    }
+
+    public void setCountCache(CountCache countCache) {
+        this.countCache = countCache;
+    }
+}
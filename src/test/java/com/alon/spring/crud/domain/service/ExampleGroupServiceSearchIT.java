@@ -0,0 +1,168 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.cleaner.DatabaseCleaner;
+import com.alon.spring.crud.domain.model.ExampleGroup;
+import com.alon.spring.crud.domain.service.cache.CountCache;
+import org.hibernate.Hibernate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The pages with an expanded collection must have each entity once, with the whole collection.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ExampleGroupServiceSearchIT {
+
+    @Autowired
+    private ExampleGroupService service;
+
+    @Autowired
+    private DatabaseCleaner databaseCleaner;
+
+    @Before
+    public void init() {
+        for (int i = 1; i <= 3; i++)
+            service.getRepository().save(ExampleGroup.of("Group " + i, 2));
+    }
+
+    @After
+    public void tearDown() {
+        service.setCountCache(null);
+        service.clearHooks(LifeCycleHook.AFTER_SEARCH);
+        databaseCleaner.clearTables();
+    }
+
+    @Test
+    public void whenSearchWithCollectionExpandThenReturnEachEntityOnce() {
+        SearchCriteria criteria = buildCriteria()
+                .build();
+
+        assertPage(service.search(criteria));
+    }
+
+    @Test
+    public void whenSearchByKeysetWithCollectionExpandThenReturnEachEntityOnce() {
+        SearchCriteria criteria = buildCriteria()
+                .cursor("")
+                .build();
+
+        assertPage(service.search(criteria));
+    }
+
+    @Test
+    public void whenSearchWithoutCountWithCollectionExpandThenReturnEachEntityOnce() {
+        SearchCriteria criteria = buildCriteria()
+                .count(false)
+                .build();
+
+        assertPage(service.search(criteria));
+    }
+
+    @Test
+    public void whenSearchWithCountCacheWithCollectionExpandThenReturnEachEntityOnce() {
+        service.setCountCache(CountCache.of().build());
+
+        SearchCriteria criteria = buildCriteria()
+                .build();
+
+        assertPage(service.search(criteria));
+    }
+
+    @Test
+    public void whenSearchWithCountCachePastTheLastPageThenCountTheTotal() {
+        service.setCountCache(CountCache.of().build());
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .pageable(PageRequest.of(5, 2, Sort.by("id")))
+                .build();
+
+        Page<ExampleGroup> page = service.search(criteria);
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenExportWithCollectionExpandThenExportEachEntityOnce() {
+        SearchCriteria criteria = buildCriteria()
+                .build();
+
+        Map<Long, Integer> itemsById = new LinkedHashMap<>();
+
+        service.export(criteria, 10, 2, 0, group -> {
+            assertThat(itemsById).doesNotContainKey(group.getId());
+            itemsById.put(group.getId(), group.getItems().size());
+        });
+
+        assertThat(itemsById).hasSize(3);
+        assertThat(itemsById.values()).containsOnly(2);
+    }
+
+    @Test
+    public void whenExportWithMaxRowsThenExportAtMostMaxRows() {
+        SearchCriteria criteria = buildCriteria()
+                .build();
+
+        List<String> names = new ArrayList<>();
+
+        service.export(criteria, 10, 2, 2, group -> names.add(group.getName()));
+
+        assertThat(names).containsExactly("Group 1", "Group 2");
+    }
+
+    @Test
+    public void whenExportThenExecuteTheAfterSearchHooksOnEachChunk() {
+        service.addAfterSearchHook(page -> new PageImpl<>(page.getContent().stream()
+                .filter(group -> !group.getName().equals("Group 2"))
+                .collect(Collectors.toList())));
+
+        SearchCriteria criteria = buildCriteria()
+                .build();
+
+        List<String> names = new ArrayList<>();
+
+        service.export(criteria, 10, 2, 0, group -> names.add(group.getName()));
+
+        assertThat(names).containsExactly("Group 1", "Group 3");
+    }
+
+    private SearchCriteria.SearchCriteriaBuilder buildCriteria() {
+        return SearchCriteria.of()
+                .pageable(PageRequest.of(0, 2, Sort.by("id")))
+                .expand(Set.of("items"));
+    }
+
+    private void assertPage(Page<ExampleGroup> page) {
+        List<ExampleGroup> content = page.getContent();
+
+        assertThat(content).hasSize(2);
+        assertThat(content.stream().map(ExampleGroup::getId).collect(Collectors.toSet())).hasSize(2);
+        assertThat(content.stream().map(ExampleGroup::getName)).containsExactly("Group 1", "Group 2");
+
+        for (ExampleGroup group : content) {
+            assertThat(Hibernate.isInitialized(group.getItems())).isTrue();
+            assertThat(group.getItems()).hasSize(2);
+        }
+    }
+
+}
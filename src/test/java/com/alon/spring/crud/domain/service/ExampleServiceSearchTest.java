@@ -7,8 +7,8 @@ import com.alon.spring.crud.domain.repository.ExampleCrudRepository;
 import com.alon.spring.crud.domain.service.exception.ReadException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Answers;
 import org.mockito.InOrder;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
@@ -16,6 +16,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+
 import java.util.Set;
 import java.util.function.Function;
 
@@ -26,12 +29,14 @@ import static org.mockito.Mockito.*;
 
 public class ExampleServiceSearchTest {
 
-    @InjectMocks
     private ExampleService service;
 
     @Mock
     private ExampleCrudRepository repository;
 
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private EntityManager entityManager;
+
     @Mock
     private Function<SearchCriteria, SearchCriteria> beforeSearchHookA;
 
@@ -48,6 +53,9 @@ public class ExampleServiceSearchTest {
     public void init() {
         MockitoAnnotations.initMocks(this);
 
+        service = spy(new ExampleService(repository));
+        doReturn(entityManager).when(service).getEntityManager();
+
         service.clearHooks(BEFORE_SEARCH, AFTER_SEARCH);
     }
 
@@ -109,6 +117,28 @@ public class ExampleServiceSearchTest {
         verify(repository).findAll(specification, pageable, criteria.getEntityGraph());
     }
 
+    @Test
+    public void whenSearchWithFilterAndCollectionExpandThenSearchIdsFirst() {
+        Pageable pageable = buildPageable();
+        Specification specification = buildSearchInput().toSpecification();
+
+        Attribute collection = mock(Attribute.class);
+        when(collection.isCollection()).thenReturn(true);
+        when(entityManager.getMetamodel().managedType(Example.class).getAttribute("collection"))
+                .thenReturn(collection);
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .pageable(pageable)
+                .filter(specification)
+                .expand(Set.of("collection"))
+                .build();
+
+        service.search(criteria);
+
+        verify(repository, never()).findAll(specification, pageable, criteria.getEntityGraph());
+        verify(repository).count(specification);
+    }
+
     @Test
     public void whenRepositoryThrowsExceptionThenThrowReadException() {
         Pageable pageable = buildPageable();
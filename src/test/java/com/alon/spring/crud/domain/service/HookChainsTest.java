@@ -0,0 +1,51 @@
+package com.alon.spring.crud.domain.service;
+
+import org.junit.Test;
+
+import java.util.function.Function;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.AFTER_CREATE;
+import static com.alon.spring.crud.domain.service.LifeCycleHook.BEFORE_CREATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HookChainsTest {
+
+    @Test
+    public void whenAddHooksThenKeepRegistrationOrder() {
+        HookChains<Function> hooks = new HookChains<>();
+        Function first = Function.identity();
+        Function second = value -> value;
+
+        hooks.add(BEFORE_CREATE, first);
+        hooks.add(BEFORE_CREATE, second);
+
+        assertThat(hooks.get(BEFORE_CREATE)).containsExactly(first, second);
+        assertThat(hooks.get(AFTER_CREATE)).isEmpty();
+    }
+
+    @Test
+    public void whenAddHookThenPreviousArrayIsNotModified() {
+        HookChains<Function> hooks = new HookChains<>();
+        hooks.add(BEFORE_CREATE, Function.identity());
+
+        Object[] previous = hooks.get(BEFORE_CREATE);
+
+        hooks.add(BEFORE_CREATE, Function.identity());
+
+        assertThat(previous).hasSize(1);
+        assertThat(hooks.get(BEFORE_CREATE)).hasSize(2);
+    }
+
+    @Test
+    public void whenClearThenRemoveOnlyTheHooksOfTheType() {
+        HookChains<Function> hooks = new HookChains<>();
+        hooks.add(BEFORE_CREATE, Function.identity());
+        hooks.add(AFTER_CREATE, Function.identity());
+
+        hooks.clear(BEFORE_CREATE);
+
+        assertThat(hooks.get(BEFORE_CREATE)).isEmpty();
+        assertThat(hooks.get(AFTER_CREATE)).hasSize(1);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.core.metrics.HookMetrics;
+import com.alon.spring.crud.domain.model.Example;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HookInstrumentationTest {
+
+    private final ExampleService service = new ExampleService(null);
+    private final List<String> executions = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("hookMetrics", (HookMetrics)
+                (serviceType, hookType, hookIndex, nanos, error) -> executions.add(String.format("%s %s %d %s",
+                        serviceType.getSimpleName(), hookType, hookIndex, error == null ? "ok" : error.getMessage())));
+        context.refresh();
+
+        new ApplicationContextProvider().setApplicationContext(context);
+    }
+
+    @After
+    public void tearDown() {
+        service.clearHooks(BEFORE_CREATE);
+        new ApplicationContextProvider().setApplicationContext(null);
+    }
+
+    @Test
+    public void whenHooksAreExecutedThenEachExecutionIsRecorded() {
+        service.addBeforeCreateHook(example -> example);
+        service.addBeforeCreateHook(example -> example);
+
+        service.executeBeforeCreateHooks(new Example());
+
+        assertThat(executions).containsExactly(
+                "ExampleService BEFORE_CREATE 0 ok",
+                "ExampleService BEFORE_CREATE 1 ok");
+    }
+
+    @Test
+    public void whenHookFailsThenFailureIsRecordedAndRethrown() {
+        service.addBeforeCreateHook(example -> {
+            throw new IllegalStateException("failure");
+        });
+
+        assertThatThrownBy(() -> service.executeBeforeCreateHooks(new Example()))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(executions).containsExactly("ExampleService BEFORE_CREATE 0 failure");
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.service.exception.InvalidCursorException;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeysetTest {
+
+    private static final Sort SORT = Sort.by("stringProperty", "creationTimestamp", "id");
+
+    @Test
+    public void whenEncodeAndDecodeThenKeepValues() {
+        OffsetDateTime timestamp = OffsetDateTime.parse("2020-05-10T10:15:30-03:00");
+
+        Example example = buildExample(10L, "a,b|c ~ d");
+        example.setCreationTimestamp(timestamp);
+
+        Keyset keyset = Keyset.decode(Keyset.of(example, SORT, true).encode());
+
+        assertThat(keyset.isBackward()).isTrue();
+        assertThat(keyset.getProperties()).containsExactly("stringProperty", "creationTimestamp", "id");
+        assertThat(keyset.getValue(0, String.class)).isEqualTo("a,b|c ~ d");
+        assertThat(keyset.getValue(1, OffsetDateTime.class)).isEqualTo(timestamp);
+        assertThat(keyset.getValue(2, Long.class)).isEqualTo(10L);
+    }
+
+    @Test
+    public void whenValueIsNullThenDecodeNull() {
+        Keyset keyset = Keyset.decode(Keyset.of(buildExample(1L, null), Sort.by("stringProperty"), false).encode());
+
+        assertThat(keyset.isBackward()).isFalse();
+        assertThat(keyset.getValue(0, String.class)).isNull();
+    }
+
+    @Test
+    public void whenCursorIsMalformedThenThrowInvalidCursorException() {
+        assertThatThrownBy(() -> Keyset.decode("not a cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void whenPageableIsUnpagedThenThrowInvalidCursorException() {
+        SearchCriteria criteria = SearchCriteria.of()
+                .pageable(Pageable.unpaged())
+                .cursor("")
+                .build();
+
+        assertThatThrownBy(() -> new ExampleService(null).search(criteria))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("The cursor requires a page size");
+    }
+
+    @Test
+    public void whenPageHasMoreRowsThenReturnNextCursor() {
+        List<Example> rows = List.of(buildExample(1L, "a"), buildExample(2L, "b"), buildExample(3L, "c"));
+
+        KeysetPage<Example> page = KeysetPage.of(rows, 2, Sort.by("id"), null);
+
+        assertThat(page.getContent()).extracting(Example::getId).containsExactly(1L, 2L);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getPreviousCursor()).isNull();
+        assertThat(Keyset.decode(page.getNextCursor()).getValue(0, Long.class)).isEqualTo(2L);
+    }
+
+    @Test
+    public void whenPageIsBackwardThenReverseRows() {
+        Keyset keyset = Keyset.of(buildExample(4L, "d"), Sort.by("id"), true);
+        List<Example> rows = List.of(buildExample(3L, "c"), buildExample(2L, "b"));
+
+        KeysetPage<Example> page = KeysetPage.of(rows, 2, Sort.by("id"), keyset);
+
+        assertThat(page.getContent()).extracting(Example::getId).containsExactly(2L, 3L);
+        assertThat(page.getPreviousCursor()).isNull();
+        assertThat(Keyset.decode(page.getNextCursor()).getValue(0, Long.class)).isEqualTo(3L);
+    }
+
+    private Example buildExample(Long id, String stringProperty) {
+        return Example.of()
+                .id(id)
+                .stringProperty(stringProperty)
+                .build();
+    }
+
+}
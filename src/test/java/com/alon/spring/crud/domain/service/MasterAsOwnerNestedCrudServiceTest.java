@@ -0,0 +1,115 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.core.context.ApplicationContextProvider;
+import com.alon.spring.crud.domain.model.ExampleGroup;
+import com.alon.spring.crud.domain.model.ExampleItem;
+import com.alon.spring.crud.domain.repository.ExampleGroupRepository;
+import com.alon.spring.crud.domain.repository.FetchPlan;
+import com.cosium.spring.data.jpa.entity.graph.domain.EntityGraph;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MasterAsOwnerNestedCrudServiceTest {
+
+    private final ExampleGroupRepository repository = mock(ExampleGroupRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final FetchPlan fetchPlan = mock(FetchPlan.class);
+    private final ExampleGroupItemService service = new ExampleGroupItemService();
+
+    @Before
+    public void setUp() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("transactionManager", mock(PlatformTransactionManager.class));
+        context.refresh();
+
+        new ApplicationContextProvider().setApplicationContext(context);
+    }
+
+    @After
+    public void tearDown() {
+        new ApplicationContextProvider().setApplicationContext(null);
+    }
+
+    @Test
+    public void whenExpandIsNotFetchedByJoinThenFetchItAfterTheSearch() {
+        ExampleGroup group = ExampleGroup.of("Group", 2);
+
+        when(repository.findById(eq(1L), any(EntityGraph.class))).thenReturn(Optional.of(group));
+        when(fetchPlan.joinPaths(anyCollection())).thenReturn(Set.of());
+        when(fetchPlan.secondaryPaths(anyCollection())).thenReturn(Set.of("group"));
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .expand(Set.of("group"))
+                .fetchPlan(fetchPlan)
+                .build();
+
+        Collection<ExampleItem> items = service.search(1L, criteria);
+
+        assertThat(items).isSameAs(group.getItems());
+        verify(fetchPlan).fetch(entityManager, ExampleItem.class, items, Set.of("group"));
+    }
+
+    @Test
+    public void whenExpandIsFetchedByJoinThenDontFetchAfterTheSearch() {
+        ExampleGroup group = ExampleGroup.of("Group", 2);
+
+        when(repository.findById(eq(1L), any(EntityGraph.class))).thenReturn(Optional.of(group));
+        when(fetchPlan.joinPaths(anyCollection())).thenReturn(Set.of("group"));
+        when(fetchPlan.secondaryPaths(anyCollection())).thenReturn(Set.of());
+
+        SearchCriteria criteria = SearchCriteria.of()
+                .expand(Set.of("group"))
+                .fetchPlan(fetchPlan)
+                .build();
+
+        service.search(1L, criteria);
+
+        verify(fetchPlan, never()).fetch(any(), any(), anyCollection(), anyCollection());
+    }
+
+    private class ExampleGroupItemService implements MasterAsOwnerNestedCrudService<
+            Long, ExampleGroup, ExampleGroupRepository, Long, ExampleItem> {
+
+        @Override
+        public Supplier<Collection<ExampleItem>> getNestedGetter(ExampleGroup masterEntity) {
+            return masterEntity::getItems;
+        }
+
+        @Override
+        public Consumer<ExampleItem> getNestedSetter(ExampleGroup masterEntity) {
+            return masterEntity.getItems()::add;
+        }
+
+        @Override
+        public ExampleGroupRepository getMasterRepository() {
+            return repository;
+        }
+
+        @Override
+        public String getNestedFieldName() {
+            return "items";
+        }
+
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+    }
+
+}
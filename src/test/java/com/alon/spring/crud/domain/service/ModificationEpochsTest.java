@@ -0,0 +1,116 @@
+package com.alon.spring.crud.domain.service;
+
+import com.alon.spring.crud.domain.model.BaseEntity;
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.repository.CrudRepository;
+import com.alon.spring.crud.domain.repository.ExampleCrudRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ModificationEpochsTest {
+
+    @InjectMocks
+    private ExampleService service;
+
+    @Mock
+    private ExampleCrudRepository repository;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void whenAdvanceThenIncrementTypeAndGlobalEpochs() {
+        long typeEpoch = ModificationEpochs.current(Example.class);
+        long globalEpoch = ModificationEpochs.global();
+
+        ModificationEpochs.advance(Example.class);
+
+        assertThat(ModificationEpochs.current(Example.class)).isGreaterThan(typeEpoch);
+        assertThat(ModificationEpochs.global()).isGreaterThan(globalEpoch);
+    }
+
+    @Test
+    public void whenAdvanceThenDoNotChangeOtherTypes() {
+        long otherTypeEpoch = ModificationEpochs.current(String.class);
+
+        ModificationEpochs.advance(Example.class);
+
+        assertThat(ModificationEpochs.current(String.class)).isEqualTo(otherTypeEpoch);
+    }
+
+    @Test
+    public void whenResolveServiceEntityTypeThenReturnGenericType() {
+        assertThat(service.getEntityType()).isEqualTo(Example.class);
+    }
+
+    @Test
+    public void whenCreateThenAdvanceEpoch() {
+        when(repository.save(any())).thenReturn(new Example());
+
+        long epoch = ModificationEpochs.current(Example.class);
+
+        service.create(new Example());
+
+        assertThat(ModificationEpochs.current(Example.class)).isGreaterThan(epoch);
+    }
+
+    @Test
+    public void whenUpdateThenAdvanceEpoch() {
+        when(repository.existsById(any())).thenReturn(true);
+        when(repository.save(any())).thenReturn(new Example());
+
+        long epoch = ModificationEpochs.current(Example.class);
+
+        service.update(new Example());
+
+        assertThat(ModificationEpochs.current(Example.class)).isGreaterThan(epoch);
+    }
+
+    @Test
+    public void whenDeleteThenAdvanceEpoch() {
+        when(repository.existsById(1L)).thenReturn(true);
+
+        long epoch = ModificationEpochs.current(Example.class);
+
+        service.delete(1L);
+
+        assertThat(ModificationEpochs.current(Example.class)).isGreaterThan(epoch);
+    }
+
+    @Test
+    public void whenEntityTypeCanNotBeResolvedThenWriteAndAdvanceTheEpochsOfAllTypes() {
+        when(repository.save(any())).thenReturn(new Example());
+
+        long epoch = ModificationEpochs.current(Example.class);
+        long otherTypeEpoch = ModificationEpochs.current(String.class);
+
+        new GenericService<>(repository).create(new Example());
+
+        assertThat(ModificationEpochs.current(Example.class)).isGreaterThan(epoch);
+        assertThat(ModificationEpochs.current(String.class)).isGreaterThan(otherTypeEpoch);
+    }
+
+    private static class GenericService<E extends BaseEntity<Long>> implements CrudService<Long, E, CrudRepository<Long, E>> {
+
+        private final CrudRepository<Long, E> repository;
+
+        private GenericService(CrudRepository<Long, E> repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public CrudRepository<Long, E> getRepository() {
+            return repository;
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.alon.spring.crud.domain.service;
 
+import com.alon.spring.crud.domain.repository.FetchPlan;
+import com.alon.spring.crud.domain.repository.FetchStrategy;
 import org.junit.Test;
 import org.springframework.data.domain.PageRequest;
 
@@ -84,4 +86,38 @@ public class SearchCriteriaTest {
         assertThat(searchCriteria.getSearchOption()).isEqualTo(SearchType.FILTER);
     }
 
+    @Test
+    public void whenBuildWithSelectThenSelectAttributes() {
+        SearchCriteria searchCriteria = SearchCriteria.of()
+                .pageable(PageRequest.of(1, 100))
+                .select(Set.of("stringProperty"))
+                .build();
+
+        assertThat(searchCriteria.getSelect()).containsExactly("stringProperty");
+    }
+
+    @Test
+    public void whenBuildWithSelectAndExpandThenLoadWholeEntities() {
+        SearchCriteria searchCriteria = SearchCriteria.of()
+                .pageable(PageRequest.of(1, 100))
+                .expand(Set.of("property"))
+                .select(Set.of("stringProperty"))
+                .build();
+
+        assertThat(searchCriteria.getSelect()).isNull();
+    }
+
+    @Test
+    public void whenBuildWithSelectAndSecondaryFetchThenLoadWholeEntities() {
+        SearchCriteria searchCriteria = SearchCriteria.of()
+                .pageable(PageRequest.of(1, 100))
+                .expand(Set.of("items"))
+                .fetchPlan(FetchPlan.of().strategy("items", FetchStrategy.BATCH).build())
+                .select(Set.of("stringProperty"))
+                .build();
+
+        assertThat(searchCriteria.getFetchExpand()).containsExactly("items");
+        assertThat(searchCriteria.getSelect()).isNull();
+    }
+
 }
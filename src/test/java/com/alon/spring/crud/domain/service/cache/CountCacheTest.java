@@ -0,0 +1,79 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CountCacheTest {
+
+    @Test
+    public void whenEpochIsTheSameThenReturnExactTotal() {
+        CountCache cache = CountCache.of().build();
+
+        cache.put("filter", 42, 1);
+
+        CountCache.Count count = cache.get("filter", 1);
+
+        assertThat(count).isNotNull();
+        assertThat(count.getTotal()).isEqualTo(42);
+        assertThat(count.isEstimated()).isFalse();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenEpochChangesThenMiss() {
+        CountCache cache = CountCache.of().build();
+
+        cache.put("filter", 42, 1);
+
+        assertThat(cache.get("filter", 2)).isNull();
+        assertThat(cache.get("other", 1)).isNull();
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenEstimateIsEnabledThenReturnStaleTotalAsEstimate() {
+        CountCache cache = CountCache.of()
+                .estimateTimeToLive(Duration.ofMinutes(1))
+                .build();
+
+        cache.put("filter", 42, 1);
+
+        CountCache.Count count = cache.get("filter", 2);
+
+        assertThat(count).isNotNull();
+        assertThat(count.getTotal()).isEqualTo(42);
+        assertThat(count.isEstimated()).isTrue();
+    }
+
+    @Test
+    public void whenTimeToLiveExpiresThenMiss() throws InterruptedException {
+        CountCache cache = CountCache.of()
+                .timeToLive(Duration.ofMillis(1))
+                .build();
+
+        cache.put("filter", 42, 1);
+        Thread.sleep(5);
+
+        assertThat(cache.get("filter", 1)).isNull();
+    }
+
+    @Test
+    public void whenFullThenEvictLeastRecentlyUsed() {
+        CountCache cache = CountCache.of()
+                .maximumSize(2)
+                .build();
+
+        cache.put("a", 1, 1);
+        cache.put("b", 2, 1);
+        cache.get("a", 1);
+        cache.put("c", 3, 1);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a", 1)).isNotNull();
+        assertThat(cache.get("b", 1)).isNull();
+    }
+
+}
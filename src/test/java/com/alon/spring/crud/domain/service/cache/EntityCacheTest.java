@@ -0,0 +1,191 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import com.alon.spring.crud.domain.model.Example;
+import com.alon.spring.crud.domain.repository.ExampleCrudRepository;
+import com.alon.spring.crud.domain.service.ExampleService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EntityCacheTest {
+
+    @Mock
+    private ExampleCrudRepository repository;
+
+    private EntityCache<Long, Example> cache;
+
+    private ExampleService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        cache = EntityCache.of()
+                .maximumSize(100)
+                .build();
+
+        service = new ExampleService(repository) {
+            @Override
+            public EntityCache<Long, Example> getEntityCache() {
+                return cache;
+            }
+        };
+    }
+
+    @Test
+    public void whenPutThenGet() {
+        Example example = buildExample(1L);
+
+        cache.put(1L, null, example, cache.stamp(1L));
+
+        assertThat(cache.get(1L, null)).isSameAs(example);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isZero();
+    }
+
+    @Test
+    public void whenExpandIsDifferentThenMiss() {
+        cache.put(1L, List.of("b", "a"), buildExample(1L), cache.stamp(1L));
+
+        assertThat(cache.get(1L, Set.of("a", "b"))).isNotNull();
+        assertThat(cache.get(1L, null)).isNull();
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenInvalidateThenRemoveAllVariants() {
+        cache.put(1L, null, buildExample(1L), cache.stamp(1L));
+        cache.put(1L, List.of("a"), buildExample(1L), cache.stamp(1L));
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L, null)).isNull();
+        assertThat(cache.get(1L, List.of("a"))).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void whenInvalidatedDuringLoadThenDoNotCache() {
+        long stamp = cache.stamp(1L);
+
+        cache.invalidate(1L);
+        cache.put(1L, null, buildExample(1L), stamp);
+
+        assertThat(cache.get(1L, null)).isNull();
+    }
+
+    @Test
+    public void whenTimeToLiveExpiresThenMiss() throws InterruptedException {
+        EntityCache<Long, Example> expiringCache = EntityCache.of()
+                .timeToLive(Duration.ofMillis(1))
+                .build();
+
+        expiringCache.put(1L, null, buildExample(1L), expiringCache.stamp(1L));
+
+        Thread.sleep(5);
+
+        assertThat(expiringCache.get(1L, null)).isNull();
+    }
+
+    @Test
+    public void whenFullThenKeepFrequentlyReadEntries() {
+        EntityCache<Long, Example> smallCache = EntityCache.of()
+                .maximumSize(2)
+                .build();
+
+        for (long id = 1; id <= 2; id++) {
+            smallCache.get(id, null);
+            smallCache.get(id, null);
+            smallCache.put(id, null, buildExample(id), smallCache.stamp(id));
+        }
+
+        smallCache.get(3L, null);
+        smallCache.put(3L, null, buildExample(3L), smallCache.stamp(3L));
+
+        assertThat(smallCache.size()).isEqualTo(2);
+        assertThat(smallCache.get(3L, null)).isNull();
+        assertThat(smallCache.get(1L, null)).isNotNull();
+        assertThat(smallCache.get(2L, null)).isNotNull();
+    }
+
+    @Test
+    public void whenFullAndCandidateIsMoreFrequentThenEvict() {
+        EntityCache<Long, Example> smallCache = EntityCache.of()
+                .maximumSize(1)
+                .build();
+
+        smallCache.put(1L, null, buildExample(1L), smallCache.stamp(1L));
+
+        for (int i = 0; i < 3; i++)
+            smallCache.get(2L, null);
+
+        smallCache.put(2L, null, buildExample(2L), smallCache.stamp(2L));
+
+        assertThat(smallCache.get(2L, null)).isNotNull();
+        assertThat(smallCache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenReadTwiceThenFindByIdOnce() {
+        when(repository.findById(1L)).thenReturn(Optional.of(buildExample(1L)));
+
+        service.read(1L);
+        service.read(1L);
+
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void whenReadWithoutCacheThenAlwaysFindById() {
+        when(repository.findById(1L)).thenReturn(Optional.of(buildExample(1L)));
+
+        service.read(1L, null, false);
+        service.read(1L, null, false);
+
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void whenUpdateThenInvalidate() {
+        Example example = buildExample(1L);
+
+        when(repository.findById(1L)).thenReturn(Optional.of(example));
+        when(repository.existsById(1L)).thenReturn(true);
+        when(repository.save(any())).thenReturn(example);
+
+        service.read(1L);
+        service.update(example);
+        service.read(1L);
+
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void whenDeleteThenInvalidate() {
+        when(repository.findById(1L)).thenReturn(Optional.of(buildExample(1L)));
+        when(repository.existsById(1L)).thenReturn(true);
+
+        service.read(1L);
+        service.delete(1L);
+
+        assertThat(cache.get(1L, null)).isNull();
+    }
+
+    private Example buildExample(Long id) {
+        return Example.of()
+                .id(id)
+                .stringProperty("string")
+                .build();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpressionFilterCacheTest {
+
+    @Test
+    public void whenSameExpressionThenReturnCachedSpecification() {
+        ExpressionFilterCache cache = new ExpressionFilterCache(10);
+
+        assertThat(cache.get("name:name")).isSameAs(cache.get("name:name"));
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenFullThenEvictLeastRecentlyUsed() {
+        ExpressionFilterCache cache = new ExpressionFilterCache(2);
+
+        cache.get("name:a");
+        cache.get("name:b");
+        cache.get("name:a");
+        cache.get("name:c");
+
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.get("name:a");
+        cache.get("name:b");
+
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void whenMaximumSizeIsZeroThenDontCache() {
+        ExpressionFilterCache cache = new ExpressionFilterCache(0);
+
+        cache.get("name:name");
+        cache.get("name:name");
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenMaximumSizeIsReducedThenEvict() {
+        ExpressionFilterCache cache = new ExpressionFilterCache(10);
+
+        cache.get("name:a");
+        cache.get("name:b");
+        cache.setMaximumSize(1);
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.alon.spring.crud.domain.service.cache;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongKeyHashMapTest {
+
+    @Test
+    public void whenPutManyKeysThenGetAll() {
+        LongKeyHashMap<String> map = new LongKeyHashMap<>();
+
+        for (long key = -500; key < 500; key++)
+            map.put(key, String.valueOf(key));
+
+        assertThat(map.size()).isEqualTo(1000);
+
+        for (long key = -500; key < 500; key++)
+            assertThat(map.get(key)).isEqualTo(String.valueOf(key));
+    }
+
+    @Test
+    public void whenRemoveThenKeepOtherKeysReachable() {
+        LongKeyHashMap<String> map = new LongKeyHashMap<>();
+
+        for (long key = 0; key < 200; key++)
+            map.put(key * 16, String.valueOf(key));
+
+        for (long key = 0; key < 200; key += 2)
+            assertThat(map.remove(key * 16)).isEqualTo(String.valueOf(key));
+
+        assertThat(map.size()).isEqualTo(100);
+
+        for (long key = 0; key < 200; key++) {
+            if (key % 2 == 0)
+                assertThat(map.get(key * 16)).isNull();
+            else
+                assertThat(map.get(key * 16)).isEqualTo(String.valueOf(key));
+        }
+    }
+
+    @Test
+    public void whenPutExistingKeyThenReplace() {
+        LongKeyHashMap<String> map = new LongKeyHashMap<>();
+
+        assertThat(map.put(1L, "a")).isNull();
+        assertThat(map.put(1L, "b")).isEqualTo("a");
+        assertThat(map.get(1L)).isEqualTo("b");
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+}
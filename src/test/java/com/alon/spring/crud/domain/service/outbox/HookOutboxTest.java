@@ -0,0 +1,198 @@
+package com.alon.spring.crud.domain.service.outbox;
+
+import com.alon.spring.crud.core.properties.Properties;
+import com.alon.spring.crud.domain.service.AsyncHookManager;
+import com.alon.spring.crud.domain.service.ExampleService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alon.spring.crud.domain.service.LifeCycleHook.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HookOutboxTest {
+
+    private static final String HOOK_KEY = "com.alon.spring.crud.domain.model.Example:AFTER_CREATE:test";
+
+    private final ExampleService service = new ExampleService(null);
+    private final ExampleService otherService = new ExampleService(null);
+    private final Properties properties = new Properties();
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private HookOutbox outbox;
+
+    @Before
+    public void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        properties.asyncHooks.retryDelay = 1;
+        properties.asyncHooks.maxAttempts = 3;
+        properties.asyncHooks.pollInterval = 10;
+
+        outbox = new HookOutbox(new StaticListableBeanFactory(Map.of("dataSource", dataSource))
+                .getBeanProvider(DataSource.class), properties);
+    }
+
+    @After
+    public void tearDown() {
+        outbox.shutdown();
+        service.clearHooks(AFTER_CREATE);
+        otherService.clearHooks(AFTER_CREATE);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS crud_hook_outbox");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS outbox_write");
+    }
+
+    @Test
+    public void whenStartWithHooksThenCreateTheTable() {
+        service.addAsyncAfterCreateHook("test", id -> {});
+
+        outbox.start();
+
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    public void whenFirstRecordIsInTransactionThenTheTableIsCreatedOutsideIt() {
+        service.addAsyncAfterCreateHook("test", id -> {});
+        jdbcTemplate.execute("CREATE TABLE outbox_write (id BIGINT)");
+
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO outbox_write VALUES (1)");
+            outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_write", Integer.class)).isZero();
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    public void whenHookIsExecutedThenEntryIsDeleted() throws InterruptedException {
+        List<Long> ids = new CopyOnWriteArrayList<>();
+        service.addAsyncAfterCreateHook("test", ids::add);
+
+        outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+
+        waitUntilEmpty();
+
+        assertThat(ids).containsExactly(1L);
+    }
+
+    @Test
+    public void whenHookFailsThenRetryUntilMaximumOfAttempts() throws InterruptedException {
+        AtomicInteger executions = new AtomicInteger();
+        service.addAsyncAfterCreateHook("test", id -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("failure");
+        });
+
+        outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+
+        for (int i = 0; i < 500 && !"FAILED".equals(status()); i++)
+            Thread.sleep(10);
+
+        assertThat(status()).isEqualTo("FAILED");
+        assertThat(executions.get()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM crud_hook_outbox", String.class))
+                .isEqualTo("failure");
+    }
+
+    @Test
+    public void whenAnEntryOfTheEntityFailsThenTheNextEntriesWaitForIt() throws InterruptedException {
+        List<String> executions = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        service.addAsyncAfterCreateHook("test", id -> {
+            if (id == 1L && failures.getAndIncrement() == 0) {
+                executions.add("failed " + id);
+                throw new IllegalStateException("failure");
+            }
+
+            executions.add(String.valueOf(id));
+        });
+
+        outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+        outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+
+        waitUntilEmpty();
+
+        assertThat(executions).containsExactly("failed 1", "1", "1");
+    }
+
+    @Test
+    public void whenDueEntriesExceedTheQueueThenPollTheNextBatchWhenTheWorkersAreDone() throws InterruptedException {
+        properties.asyncHooks.workers = 1;
+        properties.asyncHooks.queueCapacity = 1;
+        properties.asyncHooks.pollInterval = 60000;
+
+        List<Long> ids = new CopyOnWriteArrayList<>();
+        service.addAsyncAfterCreateHook("test", ids::add);
+
+        for (long id = 1; id <= 5; id++)
+            outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), id, null);
+
+        waitUntilEmpty();
+
+        assertThat(ids).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void whenAnotherServiceRegistersTheKeyThenReplaceTheHook() throws InterruptedException {
+        List<String> executions = new CopyOnWriteArrayList<>();
+        service.addAsyncAfterCreateHook("test", id -> executions.add("first"));
+        otherService.addAsyncAfterCreateHook("test", id -> executions.add("second"));
+
+        outbox.record(List.of(AsyncHookManager.getHook(HOOK_KEY)), 1L, null);
+
+        waitUntilEmpty();
+
+        assertThat(executions).containsExactly("second");
+
+        service.clearHooks(AFTER_CREATE);
+
+        assertThat(AsyncHookManager.getHook(HOOK_KEY)).isNotNull();
+    }
+
+    @Test
+    public void retryDelayDoublesUntilTheMaximum() {
+        properties.asyncHooks.retryDelay = 1000;
+        properties.asyncHooks.maxRetryDelay = 5000;
+
+        assertThat(outbox.retryDelay(1)).isEqualTo(1000);
+        assertThat(outbox.retryDelay(2)).isEqualTo(2000);
+        assertThat(outbox.retryDelay(3)).isEqualTo(4000);
+        assertThat(outbox.retryDelay(4)).isEqualTo(5000);
+        assertThat(outbox.retryDelay(100)).isEqualTo(5000);
+    }
+
+    private String status() {
+        return jdbcTemplate.queryForList("SELECT status FROM crud_hook_outbox", String.class)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void waitUntilEmpty() throws InterruptedException {
+        for (int i = 0; i < 500 && count() > 0; i++)
+            Thread.sleep(10);
+
+        assertThat(count()).isZero();
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crud_hook_outbox", Integer.class);
+    }
+
+}